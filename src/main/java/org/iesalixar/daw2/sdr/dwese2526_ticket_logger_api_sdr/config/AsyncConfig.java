@@ -0,0 +1,121 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Ejecutores para el trabajo en segundo plano ({@code @Async}).
+ * <p>
+ * Cada tarea tiene su propio pool acotado (hilos y cola) para que una ráfaga de trabajo no consuma
+ * memoria sin límite ni robe CPU a las peticiones. Si la cola se llena, la tarea se descarta con un
+ * aviso en el log en lugar de bloquear o lanzar una excepción al hilo que la encola.
+ * </p>
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
+
+    /** Ejecutor de {@code ThumbnailServiceImpl}: decodificar y redimensionar imágenes es costoso en CPU y memoria. */
+    public static final String THUMBNAIL_EXECUTOR = "thumbnailExecutor";
+
+    /**
+     * Ejecutor de mantenimiento del almacén de subidas (migración, recolector de huérfanos, limpieza de
+     * subidas reanudables caducadas): un único hilo para que estas tareas nunca compitan entre sí por el
+     * disco ni ocupen los hilos del planificador de {@code @Scheduled}.
+     */
+    public static final String STORAGE_MAINTENANCE_EXECUTOR = "storageMaintenanceExecutor";
+
+    /**
+     * Ejecutor de los borrados diferidos de ficheros ({@code FilesReleasedEvent}). Si la cola se llena, los
+     * ficheros no borrados los recoge más tarde {@code OrphanFileCollector}.
+     */
+    public static final String FILE_CLEANUP_EXECUTOR = "fileCleanupExecutor";
+
+    /**
+     * Ejecutor de los envíos SMTP de {@code MailOutboxDispatcher}. Si la cola se llena el envío lo hace el
+     * propio hilo del dispatcher (que así deja de reclamar más mensajes hasta terminar): un envío nunca se descarta.
+     */
+    public static final String MAIL_EXECUTOR = "mailExecutor";
+
+    /**
+     * Ejecutor de las reconstrucciones de {@code ReferenceDataCache}: un hilo, para que las instantáneas se
+     * publiquen en orden, y sitio en cola para una sola reconstrucción pendiente (la caché las agrupa).
+     */
+    public static final String REFERENCE_DATA_EXECUTOR = "referenceDataExecutor";
+
+    @Bean(name = THUMBNAIL_EXECUTOR)
+    public ThreadPoolTaskExecutor thumbnailExecutor(@Value("${app.thumbnails.threads:2}") int threads,
+                                                    @Value("${app.thumbnails.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("thumbnail-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) ->
+                logger.warn("Cola de miniaturas llena ({} pendientes): se descarta la tarea", pool.getQueue().size()));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @Bean(name = FILE_CLEANUP_EXECUTOR)
+    public ThreadPoolTaskExecutor fileCleanupExecutor(@Value("${app.storage.cleanup.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("file-cleanup-");
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) ->
+                logger.warn("Cola de borrado de ficheros llena: se deja para el recolector de huérfanos"));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @Bean(name = MAIL_EXECUTOR)
+    public ThreadPoolTaskExecutor mailExecutor(@Value("${app.mail.outbox.threads:4}") int threads,
+                                               @Value("${app.mail.outbox.batch-size:20}") int batchSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("mail-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(batchSize);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @Bean(name = REFERENCE_DATA_EXECUTOR)
+    public ThreadPoolTaskExecutor referenceDataExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("reference-data-");
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        return executor;
+    }
+
+    @Bean(name = STORAGE_MAINTENANCE_EXECUTOR)
+    public ThreadPoolTaskExecutor storageMaintenanceExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("storage-maintenance-");
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(10);
+        executor.setRejectedExecutionHandler((task, pool) ->
+                logger.warn("Cola de mantenimiento del almacén llena: se descarta la tarea"));
+        // Las tareas comprueban la interrupción entre lotes, así que el apagado no espera a que terminen
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -0,0 +1,123 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config;
+
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Pools de conexiones del primario y (opcionalmente) de la réplica, y el DataSource que los enruta.
+ * <p>
+ * El primario se configura con las propiedades estándar {@code spring.datasource.*}. La réplica se activa
+ * con {@code app.datasource.replica.enabled=true} y toma la URL/credenciales de {@code app.datasource.replica.*}
+ * (usuario, contraseña y driver por defecto los del primario). Sin réplica todo va al primario.
+ * </p>
+ * <p>
+ * El DataSource que usan JPA y JdbcTemplate es un {@link LazyConnectionDataSourceProxy} sobre
+ * {@link ReplicaRoutingDataSource}: las transacciones {@code readOnly} leen de la réplica salvo dentro
+ * de la ventana de {@link ReadYourWritesFilter}.
+ * </p>
+ * <p>
+ * El enrutado se decide al pedir la conexión, así que cada transacción tiene que pedir la suya: Hibernate
+ * la devuelve al terminar la transacción (ver {@link #releaseConnectionAfterTransaction()}) y
+ * {@code spring.jpa.open-in-view} está desactivado, para que una petición con varias transacciones no
+ * se quede con la conexión de la primera.
+ * </p>
+ */
+@Configuration
+public class DataSourceRoutingConfig {
+
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceRoutingConfig.class);
+
+
+    /**
+     * Pool del primario (lecturas y escrituras).
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+
+    /**
+     * Pool de la réplica (solo lectura).
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${app.datasource.replica.url}") String url,
+                                              @Value("${app.datasource.replica.username:}") String username,
+                                              @Value("${app.datasource.replica.password:}") String password) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        if (!username.isBlank()) {
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+        }
+        dataSource.setPoolName("replica");
+        // Red de seguridad: una escritura enrutada por error falla en vez de desincronizar la réplica
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+
+    /**
+     * Hibernate devuelve la conexión al terminar cada transacción en vez de retenerla hasta cerrar la
+     * sesión ({@code DELAYED_ACQUISITION_AND_HOLD}, lo que usa Spring por defecto): si no, una escritura
+     * posterior a una lectura en la misma sesión reutilizaría la conexión de la réplica.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+
+    /**
+     * DataSource principal de la aplicación.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replica) {
+        DataSource replicaDataSource = replica.getIfAvailable();
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primary);
+        targets.put(ReplicaRoutingDataSource.REPLICA, replicaDataSource != null ? replicaDataSource : primary);
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+
+        logger.info("DataSource configurado: lecturas de solo lectura a {}.",
+                replicaDataSource != null ? "la réplica" : "el primario (réplica desactivada)");
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,106 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config;
+
+
+import java.util.function.Supplier;
+
+
+/**
+ * Estado "leer lo que acabo de escribir" de la petición en curso.
+ * <p>
+ * Lo abre {@link ReadYourWritesFilter} al empezar cada petición: si el cliente escribió hace poco,
+ * la petición queda fijada al primario. Cuando {@link ReplicaRoutingDataSource} ve que se confirma
+ * una transacción de escritura llama a {@link #recordWrite()}, que fija al primario el resto de la
+ * petición y avisa al filtro para que lo recuerde en las siguientes.
+ * </p>
+ * <p>
+ * Fuera de una petición (tareas programadas, arranque...) no hay estado y las lecturas de solo
+ * lectura van siempre a la réplica.
+ * </p>
+ */
+public final class ReadYourWritesContext {
+
+
+    private static final ThreadLocal<State> STATE = new ThreadLocal<>();
+
+
+    private ReadYourWritesContext() {
+    }
+
+
+    /**
+     * Abre el estado de la petición actual.
+     *
+     * @param pinnedToPrimary true si la petición debe leer del primario desde el principio.
+     * @param onWrite         acción a ejecutar (una sola vez) tras la primera escritura confirmada.
+     */
+    public static void begin(boolean pinnedToPrimary, Runnable onWrite) {
+        STATE.set(new State(pinnedToPrimary, onWrite));
+    }
+
+
+    /**
+     * @return true si las lecturas de esta petición deben ir al primario.
+     */
+    public static boolean isPinnedToPrimary() {
+        State state = STATE.get();
+        return state != null && state.pinnedToPrimary;
+    }
+
+
+    /**
+     * Anota una escritura confirmada en la petición actual (no hace nada fuera de una petición).
+     */
+    public static void recordWrite() {
+        State state = STATE.get();
+        if (state == null) {
+            return;
+        }
+        state.pinnedToPrimary = true;
+        if (!state.writeNotified && state.onWrite != null) {
+            state.writeNotified = true;
+            state.onWrite.run();
+        }
+    }
+
+
+    /**
+     * Ejecuta {@code action} con las lecturas fijadas al primario, dentro o fuera de una petición, y
+     * después deja el estado como estaba.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        State previous = STATE.get();
+        STATE.set(new State(true, null));
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                STATE.set(previous);
+            } else {
+                STATE.remove();
+            }
+        }
+    }
+
+
+    /**
+     * Cierra el estado de la petición actual.
+     */
+    public static void clear() {
+        STATE.remove();
+    }
+
+
+    private static final class State {
+
+        private boolean pinnedToPrimary;
+
+        private boolean writeNotified;
+
+        private final Runnable onWrite;
+
+        private State(boolean pinnedToPrimary, Runnable onWrite) {
+            this.pinnedToPrimary = pinnedToPrimary;
+            this.onWrite = onWrite;
+        }
+    }
+}
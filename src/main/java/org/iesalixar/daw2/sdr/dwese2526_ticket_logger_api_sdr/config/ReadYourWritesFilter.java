@@ -0,0 +1,81 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config;
+
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+
+/**
+ * Mantiene la ventana "leer lo que acabo de escribir" entre peticiones del mismo cliente.
+ * <p>
+ * Tras una escritura confirmada añade la cookie {@value #COOKIE_NAME} con caducidad igual a la
+ * ventana configurada; mientras el navegador/cliente la envíe, sus lecturas van al primario y no
+ * ve datos anteriores a su propio cambio por el retraso de la réplica.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+
+    /** Cookie que fija las lecturas al primario. */
+    public static final String COOKIE_NAME = "rw_primary";
+
+
+    private final int windowSeconds;
+
+
+    public ReadYourWritesFilter(@Value("${app.datasource.replica.read-your-writes-window:PT5S}") Duration window) {
+        this.windowSeconds = (int) Math.max(1, window.toSeconds());
+    }
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ReadYourWritesContext.begin(hasPinCookie(request), () -> addPinCookie(request, response));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadYourWritesContext.clear();
+        }
+    }
+
+
+    private boolean hasPinCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private void addPinCookie(HttpServletRequest request, HttpServletResponse response) {
+        // Si la respuesta ya se ha enviado no se puede añadir; la petición actual sigue fijada igualmente
+        if (response.isCommitted()) {
+            return;
+        }
+        Cookie cookie = new Cookie(COOKIE_NAME, "1");
+        cookie.setMaxAge(windowSeconds);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        response.addCookie(cookie);
+    }
+}
@@ -0,0 +1,46 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config;
+
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+
+/**
+ * DataSource que envía las transacciones de solo lectura a la réplica y el resto al primario.
+ * <p>
+ * Debe usarse detrás de un {@code LazyConnectionDataSourceProxy}: así la conexión física se pide
+ * al ejecutar la primera sentencia, cuando la transacción ya está marcada como de solo lectura
+ * ({@code @Transactional(readOnly = true)}).
+ * </p>
+ * <p>
+ * Las lecturas van al primario si la petición está fijada por {@link ReadYourWritesContext}, y cada
+ * transacción de escritura registra una sincronización que, al confirmar, anota la escritura.
+ * </p>
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+
+    /** Clave del pool de escritura. */
+    public static final String PRIMARY = "primary";
+
+    /** Clave del pool de lectura. */
+    public static final String REPLICA = "replica";
+
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return ReadYourWritesContext.isPinnedToPrimary() ? PRIMARY : REPLICA;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ReadYourWritesContext.recordWrite();
+                }
+            });
+        }
+        return PRIMARY;
+    }
+}
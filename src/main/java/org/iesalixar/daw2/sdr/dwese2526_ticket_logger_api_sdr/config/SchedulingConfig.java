@@ -0,0 +1,18 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Activa las tareas periódicas ({@code @Scheduled}), p. ej. {@code OrphanFileCollector}.
+ * <p>
+ * El planificador tiene varios hilos ({@code spring.task.scheduling.pool.size}) para que una tarea que
+ * tarda (una pasada de {@code MailOutboxDispatcher} esperando a sus envíos) no retrase a las demás; las
+ * que recorren el almacén de subidas solo se disparan aquí y se ejecutan en
+ * {@link AsyncConfig#STORAGE_MAINTENANCE_EXECUTOR}.
+ * </p>
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
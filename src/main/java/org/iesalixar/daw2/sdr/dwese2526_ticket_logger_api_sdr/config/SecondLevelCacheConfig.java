@@ -0,0 +1,142 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config;
+
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+
+
+/**
+ * Caché de segundo nivel de Hibernate sobre JCache con Caffeine como proveedor en memoria.
+ * <p>
+ * Crea explícitamente una región por entidad ({@code Region} y {@code Province} en READ_WRITE,
+ * {@code Role} en READ_ONLY), la colección {@code Region.provinces}, la región de las consultas
+ * cacheadas y la de timestamps, con tamaño máximo y estadísticas activadas. El mismo
+ * {@link CacheManager} se entrega a Hibernate, así que no hace falta ningún servicio externo
+ * ni fichero de configuración del proveedor.
+ * </p>
+ * <p>
+ * Las estadísticas de Hibernate ({@code hibernate.second.level.cache.requests}, {@code hibernate.query.cache.requests}...)
+ * las publica Spring Boot al tener {@code hibernate.generate_statistics=true}; aquí se añaden las de cada
+ * caché JCache ({@code cache.gets}, {@code cache.puts}, {@code cache.evictions}...).
+ * </p>
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+
+    private static final Logger logger = LoggerFactory.getLogger(SecondLevelCacheConfig.class);
+
+
+    /** Región de la entidad {@code Region}. */
+    public static final String REGION_CACHE = "entity.region";
+
+    /** Región de la colección {@code Region.provinces}. */
+    public static final String REGION_PROVINCES_CACHE = "collection.region.provinces";
+
+    /** Región de la entidad {@code Province}. */
+    public static final String PROVINCE_CACHE = "entity.province";
+
+    /** Región de la entidad {@code Role}. */
+    public static final String ROLE_CACHE = "entity.role";
+
+    /** Región de los resultados de {@code findByIdWithRegion} y {@code findByIdWithProvinces}. */
+    public static final String REFERENCE_QUERY_CACHE = "query.reference";
+
+    /** Región de Hibernate con la última modificación de cada tabla (invalida las consultas cacheadas). */
+    public static final String UPDATE_TIMESTAMPS_CACHE = "default-update-timestamps-region";
+
+
+    /**
+     * CacheManager JCache (Caffeine) con las regiones de segundo nivel ya creadas.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${app.second-level-cache.max-entries:10000}") long maxEntries,
+            @Value("${app.second-level-cache.ttl:PT30M}") Duration ttl) {
+
+        CacheManager cacheManager = Caching
+                .getCachingProvider("com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider")
+                .getCacheManager();
+
+        Map<String, CaffeineConfiguration<Object, Object>> regions = regions(maxEntries, ttl);
+        for (Map.Entry<String, CaffeineConfiguration<Object, Object>> region : regions.entrySet()) {
+            if (cacheManager.getCache(region.getKey()) == null) {
+                cacheManager.createCache(region.getKey(), region.getValue());
+            }
+        }
+        logger.info("Caché de segundo nivel creada: {} regiones (máx. {} entradas, ttl {}).",
+                regions.size(), maxEntries, ttl);
+        return cacheManager;
+    }
+
+
+    /**
+     * Entrega a Hibernate el CacheManager anterior en lugar de que cree el suyo.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put("hibernate.javax.cache.cache_manager", hibernateCacheManager);
+    }
+
+
+    /**
+     * Registra en Micrometer las métricas (aciertos, fallos, escrituras, expulsiones) de cada región.
+     */
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(CacheManager hibernateCacheManager) {
+        return registry -> bindCacheMetrics(registry, hibernateCacheManager);
+    }
+
+
+    static Map<String, CaffeineConfiguration<Object, Object>> regions(long maxEntries, Duration ttl) {
+        Map<String, CaffeineConfiguration<Object, Object>> regions = new LinkedHashMap<>();
+        regions.put(REGION_CACHE, cacheConfig(maxEntries, ttl));
+        regions.put(REGION_PROVINCES_CACHE, cacheConfig(maxEntries, ttl));
+        regions.put(PROVINCE_CACHE, cacheConfig(maxEntries, ttl));
+        regions.put(ROLE_CACHE, cacheConfig(maxEntries, ttl));
+        regions.put(REFERENCE_QUERY_CACHE, cacheConfig(maxEntries, ttl));
+        // Los timestamps no deben expirar antes que las consultas que validan
+        regions.put(UPDATE_TIMESTAMPS_CACHE, cacheConfig(0, null));
+        return regions;
+    }
+
+
+    private static CaffeineConfiguration<Object, Object> cacheConfig(long maxEntries, Duration ttl) {
+        CaffeineConfiguration<Object, Object> config = new CaffeineConfiguration<>();
+        // Hibernate ya guarda las entidades desensambladas; copiar por valor solo añadiría coste
+        config.setStoreByValue(false);
+        config.setStatisticsEnabled(true);
+        if (maxEntries > 0) {
+            config.setMaximumSize(OptionalLong.of(maxEntries));
+        }
+        if (ttl != null) {
+            config.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        }
+        return config;
+    }
+
+
+    private static void bindCacheMetrics(MeterRegistry registry, CacheManager cacheManager) {
+        for (String name : cacheManager.getCacheNames()) {
+            Cache<Object, Object> cache = cacheManager.getCache(name);
+            new JCacheMetrics<>(cache, Tags.of("layer", "hibernate-l2")).bindTo(registry);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config;
+
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.DuplicateResourceException;
+import org.springframework.core.Ordered;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * Traduce las violaciones de índices UNIQUE a {@link DuplicateResourceException}, en un único sitio.
+ * <p>
+ * En lugar de consultar antes de escribir ({@code existsByCode}, {@code existsByEmailAndIdNot}...), lo que
+ * cuesta un viaje extra a la BD y no evita la carrera entre dos peticiones simultáneas, la escritura va
+ * directa y es el índice quien decide. Como {@link PersistenceExceptionTranslator}, Spring lo aplica a todos
+ * los repositorios (los de Spring Data y cualquier {@code @Repository}) antes que la traducción genérica de
+ * JPA, así que ninguna escritura necesita envolverse a mano. Las violaciones que solo aparecen al hacer commit
+ * las traduce {@code ApiExceptionHandler} con el mismo método.
+ * </p>
+ * <p>
+ * No se interpreta el texto del error: el dialecto de Hibernate clasifica la violación ({@code UNIQUE}, FK,
+ * NOT NULL...) y extrae el nombre del índice, que se busca en {@link #CONSTRAINTS}. Los nombres se fijan en
+ * las entidades ({@code @UniqueConstraint}) y en {@code schema.sql}.
+ * </p>
+ */
+@Component
+public class UniqueConstraintTranslator implements PersistenceExceptionTranslator, Ordered {
+
+
+    /** Índice UNIQUE de {@code regions.code}. */
+    public static final String REGION_CODE = "uk_regions_code";
+
+    /** Índice UNIQUE de {@code provinces.code}. */
+    public static final String PROVINCE_CODE = "uk_provinces_code";
+
+    /** Índice UNIQUE de {@code users.email}. */
+    public static final String USER_EMAIL = "uk_users_email";
+
+
+    /** Recurso y campo que protege un índice UNIQUE. */
+    private record UniqueField(String resource, String field) {
+    }
+
+    private static final Map<String, UniqueField> CONSTRAINTS = Map.of(
+            REGION_CODE, new UniqueField("region", "code"),
+            PROVINCE_CODE, new UniqueField("province", "code"),
+            USER_EMAIL, new UniqueField("user", "email")
+    );
+
+
+    /** Antes que la traducción genérica de JPA, que lo convertiría en una {@code DataIntegrityViolationException}. */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+
+    @Override
+    public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
+        return translate(ex);
+    }
+
+
+    /**
+     * @return la excepción de duplicado equivalente, o {@code null} si la causa no es un índice UNIQUE.
+     */
+    public DuplicateResourceException translate(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE) {
+                UniqueField unique = lookup(violation.getConstraintName());
+                return unique != null
+                        ? new DuplicateResourceException(unique.resource(), unique.field(), null, ex)
+                        : new DuplicateResourceException("unknown", violation.getConstraintName(), null, ex);
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return null;
+    }
+
+
+    private static UniqueField lookup(String constraintName) {
+        if (constraintName == null) {
+            return null;
+        }
+        // Según la BD llega tal cual ("uk_regions_code") o con esquema, en mayúsculas y seguida del índice
+        // que la implementa ("PUBLIC.UK_REGIONS_CODE INDEX PUBLIC.UK_REGIONS_CODE_INDEX_6" en H2)
+        String name = constraintName.trim().split("\\s+", 2)[0].toLowerCase(Locale.ROOT);
+        return CONSTRAINTS.get(name.substring(name.lastIndexOf('.') + 1));
+    }
+}
@@ -0,0 +1,291 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.ContentTooLargeException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.FileStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+
+/**
+ * Control de admisión de las subidas de ficheros, antes de recibir el cuerpo.
+ * <p>
+ * El multipart lo procesa después el {@code DispatcherServlet}, así que aquí la petición aún no ha leído
+ * ni un byte del cuerpo. En las rutas de subida ({@code app.upload-admission.paths}):
+ * </p>
+ * <ul>
+ *     <li>{@code Content-Length} mayor que el máximo: 413 sin leer el cuerpo.</li>
+ *     <li>Sin {@code Content-Length} (chunked): se reserva el máximo y el cuerpo se limita a él; al pasarlo,
+ *     la lectura lanza {@link ContentTooLargeException} (413).</li>
+ *     <li>Sin hueco en el número de subidas simultáneas o en el presupuesto de bytes en vuelo: 503 con {@code Retry-After}.</li>
+ *     <li>Espacio libre en disco por debajo del mínimo (contando esta subida): 503 con {@code Retry-After}.</li>
+ * </ul>
+ * <p>
+ * Los permisos no esperan: si no hay hueco se rechaza al momento, para que una ráfaga de subidas grandes
+ * no ocupe los hilos del servidor que necesitan el resto de endpoints.
+ * </p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadAdmissionFilter.class);
+
+
+    private final FileStorageService fileStorageService;
+
+    private final List<String> paths;
+
+    private final long maxContentLength;
+
+    private final long minFreeBytes;
+
+    private final String retryAfterSeconds;
+
+    /** Subidas simultáneas. */
+    private final Semaphore concurrentUploads;
+
+    /** Presupuesto de bytes en vuelo, en KiB (un permiso por KiB declarado en Content-Length). */
+    private final Semaphore inFlightKib;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final Counter rejectedTooLarge;
+    private final Counter rejectedBusy;
+    private final Counter rejectedDiskFull;
+
+
+    public UploadAdmissionFilter(FileStorageService fileStorageService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.upload-admission.paths:/profile/update}") List<String> paths,
+                                 @Value("${app.upload-admission.max-content-length:3MB}") DataSize maxContentLength,
+                                 @Value("${app.upload-admission.max-concurrent:8}") int maxConcurrent,
+                                 @Value("${app.upload-admission.max-in-flight:64MB}") DataSize maxInFlight,
+                                 @Value("${app.upload-admission.min-free-space:512MB}") DataSize minFreeSpace,
+                                 @Value("${app.upload-admission.retry-after:PT30S}") Duration retryAfter) {
+        this.fileStorageService = fileStorageService;
+        this.paths = paths;
+        this.maxContentLength = maxContentLength.toBytes();
+        this.minFreeBytes = minFreeSpace.toBytes();
+        this.retryAfterSeconds = Long.toString(Math.max(1, retryAfter.toSeconds()));
+        this.concurrentUploads = new Semaphore(maxConcurrent);
+        this.inFlightKib = new Semaphore(toKib(maxInFlight.toBytes()));
+
+        this.rejectedTooLarge = rejections(meterRegistry, "too_large");
+        this.rejectedBusy = rejections(meterRegistry, "busy");
+        this.rejectedDiskFull = rejections(meterRegistry, "disk_full");
+        Gauge.builder("uploads.in.flight", concurrentUploads, s -> maxConcurrent - s.availablePermits())
+                .description("Subidas admitidas en curso")
+                .register(meterRegistry);
+    }
+
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!"POST".equals(method) && !"PUT".equals(method) && !"PATCH".equals(method)) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return paths.stream().noneMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long contentLength = request.getContentLengthLong();
+        if (contentLength > maxContentLength) {
+            rejectedTooLarge.increment();
+            logger.warn("Subida rechazada: Content-Length {} supera el máximo de {} bytes", contentLength, maxContentLength);
+            // El cuerpo no se va a leer: se cierra la conexión en lugar de consumirlo
+            response.setHeader(HttpHeaders.CONNECTION, "close");
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+        // Sin Content-Length (chunked) se reserva el máximo permitido
+        long reservedBytes = contentLength >= 0 ? contentLength : maxContentLength;
+
+        if (!hasFreeSpaceFor(reservedBytes)) {
+            rejectedDiskFull.increment();
+            logger.warn("Subida rechazada: espacio libre en disco por debajo de {} bytes", minFreeBytes);
+            rejectBusy(response);
+            return;
+        }
+        if (!concurrentUploads.tryAcquire()) {
+            rejectedBusy.increment();
+            logger.warn("Subida rechazada: ya hay el máximo de subidas simultáneas en curso");
+            rejectBusy(response);
+            return;
+        }
+        int kib = toKib(reservedBytes);
+        if (!inFlightKib.tryAcquire(kib)) {
+            concurrentUploads.release();
+            rejectedBusy.increment();
+            logger.warn("Subida rechazada: presupuesto de bytes en vuelo agotado ({} KiB pedidos)", kib);
+            rejectBusy(response);
+            return;
+        }
+        try {
+            chain.doFilter(contentLength >= 0 ? request : new BoundedBodyRequest(request, maxContentLength), response);
+        } finally {
+            inFlightKib.release(kib);
+            concurrentUploads.release();
+        }
+    }
+
+
+    /**
+     * Petición cuyo cuerpo no puede pasar de {@code limit} bytes, para que una subida sin
+     * {@code Content-Length} no lea más de lo reservado en el presupuesto de bytes en vuelo.
+     */
+    private static final class BoundedBodyRequest extends HttpServletRequestWrapper {
+
+        private final long limit;
+
+        private ServletInputStream body;
+
+        private BoundedBodyRequest(HttpServletRequest request, long limit) {
+            super(request);
+            this.limit = limit;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (body == null) {
+                body = new BoundedInputStream(super.getInputStream(), limit);
+            }
+            return body;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1));
+        }
+    }
+
+
+    private static final class BoundedInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+
+        private final long limit;
+
+        private long read;
+
+        private BoundedInputStream(ServletInputStream delegate, long limit) {
+            this.delegate = delegate;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            // Se pide como mucho un byte más del límite: basta para saber si se pasa
+            int n = delegate.read(buffer, offset, (int) Math.min(length, limit - read + 1));
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int bytes) {
+            read += bytes;
+            if (read > limit) {
+                throw new ContentTooLargeException("upload", "body", limit);
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+    }
+
+
+    private boolean hasFreeSpaceFor(long bytes) {
+        try {
+            Path dir = fileStorageService.uploadsDirectory();
+            // Si aún no existe se mira el sistema de ficheros del directorio padre más cercano
+            while (dir != null && !Files.exists(dir)) {
+                dir = dir.getParent();
+            }
+            if (dir == null) {
+                return true;
+            }
+            return Files.getFileStore(dir).getUsableSpace() - bytes >= minFreeBytes;
+        } catch (IOException e) {
+            logger.warn("No se pudo consultar el espacio libre del almacén de subidas: {}", e.getMessage());
+            return true;
+        }
+    }
+
+
+    private void rejectBusy(HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+
+    private static int toKib(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, (bytes + 1023) / 1024));
+    }
+
+
+    private static Counter rejections(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("uploads.admission.rejected").tag("reason", reason)
+                .description("Subidas rechazadas por el control de admisión antes de leer el cuerpo")
+                .register(meterRegistry);
+    }
+}
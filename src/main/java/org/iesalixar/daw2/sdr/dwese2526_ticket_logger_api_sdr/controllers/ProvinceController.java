@@ -3,6 +3,7 @@ package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.controllers;
 
 
 import ch.qos.logback.core.pattern.parser.OptionTokenizer;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.*;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Region;
@@ -11,10 +12,18 @@ import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.Resourc
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.mappers.ProvinceMapper;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.mappers.RegionMapper;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.ProvinceService;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.BulkImportService;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.ResourceVersionTracker;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ImportRecordReader;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ExportWriter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.ui.Model;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.ProvinceRepository;
@@ -27,9 +36,12 @@ import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.List;
 import java.util.Locale;
@@ -47,9 +59,51 @@ public class ProvinceController {
     @Autowired
     private ProvinceService provinceService;
 
+    @Autowired
+    private ResourceVersionTracker versionTracker;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    /**
+     * Lista las provincias.
+     * <p>
+     * Por defecto usa paginación por OFFSET ({@code ?page=&size=&sort=}). Si se envía {@code cursor}
+     * (vacío para la primera página) se usa paginación por cursor: orden fijo por nombre, sin
+     * {@code COUNT(*)} y con coste constante aunque la página sea muy profunda.
+     * Con {@code approximate=true} devuelve un slice con un total estimado a partir de las
+     * estadísticas de la tabla, también sin {@code COUNT(*)}.
+     * </p>
+     * <p>
+     * Responde con un ETag por colección y parámetros; si coincide con {@code If-None-Match}
+     * devuelve 304 sin consultar la BD.
+     * </p>
+     */
     @GetMapping
-    public ResponseEntity<Page<ProvinceDTO>> listProvinces(
-            @PageableDefault(size = 10, sort = "name", direction = Sort.Direction.ASC) Pageable pageable) {
+    public ResponseEntity<?> listProvinces(
+            @PageableDefault(size = 10, sort = "name", direction = Sort.Direction.ASC) Pageable pageable,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "approximate", defaultValue = "false") boolean approximate,
+            WebRequest webRequest) {
+
+        String etag = versionTracker.collectionETag("province", pageable, cursor, approximate);
+        if (webRequest.checkNotModified(etag)) {
+            logger.debug("Listado de provincias sin cambios (ETag {}).", etag);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        if (cursor != null) {
+            logger.info("Listando provincias por cursor (REST) size={}", pageable.getPageSize());
+            CursorPageDTO<ProvinceDTO> cursorPage = provinceService.listByCursor(cursor, pageable.getPageSize());
+            logger.info("Se han cargado {} provincias (hasNext={}).", cursorPage.getContent().size(), cursorPage.isHasNext());
+            return ResponseEntity.ok().eTag(etag).body(cursorPage);
+        }
+
+        if (approximate) {
+            logger.info("Listando provincias en modo aproximado (REST) page={}, size={}",
+                    pageable.getPageNumber(), pageable.getPageSize());
+            return ResponseEntity.ok().eTag(etag).body(provinceService.listApproximate(pageable));
+        }
 
         logger.info("Listando provincias (REST) page={}, size={}, sort={}",
                 pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort());
@@ -59,7 +113,7 @@ public class ProvinceController {
         logger.info("Se han cargado {} provincia en la página {}.",
                 page.getNumberOfElements(), page.getNumber());
 
-        return ResponseEntity.ok(page);
+        return ResponseEntity.ok().eTag(etag).body(page);
     }
 
     @GetMapping("/new")
@@ -225,12 +279,17 @@ public class ProvinceController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ProvinceDetailDTO> getProvinceById(@PathVariable Long id){
+    public ResponseEntity<ProvinceDetailDTO> getProvinceById(@PathVariable Long id, WebRequest webRequest){
         logger. info("Mostrando detalle (REST) de la provincia con id{}: ", id);
 
+        String etag = versionTracker.entityETag("province", id);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
         ProvinceDetailDTO provinceDetailDTO = provinceService.getDetail(id);
 
-        return ResponseEntity.ok(provinceDetailDTO);
+        return ResponseEntity.ok().eTag(etag).body(provinceDetailDTO);
     }
 
     @PostMapping
@@ -246,6 +305,59 @@ public class ProvinceController {
         return ResponseEntity.created(location).body(created);
     }
 
+    /**
+     * Exporta todas las provincias en NDJSON ({@code ?format=ndjson}, por defecto) o CSV ({@code ?format=csv}).
+     * <p>
+     * Las filas se leen de un cursor del servidor y se escriben directamente en la respuesta,
+     * así que la memoria usada no depende del tamaño de la tabla.
+     * </p>
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProvinces(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        ExportWriter.Format exportFormat = ExportWriter.Format.from(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        logger.info("Exportando provincias en formato {}", exportFormat);
+
+        StreamingResponseBody body = out -> {
+            long rows = provinceService.export(exportFormat, out);
+            logger.info("Exportación de provincias terminada: {} filas.", rows);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("provinces." + exportFormat.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    /**
+     * Importación masiva de provincias en CSV (cabecera {@code code,name,regionCode}) o JSON (array de objetos).
+     * <p>
+     * El cuerpo se procesa en streaming por bloques con escrituras JDBC por lotes. Devuelve siempre
+     * un informe con los contadores y los errores por fila; {@code onDuplicate} decide si los códigos
+     * ya existentes se omiten (SKIP) o se actualizan (UPDATE).
+     * </p>
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ImportReportDTO> importProvinces(
+            HttpServletRequest request,
+            @RequestParam(value = "onDuplicate", defaultValue = "SKIP") BulkImportService.OnDuplicate onDuplicate)
+            throws IOException {
+        ImportRecordReader.Format format = MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                ? ImportRecordReader.Format.JSON
+                : ImportRecordReader.Format.CSV;
+        logger.info("Importando provincias ({}, onDuplicate={})", format, onDuplicate);
+
+        ImportReportDTO report = bulkImportService.importProvinces(request.getInputStream(), format, onDuplicate);
+
+        return ResponseEntity.ok(report);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ProvinceDTO> updateProvince(@PathVariable Long id, @Valid @RequestBody ProvinceUpdateDTO dto){
 
@@ -260,6 +372,24 @@ public class ProvinceController {
         return ResponseEntity.ok(updated);
     }
 
+    /**
+     * Actualización parcial con JSON Merge Patch ({@code application/merge-patch+json}).
+     * <p>
+     * Solo se escriben las columnas presentes en el cuerpo, con un único UPDATE y sin leer antes la
+     * provincia. Responde 204 con el ETag nuevo; quien necesite la representación puede pedirla con GET.
+     * </p>
+     */
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patchProvince(@PathVariable Long id, @Valid @RequestBody ProvincePatchDTO patch){
+
+        logger.info("Actualizando parcialmente provincia con ID {} (REST): {}", id, patch.getPresentFields());
+
+        provinceService.patch(id, patch);
+
+        return ResponseEntity.noContent().eTag(versionTracker.entityETag("province", id)).build();
+    }
+
+
 
 
     @DeleteMapping("/{id}")
@@ -273,4 +403,39 @@ public class ProvinceController {
 
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Borrado masivo de provincias por id ({@code {"ids": [...]}}).
+     * <p>
+     * Se ejecuta un DELETE por conjunto por cada bloque de ids; la respuesta indica qué ids se
+     * han borrado y cuáles no existían.
+     * </p>
+     */
+    @DeleteMapping(params = "!regionId")
+    //@PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkDeleteResultDTO> deleteProvinces(@Valid @RequestBody BulkDeleteRequestDTO request){
+        logger.info("Borrado masivo de {} provincias (REST)", request.getIds().size());
+
+        BulkDeleteResultDTO result = provinceService.deleteAll(request.getIds());
+
+        logger.info("Borrado masivo de provincias: {} eliminadas, {} inexistentes.",
+                result.getDeleted().size(), result.getMissing().size());
+
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Borra todas las provincias de una región ({@code DELETE /provinces?regionId=}).
+     */
+    @DeleteMapping(params = "regionId")
+    //@PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkDeleteResultDTO> deleteProvincesOfRegion(@RequestParam("regionId") Long regionId){
+        logger.info("Borrando todas las provincias de la región {} (REST)", regionId);
+
+        BulkDeleteResultDTO result = provinceService.deleteByRegion(regionId);
+
+        logger.info("Provincias de la región {} eliminadas: {}.", regionId, result.getDeleted().size());
+
+        return ResponseEntity.ok(result);
+    }
 }
\ No newline at end of file
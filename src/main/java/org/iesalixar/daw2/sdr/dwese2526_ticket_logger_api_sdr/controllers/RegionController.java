@@ -1,21 +1,35 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.controllers;
 
 import ch.qos.logback.core.pattern.parser.OptionTokenizer;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.BulkDeleteRequestDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.BulkDeleteResultDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.CursorPageDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ImportReportDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionCreateDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionDetailDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionPatchDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionUpdateDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.DuplicateResourceException;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.ResourceNotFoundException;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.mappers.RegionMapper;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.RegionService;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.BulkImportService;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.ResourceVersionTracker;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ImportRecordReader;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ExportWriter;
 import org.springframework.cglib.core.Local;
 import org.springframework.context.MessageSource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.ui.Model;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.RegionRepository;
@@ -26,9 +40,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.List;
 import java.util.Locale;
@@ -47,12 +64,54 @@ public class RegionController {
     @Autowired
     private RegionService regionService;
 
+    @Autowired
+    private ResourceVersionTracker versionTracker;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
     @Autowired
     private MessageSource messageSource;
 
+    /**
+     * Lista las regiones.
+     * <p>
+     * Por defecto usa paginación por OFFSET ({@code ?page=&size=&sort=}). Si se envía {@code cursor}
+     * (vacío para la primera página) se usa paginación por cursor: orden fijo por nombre, sin
+     * {@code COUNT(*)} y con coste constante aunque la página sea muy profunda.
+     * Con {@code approximate=true} devuelve un slice con un total estimado a partir de las
+     * estadísticas de la tabla, también sin {@code COUNT(*)}.
+     * </p>
+     * <p>
+     * Responde con un ETag por colección y parámetros; si coincide con {@code If-None-Match}
+     * devuelve 304 sin consultar la BD.
+     * </p>
+     */
     @GetMapping
-    public ResponseEntity<Page<RegionDTO>> listRegions (
-            @PageableDefault(size = 10, sort = "name", direction = Sort.Direction.ASC)Pageable pageable){
+    public ResponseEntity<?> listRegions (
+            @PageableDefault(size = 10, sort = "name", direction = Sort.Direction.ASC)Pageable pageable,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "approximate", defaultValue = "false") boolean approximate,
+            WebRequest webRequest){
+
+        String etag = versionTracker.collectionETag("region", pageable, cursor, approximate);
+        if (webRequest.checkNotModified(etag)) {
+            logger.debug("Listado de regiones sin cambios (ETag {}).", etag);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        if (cursor != null) {
+            logger.info("Listando regiones por cursor (REST) size={}", pageable.getPageSize());
+            CursorPageDTO<RegionDTO> cursorPage = regionService.listByCursor(cursor, pageable.getPageSize());
+            logger.info("Se han cargado {} regiones (hasNext={}).", cursorPage.getContent().size(), cursorPage.isHasNext());
+            return ResponseEntity.ok().eTag(etag).body(cursorPage);
+        }
+
+        if (approximate) {
+            logger.info("Listando regiones en modo aproximado (REST) page={}, size={}",
+                    pageable.getPageNumber(), pageable.getPageSize());
+            return ResponseEntity.ok().eTag(etag).body(regionService.listApproximate(pageable));
+        }
             
         logger.info("Listaqndo regiones (REST) page={}, size={}, sort={}",
                 pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort());
@@ -61,7 +120,7 @@ public class RegionController {
         logger.info("Se han cargado {} regiones en la página {}.",
                 page.getNumberOfElements(), page.getNumber());
         
-        return ResponseEntity.ok(page);
+        return ResponseEntity.ok().eTag(etag).body(page);
     }
 
 //    @GetMapping("/all")
@@ -171,12 +230,17 @@ public class RegionController {
 
 
     @GetMapping("/{id}")
-    public ResponseEntity<RegionDetailDTO> getRegionById(@PathVariable Long id){
+    public ResponseEntity<RegionDetailDTO> getRegionById(@PathVariable Long id, WebRequest webRequest){
         logger. info("Mostrando detalle (REST) de la region con id{}: ", id);
 
+        String etag = versionTracker.entityETag("region", id);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
         RegionDetailDTO regionDetailDTO = regionService.getDetail(id);
 
-        return ResponseEntity.ok(regionDetailDTO);
+        return ResponseEntity.ok().eTag(etag).body(regionDetailDTO);
     }
 
 
@@ -193,6 +257,59 @@ public class RegionController {
         return ResponseEntity.created(location).body(created);
     }
 
+    /**
+     * Exporta todas las regiones en NDJSON ({@code ?format=ndjson}, por defecto) o CSV ({@code ?format=csv}).
+     * <p>
+     * Las filas se leen de un cursor del servidor y se escriben directamente en la respuesta,
+     * así que la memoria usada no depende del tamaño de la tabla.
+     * </p>
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRegions(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        ExportWriter.Format exportFormat = ExportWriter.Format.from(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        logger.info("Exportando regiones en formato {}", exportFormat);
+
+        StreamingResponseBody body = out -> {
+            long rows = regionService.export(exportFormat, out);
+            logger.info("Exportación de regiones terminada: {} filas.", rows);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("regions." + exportFormat.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    /**
+     * Importación masiva de regiones en CSV (cabecera {@code code,name}) o JSON (array de objetos).
+     * <p>
+     * El cuerpo se procesa en streaming por bloques con escrituras JDBC por lotes. Devuelve siempre
+     * un informe con los contadores y los errores por fila; {@code onDuplicate} decide si los códigos
+     * ya existentes se omiten (SKIP) o se actualizan (UPDATE).
+     * </p>
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ImportReportDTO> importRegions(
+            HttpServletRequest request,
+            @RequestParam(value = "onDuplicate", defaultValue = "SKIP") BulkImportService.OnDuplicate onDuplicate)
+            throws IOException {
+        ImportRecordReader.Format format = MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                ? ImportRecordReader.Format.JSON
+                : ImportRecordReader.Format.CSV;
+        logger.info("Importando regiones ({}, onDuplicate={})", format, onDuplicate);
+
+        ImportReportDTO report = bulkImportService.importRegions(request.getInputStream(), format, onDuplicate);
+
+        return ResponseEntity.ok(report);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<RegionDTO> updateRegion(@PathVariable Long id, @Valid @RequestBody RegionUpdateDTO dto){
 
@@ -207,6 +324,24 @@ public class RegionController {
         return ResponseEntity.ok(updated);
     }
 
+    /**
+     * Actualización parcial con JSON Merge Patch ({@code application/merge-patch+json}).
+     * <p>
+     * Solo se escriben las columnas presentes en el cuerpo, con un único UPDATE y sin leer antes la
+     * región. Responde 204 con el ETag nuevo; quien necesite la representación puede pedirla con GET.
+     * </p>
+     */
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patchRegion(@PathVariable Long id, @Valid @RequestBody RegionPatchDTO patch){
+
+        logger.info("Actualizando parcialmente region con ID {} (REST): {}", id, patch.getPresentFields());
+
+        regionService.patch(id, patch);
+
+        return ResponseEntity.noContent().eTag(versionTracker.entityETag("region", id)).build();
+    }
+
+
 
 
     @DeleteMapping("/{id}")
@@ -221,6 +356,26 @@ public class RegionController {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Borrado masivo de regiones por id ({@code {"ids": [...]}}), junto con sus provincias.
+     * <p>
+     * Se ejecuta un DELETE por conjunto por cada bloque de ids; la respuesta indica qué ids se
+     * han borrado y cuáles no existían.
+     * </p>
+     */
+    @DeleteMapping
+    //@PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkDeleteResultDTO> deleteRegions(@Valid @RequestBody BulkDeleteRequestDTO request){
+        logger.info("Borrado masivo de {} regiones (REST)", request.getIds().size());
+
+        BulkDeleteResultDTO result = regionService.deleteAll(request.getIds());
+
+        logger.info("Borrado masivo de regiones: {} eliminadas, {} inexistentes, {} provincias en cascada.",
+                result.getDeleted().size(), result.getMissing().size(), result.getCascaded());
+
+        return ResponseEntity.ok(result);
+    }
+
 }
 
 
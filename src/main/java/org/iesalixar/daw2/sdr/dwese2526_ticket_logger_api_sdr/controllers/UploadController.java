@@ -0,0 +1,233 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.FileStorageService;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Sirve los ficheros subidos ({@code GET/HEAD /uploads/<nombre>}).
+ * <p>
+ * Con el almacén local el cuerpo nunca pasa por el heap: con Tomcat se delega en {@code sendfile} (el kernel
+ * copia del fichero al socket) y, si no está disponible, se usa {@link FileChannel#transferTo} hacia la salida
+ * de la respuesta. Con un almacén remoto se pide solo el tramo necesario y se reenvía por bloques.
+ * Admite un rango de bytes ({@code Range}/{@code If-Range}, 206/416) y peticiones condicionales con ETag
+ * fuerte ({@code If-None-Match}, 304).
+ * </p>
+ * <p>
+ * Los blobs direccionados por contenido ({@code <sha256>.<ext>}) usan el hash como ETag y se cachean un año
+ * como {@code immutable}, porque su nombre cambia si cambia el contenido. Los nombres antiguos (UUID) usan
+ * tamaño y fecha de modificación y una caché corta.
+ * </p>
+ */
+@Controller
+public class UploadController {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadController.class);
+
+    /** Nombres que puede generar FileStorageService: sin rutas, sin ficheros ocultos ni temporales. */
+    private static final Pattern SAFE_NAME = Pattern.compile("^[A-Za-z0-9][A-Za-z0-9._-]{0,99}$");
+
+    /** Atributos de petición con los que Tomcat envía el cuerpo con sendfile en lugar de por el servlet. */
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /** Por debajo de este tamaño sale más barato escribir directamente (mismo umbral que el DefaultServlet de Tomcat). */
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    /** Bloque de copia cuando el fichero viene de un almacén remoto. */
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private static final String IMMUTABLE_CACHE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable().getHeaderValue();
+
+    private static final String MUTABLE_CACHE = CacheControl.maxAge(Duration.ofHours(1)).cachePublic().getHeaderValue();
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @RequestMapping(value = "/uploads/{fileName}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serve(@PathVariable String fileName, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!SAFE_NAME.matcher(fileName).matches()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Optional<StorageBackend.StoredObject> stored = fileStorageService.stat(fileName);
+        if (stored.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = stored.get().size();
+        long lastModified = stored.get().lastModified().toEpochMilli();
+        boolean immutable = fileStorageService.isContentAddressed(fileName);
+        String etag = immutable
+                ? "\"" + fileName.substring(0, 64) + "\""
+                : "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? IMMUTABLE_CACHE : MUTABLE_CACHE);
+        // Escribe ETag y Last-Modified y, si la copia del cliente sigue siendo válida, deja la respuesta en 304
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && length > 0 && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges = parseRanges(rangeHeader);
+            // Varios rangos (multipart/byteranges) no compensan para imágenes: se ignoran y se envía el fichero entero
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                try {
+                    start = range.getRangeStart(length);
+                    end = range.getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    start = length;
+                }
+                if (start >= length || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        Optional<Path> localFile = fileStorageService.localPath(fileName);
+        if (localFile.isEmpty()) {
+            copyFromStore(fileName, start, count, response);
+            return;
+        }
+        if (count >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, localFile.get().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        transfer(localFile.get(), start, count, response);
+    }
+
+    /**
+     * Almacenes remotos: se pide solo el tramo necesario y se reenvía por bloques de tamaño fijo.
+     */
+    private void copyFromStore(String fileName, long start, long count, HttpServletResponse response) throws IOException {
+        InputStream in;
+        try {
+            in = fileStorageService.open(fileName, start, count);
+        } catch (NoSuchFileException e) {
+            logger.info("El fichero {} ha desaparecido antes de enviarlo", fileName);
+            response.reset();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        try (in) {
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[COPY_BUFFER_BYTES];
+            long remaining = count;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    /**
+     * Copia el tramo del fichero a la respuesta con {@link FileChannel#transferTo}, sin buffers propios.
+     */
+    private void transfer(Path file, long start, long count, HttpServletResponse response) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            // Borrado entre la lectura de atributos y la apertura
+            logger.info("El fichero {} ha desaparecido antes de enviarlo", file);
+            response.reset();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        try (channel) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    /**
+     * {@code If-Range}: el rango solo se aplica si la copia parcial del cliente es de esta misma versión
+     * (ETag fuerte idéntico o misma fecha de modificación); si no, se envía el fichero completo.
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /** Una cabecera Range mal formada se ignora (se responde 200 con el fichero completo). */
+    private static List<HttpRange> parseRanges(String rangeHeader) {
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+}
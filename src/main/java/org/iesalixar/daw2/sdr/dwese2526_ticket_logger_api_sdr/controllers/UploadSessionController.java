@@ -0,0 +1,112 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UploadSessionCreateDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UploadSessionDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.InvalidFileException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.ResumableUploadService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+
+import static org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.ResumableUploadService.UPLOAD_OFFSET_HEADER;
+
+/**
+ * API de subidas reanudables.
+ * <ol>
+ *     <li>{@code POST /api/uploads/sessions} con {@code length} y {@code sha256}: 201 con la sesión y su {@code Location}.</li>
+ *     <li>{@code PUT /api/uploads/sessions/{id}} con el trozo en crudo como cuerpo y su posición en la cabecera
+ *     {@code Upload-Offset}: 204 con el nuevo offset confirmado en {@code Upload-Offset}. Si el trozo empieza más
+ *     allá de lo confirmado, 409 con el offset correcto.</li>
+ *     <li>Tras un corte, {@code HEAD} (o {@code GET}) {@code /api/uploads/sessions/{id}} devuelve el offset
+ *     confirmado y se continúa desde ahí.</li>
+ *     <li>{@code POST /api/uploads/sessions/{id}/complete}: verifica tamaño y SHA-256 y devuelve la ruta web
+ *     del fichero guardado.</li>
+ * </ol>
+ * <p>
+ * Los trozos pasan por el control de admisión de subidas como cualquier otra subida, así que cada uno debe
+ * respetar {@code app.upload-admission.max-content-length}. El cuerpo se lee en streaming desde la petición.
+ * </p>
+ */
+@RestController
+@RequestMapping("/api/uploads/sessions")
+public class UploadSessionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadSessionController.class);
+
+    @Autowired
+    private ResumableUploadService resumableUploadService;
+
+    @PostMapping
+    public ResponseEntity<UploadSessionDTO> createSession(@Valid @RequestBody UploadSessionCreateDTO dto) throws IOException {
+        UploadSessionDTO created = resumableUploadService.create(dto);
+
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(created.getId())
+                .toUri();
+
+        return ResponseEntity.created(location)
+                .header(UPLOAD_OFFSET_HEADER, "0")
+                .body(created);
+    }
+
+    /**
+     * Estado de la sesión; también atiende {@code HEAD} (solo cabeceras) para consultar el offset.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionDTO> getSession(@PathVariable String id) throws IOException {
+        UploadSessionDTO session = resumableUploadService.get(id);
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .header(UPLOAD_OFFSET_HEADER, Long.toString(session.getOffset()))
+                .body(session);
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<Void> writeChunk(@PathVariable String id,
+                                           @RequestHeader(value = UPLOAD_OFFSET_HEADER, required = false) Long offset,
+                                           HttpServletRequest request) throws IOException {
+        if (offset == null) {
+            throw new InvalidFileException("upload", "offset", null, ": falta la cabecera " + UPLOAD_OFFSET_HEADER);
+        }
+
+        long committed = resumableUploadService.writeChunk(id, offset, request.getInputStream());
+
+        return ResponseEntity.noContent()
+                .header(UPLOAD_OFFSET_HEADER, Long.toString(committed))
+                .build();
+    }
+
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<UploadSessionDTO> completeSession(@PathVariable String id) throws IOException {
+        logger.info("Finalizando subida reanudable {}", id);
+
+        return ResponseEntity.ok(resumableUploadService.complete(id));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> cancelSession(@PathVariable String id) throws IOException {
+        resumableUploadService.cancel(id);
+
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -32,7 +32,6 @@ import java.util.Optional;
 public class UserProfileController {
 
     private static final Logger logger = LoggerFactory.getLogger(UserProfileController.class);
-    private static final long MAX_PROFILE_IMAGE_SIZE = 2 * 1024 * 1024; // 2MB
 
     @Autowired
     private MessageSource messageSource;
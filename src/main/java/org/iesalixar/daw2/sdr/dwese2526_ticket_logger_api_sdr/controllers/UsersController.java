@@ -1,7 +1,9 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.controllers;
 
 import jakarta.validation.Valid;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.CursorPageDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.DuplicateResourceException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.InvalidCursorException;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.ResourceNotFoundException;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.RoleRepository;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.UsersRepository;
@@ -13,6 +15,7 @@ import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Role;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.User;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.mappers.UsersMapper;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.UserService;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ExportWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,10 +24,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDateTime;
@@ -58,12 +65,49 @@ public class UsersController {
 
     /**
      * Lista los usuarios con paginación y ordenación usando Pageable estándar.
+     * <p>
+     * Si se envía {@code cursor} (vacío para la primera página) se usa paginación por cursor
+     * ordenada por email: sin {@code COUNT(*)} y con coste constante en páginas profundas.
+     * En ese caso el modelo recibe {@code cursorPage} en lugar de {@code page}.
+     * Con {@code approximate=true} el modelo recibe {@code estimatedPage}, con un total estimado
+     * a partir de las estadísticas de la tabla en lugar de un {@code COUNT(*)}.
+     * </p>
      */
     @GetMapping
     public String listUsers(
             @PageableDefault(size = 10, sort = "email", direction = Sort.Direction.ASC) Pageable pageable,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "approximate", defaultValue = "false") boolean approximate,
             Model model) {
 
+        if (cursor != null) {
+            logger.info("Listando usuarios por cursor size={}", pageable.getPageSize());
+            try {
+                CursorPageDTO<UsersDTO> cursorPage = userService.listByCursor(cursor, pageable.getPageSize());
+                logger.info("Se han cargado {} usuarios (hasNext={}).", cursorPage.getContent().size(), cursorPage.isHasNext());
+                model.addAttribute("cursorPage", cursorPage);
+            } catch (InvalidCursorException ex) {
+                logger.warn("Cursor de usuarios inválido: {}", ex.getMessage());
+                model.addAttribute("errorMessage", "Cursor de paginación inválido.");
+            } catch (Exception e) {
+                logger.error("Error al listar los usuarios por cursor: {}", e.getMessage(), e);
+                model.addAttribute("errorMessage", "Error al listar los usuarios.");
+            }
+            return "views/users/user-list";
+        }
+
+        if (approximate) {
+            logger.info("Listando usuarios en modo aproximado page={}, size={}",
+                    pageable.getPageNumber(), pageable.getPageSize());
+            try {
+                model.addAttribute("estimatedPage", userService.listApproximate(pageable));
+            } catch (Exception e) {
+                logger.error("Error al listar los usuarios en modo aproximado: {}", e.getMessage(), e);
+                model.addAttribute("errorMessage", "Error al listar los usuarios.");
+            }
+            return "views/users/user-list";
+        }
+
         logger.info("Listando usuarios page={}, size={}, sort={}",
                 pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort());
 
@@ -89,6 +133,36 @@ public class UsersController {
         return "views/users/user-list";
     }
 
+    /**
+     * Exporta todos los usuarios en NDJSON ({@code ?format=ndjson}, por defecto) o CSV ({@code ?format=csv}).
+     * <p>
+     * Las filas se leen de un cursor del servidor y se escriben directamente en la respuesta,
+     * así que la memoria usada no depende del tamaño de la tabla.
+     * </p>
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        ExportWriter.Format exportFormat = ExportWriter.Format.from(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        logger.info("Exportando usuarios en formato {}", exportFormat);
+
+        StreamingResponseBody body = out -> {
+            long rows = userService.export(exportFormat, out);
+            logger.info("Exportación de usuarios terminada: {} filas.", rows);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("users." + exportFormat.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
     @GetMapping("/new")
     public String showNewForm(Model model) {
         logger.info("Mostrando formulario para nuevo usuario.");
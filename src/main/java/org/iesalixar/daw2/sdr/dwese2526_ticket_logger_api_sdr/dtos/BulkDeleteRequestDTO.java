@@ -0,0 +1,21 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Cuerpo de los borrados masivos por id ({@code DELETE /api/regions}, {@code DELETE /provinces}).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeleteRequestDTO {
+
+    @NotEmpty(message = "{msg.bulk-delete.ids.notEmpty}")
+    private List<@NotNull(message = "{msg.bulk-delete.ids.notEmpty}") Long> ids;
+}
@@ -0,0 +1,31 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de un borrado masivo: qué ids se han eliminado y cuáles no existían.
+ */
+@Data
+@NoArgsConstructor
+public class BulkDeleteResultDTO {
+
+    /** Recurso borrado ("region", "province"). */
+    private String resource;
+
+    /** Ids eliminados. */
+    private List<Long> deleted = new ArrayList<>();
+
+    /** Ids pedidos que no existían (o ya se habían borrado). */
+    private List<Long> missing = new ArrayList<>();
+
+    /** Filas dependientes eliminadas en cascada (p. ej. provincias al borrar su región). */
+    private long cascaded;
+
+    public BulkDeleteResultDTO(String resource) {
+        this.resource = resource;
+    }
+}
@@ -0,0 +1,63 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Respuesta de un listado paginado por cursor (keyset).
+ * <p>
+ * A diferencia de {@code Page}, no lleva total ni número de página: no se ejecuta {@code COUNT(*)}
+ * y el coste de cada página no depende de lo "profunda" que sea.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+
+    /** Filas de la página. */
+    private List<T> content;
+
+
+    /** Tamaño de página solicitado. */
+    private int size;
+
+
+    /** Indica si hay más filas después de esta página. */
+    private boolean hasNext;
+
+
+    /** Cursor a enviar en {@code ?cursor=} para pedir la siguiente página; null si no hay más. */
+    private String nextCursor;
+
+
+    /**
+     * Construye la página a partir de una consulta que pidió {@code size + 1} filas:
+     * la fila sobrante solo indica que existe una página siguiente.
+     *
+     * @param rows          filas devueltas por la consulta (como mucho size + 1).
+     * @param size          tamaño de página.
+     * @param cursorForLast genera el cursor de la última fila servida.
+     */
+    public static <T> CursorPageDTO<T> of(List<T> rows, int size, Function<T, String> cursorForLast) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? List.copyOf(rows.subList(0, size)) : List.copyOf(rows);
+        String nextCursor = (hasNext && !content.isEmpty())
+                ? cursorForLast.apply(content.get(content.size() - 1))
+                : null;
+        return new CursorPageDTO<>(content, size, hasNext, nextCursor);
+    }
+
+
+    /**
+     * Devuelve la misma página (tamaño y cursor) con otro contenido, p.ej. tras convertir entidades a DTOs.
+     */
+    public <R> CursorPageDTO<R> withContent(List<R> newContent) {
+        return new CursorPageDTO<>(newContent, size, hasNext, nextCursor);
+    }
+}
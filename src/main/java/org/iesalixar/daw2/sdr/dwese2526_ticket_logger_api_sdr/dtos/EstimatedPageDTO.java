@@ -0,0 +1,58 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * Respuesta de un listado en modo aproximado ({@code ?approximate=true}).
+ * <p>
+ * Se comporta como un {@code Slice} (sabe si hay página siguiente sin contar) y añade un total
+ * estimado a partir de las estadísticas de la tabla, suficiente para pintar "≈ N resultados".
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstimatedPageDTO<T> {
+
+
+    /** Filas de la página. */
+    private List<T> content;
+
+
+    /** Número de página (empezando en 0). */
+    private int number;
+
+
+    /** Tamaño de página solicitado. */
+    private int size;
+
+
+    /** Indica si hay más filas después de esta página. */
+    private boolean hasNext;
+
+
+    /** Total estimado de filas (no exacto). */
+    private long estimatedTotal;
+
+
+    /**
+     * Construye la respuesta a partir de un slice y la estimación de la tabla.
+     * <p>
+     * La estimación se corrige al mínimo que el propio slice demuestra que existe, para que nunca
+     * quede por debajo de las filas ya vistas.
+     * </p>
+     */
+    public static <T> EstimatedPageDTO<T> of(Slice<T> slice, long estimatedTotal) {
+        long seen = slice.getPageable().isPaged()
+                ? slice.getPageable().getOffset() + slice.getNumberOfElements()
+                : slice.getNumberOfElements();
+        long atLeast = slice.hasNext() ? seen + 1 : seen;
+        long total = slice.hasNext() ? Math.max(estimatedTotal, atLeast) : atLeast;
+        return new EstimatedPageDTO<>(slice.getContent(), slice.getNumber(), slice.getSize(), slice.hasNext(), total);
+    }
+}
@@ -0,0 +1,69 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una importación masiva: contadores y errores por fila.
+ * <p>
+ * La lista de errores se limita a {@code maxErrors} entradas para que una entrada completamente
+ * errónea no genere una respuesta gigante; {@code errorsTruncated} indica que hubo más.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+public class ImportReportDTO {
+
+    /** Recurso importado ("region", "province"). */
+    private String resource;
+
+    /** Registros leídos de la entrada. */
+    private long processed;
+
+    /** Filas nuevas insertadas. */
+    private long inserted;
+
+    /** Filas existentes actualizadas (solo con onDuplicate=UPDATE). */
+    private long updated;
+
+    /** Filas existentes que se han dejado como estaban (onDuplicate=SKIP). */
+    private long skipped;
+
+    /** Filas rechazadas (validación, duplicadas en la entrada, región inexistente...). */
+    private long failed;
+
+    /** True si la lectura se detuvo antes del final por un error de formato. */
+    private boolean aborted;
+
+    /** Errores por fila. */
+    private List<ImportRowErrorDTO> errors = new ArrayList<>();
+
+    /** True si hubo más errores de los que se devuelven. */
+    private boolean errorsTruncated;
+
+    @JsonIgnore
+    private int maxErrors;
+
+
+    public ImportReportDTO(String resource, int maxErrors) {
+        this.resource = resource;
+        this.maxErrors = maxErrors;
+    }
+
+
+    /**
+     * Anota una fila rechazada.
+     */
+    public void reject(long row, String code, String field, String message) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(new ImportRowErrorDTO(row, code, field, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Error de una fila concreta de una importación masiva.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowErrorDTO {
+
+    /** Posición del registro en la entrada (1 = primer registro de datos). */
+    private long row;
+
+    /** Código del registro, si se pudo leer. */
+    private String code;
+
+    /** Campo que causó el error (null si afecta a la fila completa). */
+    private String field;
+
+    /** Descripción del error. */
+    private String message;
+}
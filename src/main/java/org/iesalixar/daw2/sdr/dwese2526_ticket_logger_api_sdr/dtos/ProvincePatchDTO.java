@@ -0,0 +1,65 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Cuerpo de {@code PATCH /provinces/{id}} (JSON Merge Patch, RFC 7396).
+ * <p>
+ * Igual que {@link RegionPatchDTO}: solo cuentan los campos presentes y ninguno admite {@code null}.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+public class ProvincePatchDTO {
+
+    @Pattern(regexp = "(?s).*\\S.*", message = "{msg.province.code.notEmpty}")
+    @Size(max = 2, message = "{msg.province.code.size}")
+    private String code;
+
+    @Pattern(regexp = "(?s).*\\S.*", message = "{msg.province.name.notEmpty}")
+    @Size(max = 100, message = "{msg.province.name.size}")
+    private String name;
+
+    private Long regionId;
+
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private Set<String> presentFields = new LinkedHashSet<>();
+
+    public void setCode(String code) {
+        this.code = code;
+        presentFields.add("code");
+    }
+
+    public void setName(String name) {
+        this.name = name;
+        presentFields.add("name");
+    }
+
+    public void setRegionId(Long regionId) {
+        this.regionId = regionId;
+        presentFields.add("regionId");
+    }
+
+    public boolean has(String field) {
+        return presentFields.contains(field);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "{msg.patch.nullNotAllowed}")
+    public boolean isWithoutNullFields() {
+        return !(has("code") && code == null)
+                && !(has("name") && name == null)
+                && !(has("regionId") && regionId == null);
+    }
+}
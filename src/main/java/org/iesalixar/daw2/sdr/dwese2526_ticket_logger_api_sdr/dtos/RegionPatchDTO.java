@@ -0,0 +1,58 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Cuerpo de {@code PATCH /api/regions/{id}} (JSON Merge Patch, RFC 7396).
+ * <p>
+ * Solo se actualizan los campos presentes en el JSON; los setters registran cuáles han llegado para
+ * distinguir "ausente" de "null". Como las columnas son NOT NULL, un campo enviado a {@code null}
+ * (borrarlo según merge patch) es un error de validación.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+public class RegionPatchDTO {
+
+    @Pattern(regexp = "(?s).*\\S.*", message = "{msg.region.code.notEmpty}")
+    @Size(max = 2, message = "{msg.region.code.size}")
+    private String code;
+
+    @Pattern(regexp = "(?s).*\\S.*", message = "{msg.region.name.notEmpty}")
+    @Size(max = 100, message = "{msg.region.name.size}")
+    private String name;
+
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private Set<String> presentFields = new LinkedHashSet<>();
+
+    public void setCode(String code) {
+        this.code = code;
+        presentFields.add("code");
+    }
+
+    public void setName(String name) {
+        this.name = name;
+        presentFields.add("name");
+    }
+
+    public boolean has(String field) {
+        return presentFields.contains(field);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "{msg.patch.nullNotAllowed}")
+    public boolean isWithoutNullFields() {
+        return !(has("code") && code == null) && !(has("name") && name == null);
+    }
+}
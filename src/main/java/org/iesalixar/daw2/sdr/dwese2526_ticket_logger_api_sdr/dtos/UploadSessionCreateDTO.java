@@ -0,0 +1,33 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cuerpo de {@code POST /api/uploads/sessions}: abre una subida reanudable.
+ * <p>
+ * El cliente declara de antemano el tamaño total y el SHA-256 del fichero; al finalizar se comprueba que
+ * lo recibido coincide con ambos antes de guardarlo.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionCreateDTO {
+
+    @NotNull(message = "{msg.upload.length.notNull}")
+    @Positive(message = "{msg.upload.length.positive}")
+    private Long length;
+
+    @NotNull(message = "{msg.upload.sha256.pattern}")
+    @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "{msg.upload.sha256.pattern}")
+    private String sha256;
+
+    /** Extensión del fichero sin punto ("pdf", "png"...); opcional. */
+    @Pattern(regexp = "^[A-Za-z0-9]{1,10}$", message = "{msg.upload.extension.pattern}")
+    private String extension;
+}
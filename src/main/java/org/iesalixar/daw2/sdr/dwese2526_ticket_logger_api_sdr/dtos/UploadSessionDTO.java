@@ -0,0 +1,30 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Estado de una subida reanudable.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDTO {
+
+    private String id;
+
+    /** Tamaño total declarado al abrir la sesión. */
+    private long length;
+
+    /** Bytes recibidos de forma contigua desde el inicio: el siguiente trozo debe empezar aquí. */
+    private long offset;
+
+    /** Momento a partir del cual se descarta la sesión si no recibe más trozos. */
+    private Instant expiresAt;
+
+    /** Ruta web del fichero guardado ({@code /uploads/<nombre>}); solo tras finalizar. */
+    private String path;
+}
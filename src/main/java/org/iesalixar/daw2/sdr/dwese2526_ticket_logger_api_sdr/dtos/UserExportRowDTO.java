@@ -0,0 +1,41 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila de la consulta de exportación de usuarios: datos del usuario y uno de sus roles.
+ * <p>
+ * Un usuario con varios roles aparece en varias filas consecutivas (la consulta ordena por id),
+ * de modo que la exportación los agrupa sin volver a la BD.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserExportRowDTO {
+
+    private Long id;
+
+    private String email;
+
+    private boolean active;
+
+    private boolean accountNonLocked;
+
+    private LocalDateTime lastPasswordChange;
+
+    private LocalDateTime passwordExpiresAt;
+
+    private Integer failedLoginAttempts;
+
+    private boolean emailVerified;
+
+    private boolean mustChangePassword;
+
+    /** Nombre de un rol del usuario (null si no tiene roles). */
+    private String roleName;
+}
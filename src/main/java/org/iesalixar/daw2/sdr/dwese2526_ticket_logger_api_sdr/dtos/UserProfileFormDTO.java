@@ -30,6 +30,13 @@ public class UserProfileFormDTO {
     @Size(max = 255, message = "{msg.userProfile.profileImage.size}")
     private String profileImage;
 
+    // Miniaturas (solo lectura: las genera el servidor); si son null se usa profileImage
+    private String profileImageSmall;
+
+    private String profileImageMedium;
+
+    private String profileImageLarge;
+
     @Size(max = 500, message = "{msg.userProfile.bio.size}")
     private String bio;
 
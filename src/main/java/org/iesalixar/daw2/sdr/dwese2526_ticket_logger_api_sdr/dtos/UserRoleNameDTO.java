@@ -0,0 +1,18 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Par (usuario, nombre de rol) devuelto por la carga por lotes de roles de un listado.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserRoleNameDTO {
+
+    private Long userId;
+
+    private String roleName;
+}
@@ -17,9 +17,10 @@ public class PasswordResetToken {
 
 
 
-    /** Identificador único del token de recuperación (PK autoincremental). */
+    /** Identificador único del token de recuperación (secuencia password_reset_tokens_seq). */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "password_reset_tokens_seq")
+    @SequenceGenerator(name = "password_reset_tokens_seq", sequenceName = "password_reset_tokens_seq", allocationSize = 50)
     private Long id;
 
 
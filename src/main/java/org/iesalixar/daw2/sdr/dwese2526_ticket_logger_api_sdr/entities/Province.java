@@ -8,6 +8,11 @@ import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.SecondLevelCacheConfig;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.UniqueConstraintTranslator;
 
 /**
  * La clase {@code Province} representa una provincia dentro del sistema.
@@ -29,12 +34,17 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "provinces")
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.PROVINCE_CACHE)
+@Table(name = "provinces",
+        uniqueConstraints = @UniqueConstraint(name = UniqueConstraintTranslator.PROVINCE_CODE, columnNames = "code"))
 public class Province {
 
-    // Identificador único de la provincia (AUTO_INCREMENT en la tabla 'provinces').
+    // Identificador único de la provincia (secuencia provinces_seq, reservada en bloques de 50).
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "provinces_seq")
+    @SequenceGenerator(name = "provinces_seq", sequenceName = "provinces_seq", allocationSize = 50)
     private Long id;
 
     // Código único de la provincia (VARCHAR(10) NOT NULL UNIQUE).
@@ -4,6 +4,11 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.SecondLevelCacheConfig;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.UniqueConstraintTranslator;
 
 import java.sql.Array;
 import java.util.ArrayList;
@@ -13,11 +18,17 @@ import java.util.List;
 @NoArgsConstructor
 @Data
 @Entity
-@Table(name="regions")
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.REGION_CACHE)
+@Table(name="regions",
+        uniqueConstraints = @UniqueConstraint(name = UniqueConstraintTranslator.REGION_CODE, columnNames = "code"))
 public class Region {
 
+    // Asignado de la secuencia regions_seq en bloques de 50: Hibernate no necesita un INSERT inmediato por fila.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "regions_seq")
+    @SequenceGenerator(name = "regions_seq", sequenceName = "regions_seq", allocationSize = 50)
     private Long id;
 
 
@@ -35,6 +46,7 @@ public class Region {
     )
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.REGION_PROVINCES_CACHE)
     private List<Province> provinces = new ArrayList<>();
 
 
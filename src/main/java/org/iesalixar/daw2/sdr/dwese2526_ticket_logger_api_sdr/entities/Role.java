@@ -2,6 +2,10 @@ package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.SecondLevelCacheConfig;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.RoleChangeListener;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -15,6 +19,9 @@ import java.util.Set;
 @EqualsAndHashCode(exclude = "users")
 @ToString(exclude = "users")
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = SecondLevelCacheConfig.ROLE_CACHE)
+@EntityListeners(RoleChangeListener.class)
 @Table(name = "roles")
 public class Role {
 
@@ -2,6 +2,7 @@ package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.UniqueConstraintTranslator;
 
 import javax.swing.text.StyledEditorKit;
 import java.time.LocalDateTime;
@@ -16,18 +17,20 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "users")
+@Table(name = "users",
+        uniqueConstraints = @UniqueConstraint(name = UniqueConstraintTranslator.USER_EMAIL, columnNames = "email"))
 public class User {
 
 
-    /** BIGINT AUTO_INCREMENT PRIMARY KEY */
+    /** BIGINT PRIMARY KEY, asignado de la secuencia users_seq en bloques de 50 (permite INSERT por lotes) */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
 
     /** VARCHAR(100) NOT NULL UNIQUE */
-    @Column(name = "email", nullable = false, unique = true, length = 40)
+    @Column(name = "email", nullable = false, length = 40)
     private String email;
 
 
@@ -37,6 +37,16 @@ public class UserProfile {
     @Column(name = "profile_image", length = 255)
     private String profileImage;
 
+    // Miniaturas de profile_image (48, 128 y 512 px) generadas en segundo plano; null mientras no estén listas
+    @Column(name = "profile_image_small", length = 255)
+    private String profileImageSmall;
+
+    @Column(name = "profile_image_medium", length = 255)
+    private String profileImageMedium;
+
+    @Column(name = "profile_image_large", length = 255)
+    private String profileImageLarge;
+
     @Column(name = "bio", length = 500)
     private String bio;
 
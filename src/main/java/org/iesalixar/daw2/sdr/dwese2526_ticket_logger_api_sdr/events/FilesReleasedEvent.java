@@ -0,0 +1,20 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events;
+
+import java.util.List;
+
+/**
+ * Evento publicado cuando unos ficheros subidos dejan de usarse (p. ej. la imagen de perfil anterior
+ * y sus miniaturas).
+ * <p>
+ * Lo consume {@code ReleasedFileCleaner} tras el commit: si la transacción se deshace, los ficheros
+ * siguen referenciados y no se tocan.
+ * </p>
+ *
+ * @param paths rutas web de los ficheros ({@code /uploads/...}).
+ */
+public record FilesReleasedEvent(List<String> paths) {
+
+    public FilesReleasedEvent {
+        paths = List.copyOf(paths);
+    }
+}
@@ -0,0 +1,13 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events;
+
+/**
+ * Evento publicado por {@code UserProfileServiceImpl} cuando un perfil pasa a tener una imagen nueva.
+ * <p>
+ * Lo consume {@code ThumbnailServiceImpl} tras el commit para generar las miniaturas en segundo plano.
+ * </p>
+ *
+ * @param userId    id del usuario (y del perfil).
+ * @param imagePath ruta web de la imagen original ({@code /uploads/...}).
+ */
+public record ProfileImageUploadedEvent(Long userId, String imagePath) {
+}
@@ -0,0 +1,66 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Evento publicado por los servicios cuando crean, modifican o eliminan filas de un recurso.
+ * <p>
+ * Los componentes que mantienen información derivada (contadores, cachés...) lo escuchan con
+ * {@code @TransactionalEventListener}, de modo que solo reaccionan si la transacción hace commit.
+ * </p>
+ */
+@Getter
+@ToString
+public class ResourceChangedEvent {
+
+    /** Tipo de cambio realizado. */
+    public enum ChangeType { CREATED, UPDATED, DELETED }
+
+
+    /** Recurso afectado (ej. "region", "province", "user"). */
+    private final String resource;
+
+
+    /** Tipo de cambio. */
+    private final ChangeType type;
+
+
+    /** Ids afectados (puede estar vacío si no se conocen, p.ej. en inserciones masivas). */
+    private final List<Long> ids;
+
+
+    /** Número de filas afectadas. */
+    private final int count;
+
+
+    public ResourceChangedEvent(String resource, ChangeType type, Collection<Long> ids) {
+        this(resource, type, ids, ids.size());
+    }
+
+    public ResourceChangedEvent(String resource, ChangeType type, Collection<Long> ids, int count) {
+        this.resource = resource;
+        this.type = type;
+        this.ids = List.copyOf(ids);
+        this.count = count;
+    }
+
+    public static ResourceChangedEvent created(String resource, Long id) {
+        return new ResourceChangedEvent(resource, ChangeType.CREATED, List.of(id));
+    }
+
+    public static ResourceChangedEvent updated(String resource, Long id) {
+        return new ResourceChangedEvent(resource, ChangeType.UPDATED, List.of(id));
+    }
+
+    public static ResourceChangedEvent deleted(String resource, Long id) {
+        return new ResourceChangedEvent(resource, ChangeType.DELETED, List.of(id));
+    }
+
+    public static ResourceChangedEvent deleted(String resource, Collection<Long> ids) {
+        return new ResourceChangedEvent(resource, ChangeType.DELETED, ids);
+    }
+}
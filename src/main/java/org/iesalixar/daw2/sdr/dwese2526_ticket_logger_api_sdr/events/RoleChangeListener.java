@@ -0,0 +1,38 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Role;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Listener JPA de {@link Role}: publica un {@link ResourceChangedEvent} del recurso {@code "role"} cuando
+ * se inserta, modifica o elimina un rol por cualquier vía que pase por JPA.
+ * <p>
+ * Hibernate lo instancia a través del contenedor de beans de Spring. Quien mantenga datos derivados de los
+ * roles (p.ej. {@code RoleRegistry}) escucha el evento tras el commit, así que la entidad no depende de
+ * ningún servicio.
+ * </p>
+ */
+public class RoleChangeListener {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    public void onRoleCreated(Role role) {
+        eventPublisher.publishEvent(ResourceChangedEvent.created("role", role.getId()));
+    }
+
+    @PostUpdate
+    public void onRoleUpdated(Role role) {
+        eventPublisher.publishEvent(ResourceChangedEvent.updated("role", role.getId()));
+    }
+
+    @PostRemove
+    public void onRoleRemoved(Role role) {
+        eventPublisher.publishEvent(ResourceChangedEvent.deleted("role", role.getId()));
+    }
+}
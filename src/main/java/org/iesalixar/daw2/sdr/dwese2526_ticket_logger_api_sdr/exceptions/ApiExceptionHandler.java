@@ -2,7 +2,12 @@ package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions;
 
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.UniqueConstraintTranslator;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ApiErrorDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.ResumableUploadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -22,6 +27,10 @@ import java.util.Map;
 public class ApiExceptionHandler {
 
 
+    @Autowired
+    private UniqueConstraintTranslator uniqueConstraintTranslator;
+
+
     /**
      * Recurso no encontrado -> 404 Not Found.
      */
@@ -66,6 +75,56 @@ public class ApiExceptionHandler {
     }
 
 
+    /**
+     * Trozo de subida reanudable fuera de sitio -> 409 Conflict, con el offset confirmado en
+     * {@code Upload-Offset} para que el cliente continúe desde ahí.
+     */
+    @ExceptionHandler(UploadOffsetMismatchException.class)
+    public ResponseEntity<ApiErrorDTO> handleUploadOffsetMismatch(UploadOffsetMismatchException ex, HttpServletRequest req) {
+
+
+        ApiErrorDTO body = ApiErrorDTO.withContext(
+                HttpStatus.CONFLICT.value(),
+                HttpStatus.CONFLICT.getReasonPhrase(),
+                ex.getMessage(),
+                req.getRequestURI(),
+                ex.getResource(),
+                ex.getField(),
+                ex.getValue()
+        );
+
+
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(ResumableUploadService.UPLOAD_OFFSET_HEADER, Long.toString(ex.getCommittedOffset()))
+                .body(body);
+    }
+
+
+    /**
+     * Cuerpo mayor que el máximo admitido (detectado al leerlo) -> 413 Content Too Large. El resto del
+     * cuerpo no se lee, así que se cierra la conexión.
+     */
+    @ExceptionHandler(ContentTooLargeException.class)
+    public ResponseEntity<ApiErrorDTO> handleContentTooLarge(ContentTooLargeException ex, HttpServletRequest req) {
+
+
+        ApiErrorDTO body = ApiErrorDTO.withContext(
+                HttpStatus.CONTENT_TOO_LARGE.value(),
+                HttpStatus.CONTENT_TOO_LARGE.getReasonPhrase(),
+                ex.getMessage(),
+                req.getRequestURI(),
+                ex.getResource(),
+                ex.getField(),
+                ex.getValue()
+        );
+
+
+        return ResponseEntity.status(HttpStatus.CONTENT_TOO_LARGE)
+                .header(HttpHeaders.CONNECTION, "close")
+                .body(body);
+    }
+
+
     /**
      * Fichero inválido -> 400 Bad Request.
      */
@@ -88,6 +147,28 @@ public class ApiExceptionHandler {
     }
 
 
+    /**
+     * Cursor de paginación manipulado, caducado o de otro listado -> 400 Bad Request.
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ApiErrorDTO> handleInvalidCursor(InvalidCursorException ex, HttpServletRequest req) {
+
+
+        ApiErrorDTO body = ApiErrorDTO.withContext(
+                HttpStatus.BAD_REQUEST.value(),
+                HttpStatus.BAD_REQUEST.getReasonPhrase(),
+                ex.getMessage(),
+                req.getRequestURI(),
+                ex.getResource(),
+                ex.getField(),
+                ex.getValue()
+        );
+
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+    }
+
+
     /**
      * Errores de validación de @Valid -> 400 Bad Request con errores por campo.
      */
@@ -128,6 +209,20 @@ public class ApiExceptionHandler {
     }
 
 
+    /**
+     * Violación de integridad que no ha pasado por un repositorio (p. ej. detectada al hacer commit): si es un
+     * índice UNIQUE -> 409 Conflict como {@link DuplicateResourceException}; si no, error no controlado.
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ApiErrorDTO> handleIntegrityViolation(DataIntegrityViolationException ex, HttpServletRequest req) {
+        DuplicateResourceException duplicate = uniqueConstraintTranslator.translate(ex);
+        if (duplicate != null) {
+            return handleDuplicate(duplicate, req);
+        }
+        return handleGeneric(ex, req);
+    }
+
+
     /**
      * Cualquier error no controlado -> 500 Internal Server Error.
      */
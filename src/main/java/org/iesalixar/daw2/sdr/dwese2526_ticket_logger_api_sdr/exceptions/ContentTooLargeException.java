@@ -0,0 +1,26 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions;
+
+import lombok.Getter;
+
+/**
+ * El cuerpo de la petición supera el máximo admitido. Se lanza al leerlo, cuando el tamaño no se conocía
+ * de antemano (sin {@code Content-Length}, p.ej. con {@code Transfer-Encoding: chunked}).
+ */
+@Getter
+public class ContentTooLargeException extends RuntimeException {
+
+    private final String resource;
+
+    private final String field;
+
+    /** Máximo de bytes admitido. */
+    private final Object value;
+
+
+    public ContentTooLargeException(String resource, String field, Object value){
+        super("Content too large for " + resource + " (" + field + " > " + value + ")");
+        this.resource = resource;
+        this.field = field;
+        this.value = value;
+    }
+}
@@ -1,9 +1,14 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions;
 
 import lombok.Getter;
+import org.springframework.dao.DuplicateKeyException;
 
+/**
+ * Escritura rechazada por un índice UNIQUE. Es una {@link DuplicateKeyException} para que los repositorios
+ * la lancen directamente al traducir la violación (ver {@code UniqueConstraintTranslator}).
+ */
 @Getter
-public class DuplicateResourceException extends RuntimeException{
+public class DuplicateResourceException extends DuplicateKeyException {
 
     private final String resource;
 
@@ -13,7 +18,11 @@ public class DuplicateResourceException extends RuntimeException{
 
 
     public DuplicateResourceException(String resource, String field, Object value){
-        super("Duplicate" + resource + "(" + field + " = " + ")");
+        this(resource, field, value, null);
+    }
+
+    public DuplicateResourceException(String resource, String field, Object value, Throwable cause){
+        super("Duplicate" + resource + "(" + field + " = " + ")", cause);
         this.resource = resource;
         this.field = field;
         this.value = value;
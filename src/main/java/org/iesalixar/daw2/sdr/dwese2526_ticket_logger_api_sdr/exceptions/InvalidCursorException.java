@@ -0,0 +1,21 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class InvalidCursorException extends RuntimeException {
+
+    private final String resource;
+
+    private final String field;
+
+    private final Object value;
+
+
+    public InvalidCursorException(String resource, String field, Object value){
+        super("Invalid cursor for " + resource + " (" + field + ")");
+        this.resource = resource;
+        this.field = field;
+        this.value = value;
+    }
+}
@@ -0,0 +1,30 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions;
+
+import lombok.Getter;
+
+/**
+ * El trozo de una subida reanudable no encaja con lo ya recibido (empieza más allá del offset confirmado,
+ * o la subida está incompleta al finalizar), o hay otro trozo de la misma sesión en curso.
+ * El cliente debe consultar el offset y continuar desde ahí.
+ */
+@Getter
+public class UploadOffsetMismatchException extends RuntimeException {
+
+    private final String resource;
+
+    private final String field;
+
+    private final Object value;
+
+    /** Offset confirmado en el servidor en el momento del error. */
+    private final long committedOffset;
+
+
+    public UploadOffsetMismatchException(String resource, String field, Object value, long committedOffset){
+        super("Offset mismatch for " + resource + " (" + field + " = " + value + ", committed = " + committedOffset + ")");
+        this.resource = resource;
+        this.field = field;
+        this.value = value;
+        this.committedOffset = committedOffset;
+    }
+}
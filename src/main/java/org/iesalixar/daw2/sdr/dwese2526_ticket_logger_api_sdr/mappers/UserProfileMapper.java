@@ -18,6 +18,9 @@ public class UserProfileMapper {
             dto.setLastName(profile.getLastName());
             dto.setPhoneNumber(profile.getPhoneNumber());
             dto.setProfileImage(profile.getProfileImage());
+            dto.setProfileImageSmall(profile.getProfileImageSmall());
+            dto.setProfileImageMedium(profile.getProfileImageMedium());
+            dto.setProfileImageLarge(profile.getProfileImageLarge());
             dto.setBio(profile.getBio());
             dto.setLocale(profile.getLocale());
         }
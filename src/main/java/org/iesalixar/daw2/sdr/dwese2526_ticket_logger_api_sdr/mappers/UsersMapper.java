@@ -1,5 +1,6 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.mappers;
 
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UserExportRowDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UsersCreateDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UsersDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UsersDetailDTO;
@@ -11,6 +12,7 @@ import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.UserProfi
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 /**
@@ -32,6 +34,30 @@ public class UsersMapper {
         if (entity == null) return null;
 
 
+        // ────────────────────────────────
+        // Cargar roles si existen
+        // ────────────────────────────────
+        Set<String> roleNames = new HashSet<>();
+        if (entity.getRoles() != null && !entity.getRoles().isEmpty()) {
+            roleNames = entity.getRoles().stream()
+                    .map(Role::getName) // o Role::getDisplayName si prefieres
+                    .collect(Collectors.toSet());
+        }
+        return toDTO(entity, roleNames);
+    }
+
+
+    /**
+     * Convierte una entidad {@link User} a {@link UsersDTO} usando unos nombres de rol ya resueltos.
+     * <p>
+     * No accede a {@code entity.getRoles()}, por lo que no inicializa la colección LAZY.
+     * Pensado para listados donde los roles se cargan por lotes.
+     * </p>
+     */
+    public static UsersDTO toDTO(User entity, Set<String> roleNames) {
+        if (entity == null) return null;
+
+
         UsersDTO dto = new UsersDTO();
         dto.setId(entity.getId());
         dto.setEmail(entity.getEmail());
@@ -43,19 +69,32 @@ public class UsersMapper {
         dto.setFailedLoginAttempts(entity.getFailedLoginAttempts());
         dto.setEmailVerified(entity.isEmailVerified());
         dto.setMustChangePassword(entity.isMustChangePassword());
+        dto.setRoles(roleNames != null ? roleNames : new HashSet<>());
 
 
-        // ────────────────────────────────
-        // Cargar roles si existen
-        // ────────────────────────────────
-        if (entity.getRoles() != null && !entity.getRoles().isEmpty()) {
-            Set<String> roleNames = entity.getRoles().stream()
-                    .map(Role::getName) // o Role::getDisplayName si prefieres
-                    .collect(Collectors.toSet());
-            dto.setRoles(roleNames);
-        } else {
-            dto.setRoles(new HashSet<>());
-        }
+        return dto;
+    }
+
+
+    /**
+     * Convierte una fila de exportación a {@link UsersDTO} con los roles vacíos (se van añadiendo
+     * al recorrer las filas siguientes del mismo usuario).
+     */
+    public static UsersDTO toDTO(UserExportRowDTO row) {
+        if (row == null) return null;
+
+
+        UsersDTO dto = new UsersDTO();
+        dto.setId(row.getId());
+        dto.setEmail(row.getEmail());
+        dto.setActive(row.isActive());
+        dto.setAccountNonLocked(row.isAccountNonLocked());
+        dto.setLastPasswordChange(row.getLastPasswordChange());
+        dto.setPasswordExpiresAt(row.getPasswordExpiresAt());
+        dto.setFailedLoginAttempts(row.getFailedLoginAttempts());
+        dto.setEmailVerified(row.isEmailVerified());
+        dto.setMustChangePassword(row.isMustChangePassword());
+        dto.setRoles(new TreeSet<>());
 
 
         return dto;
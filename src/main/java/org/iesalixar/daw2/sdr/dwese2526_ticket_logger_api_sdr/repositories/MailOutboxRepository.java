@@ -0,0 +1,155 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bandeja de salida de emails ({@code mail_outbox}).
+ * <p>
+ * {@link #enqueue} se une a la transacción del llamante: el email solo existe si la operación que lo
+ * genera hace commit. El resto de operaciones las usa {@code MailOutboxDispatcher} y son sentencias
+ * atómicas independientes. Todas las fechas se calculan con el reloj de la BD ({@code NOW(6)}), así
+ * que varios nodos pueden vaciar la misma bandeja sin depender de tener los relojes sincronizados.
+ * </p>
+ */
+@Repository
+public class MailOutboxRepository {
+
+    /** Estados de un mensaje (columna {@code status}). */
+    public enum Status { PENDING, SENDING, SENT, DEAD }
+
+    /** Mensaje reclamado para enviarlo; {@code attempts} ya incluye el intento en curso. */
+    public record OutboxMessage(long id, String recipient, String subject, String body, boolean html, int attempts) {
+    }
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Añade un mensaje pendiente, listo para enviarse en cuanto se confirme la transacción en curso.
+     */
+    public void enqueue(String recipient, String subject, String body, boolean html) {
+        jdbcTemplate.update(
+                "INSERT INTO mail_outbox (recipient, subject, body, html, status, attempts, next_attempt_at, created_at) " +
+                        "VALUES (?, ?, ?, ?, 'PENDING', 0, NOW(6), NOW(6))",
+                recipient, subject, body, html);
+    }
+
+    /**
+     * Pasa a DEAD los mensajes en envío cuya reserva ha vencido y ya han agotado sus intentos: el envío
+     * que los reclamó no llegó a registrar el resultado (caída del nodo o error inesperado) y no se
+     * deben volver a reclamar indefinidamente.
+     *
+     * @return mensajes descartados.
+     */
+    public int markExpiredLeasesDead(int maxAttempts) {
+        return jdbcTemplate.update(
+                "UPDATE mail_outbox SET status = 'DEAD', " +
+                        "last_error = COALESCE(last_error, 'Reserva vencida sin resultado tras agotar los intentos') " +
+                        "WHERE status = 'SENDING' AND next_attempt_at <= NOW(6) AND attempts >= ?",
+                maxAttempts);
+    }
+
+    /**
+     * Reclama hasta {@code limit} mensajes cuyo turno ha llegado: pendientes, o en envío con la reserva
+     * vencida (el nodo que los tenía se ha caído a mitad) y con intentos por delante. Cada uno pasa a
+     * SENDING con una reserva de {@code lease}; el {@code UPDATE} condicionado garantiza que dos nodos no
+     * reclaman el mismo mensaje.
+     */
+    public List<OutboxMessage> claimDue(int limit, Duration lease, int maxAttempts) {
+        List<Long> candidates = jdbcTemplate.queryForList(
+                "SELECT id FROM mail_outbox WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= NOW(6) " +
+                        "AND attempts < ? ORDER BY next_attempt_at LIMIT ?",
+                Long.class, maxAttempts, limit);
+        List<Long> claimed = new ArrayList<>(candidates.size());
+        for (Long id : candidates) {
+            int updated = jdbcTemplate.update(
+                    "UPDATE mail_outbox SET status = 'SENDING', attempts = attempts + 1, " +
+                            "next_attempt_at = NOW(6) + INTERVAL ? MICROSECOND " +
+                            "WHERE id = ? AND status IN ('PENDING', 'SENDING') AND next_attempt_at <= NOW(6) AND attempts < ?",
+                    toMicros(lease), id, maxAttempts);
+            if (updated == 1) {
+                claimed.add(id);
+            }
+        }
+        if (claimed.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(claimed.size(), "?"));
+        return jdbcTemplate.query(
+                "SELECT id, recipient, subject, body, html, attempts FROM mail_outbox WHERE id IN (" + placeholders + ") " +
+                        "ORDER BY id",
+                (rs, rowNum) -> new OutboxMessage(rs.getLong("id"), rs.getString("recipient"), rs.getString("subject"),
+                        rs.getString("body"), rs.getBoolean("html"), rs.getInt("attempts")),
+                claimed.toArray());
+    }
+
+    public void markSent(long id) {
+        jdbcTemplate.update(
+                "UPDATE mail_outbox SET status = 'SENT', sent_at = NOW(6), last_error = NULL WHERE id = ?", id);
+    }
+
+    /**
+     * Devuelve el mensaje a pendiente para reintentarlo pasado {@code delay}.
+     */
+    public void markRetry(long id, Duration delay, String error) {
+        jdbcTemplate.update(
+                "UPDATE mail_outbox SET status = 'PENDING', next_attempt_at = NOW(6) + INTERVAL ? MICROSECOND, " +
+                        "last_error = ? WHERE id = ?",
+                toMicros(delay), truncate(error), id);
+    }
+
+    /**
+     * Deja el mensaje como no entregable (DEAD): no se vuelve a intentar.
+     */
+    public void markDead(long id, String error) {
+        jdbcTemplate.update(
+                "UPDATE mail_outbox SET status = 'DEAD', last_error = ? WHERE id = ?", truncate(error), id);
+    }
+
+    /**
+     * Número de mensajes por estado (los estados sin mensajes aparecen con 0).
+     */
+    public Map<Status, Long> countByStatus() {
+        Map<Status, Long> counts = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            counts.put(status, 0L);
+        }
+        jdbcTemplate.query("SELECT status, COUNT(*) AS total FROM mail_outbox GROUP BY status", rs -> {
+            counts.put(Status.valueOf(rs.getString("status")), rs.getLong("total"));
+        });
+        return counts;
+    }
+
+    /**
+     * Borra hasta {@code limit} mensajes enviados hace más de {@code retention}.
+     *
+     * @return mensajes borrados.
+     */
+    public int deleteSentBefore(Duration retention, int limit) {
+        return jdbcTemplate.update(
+                "DELETE FROM mail_outbox WHERE status = 'SENT' AND sent_at < NOW(6) - INTERVAL ? MICROSECOND LIMIT ?",
+                toMicros(retention), limit);
+    }
+
+    private static long toMicros(Duration duration) {
+        return duration.toNanos() / 1000;
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,57 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.stereotype.Repository;
+
+import java.util.Map;
+
+/**
+ * Actualizaciones parciales por id con {@code CriteriaUpdate}.
+ * <p>
+ * Genera un único {@code UPDATE tabla SET col = ? ... WHERE id = ?} con solo las columnas recibidas,
+ * sin cargar antes la entidad (no hay SELECT previo ni read-modify-write). Hibernate invalida por su
+ * cuenta las regiones de la caché de segundo nivel afectadas por la sentencia.
+ * </p>
+ * <p>
+ * Al ser un {@code @Repository}, las violaciones de integridad llegan traducidas (un índice UNIQUE,
+ * a {@code DuplicateResourceException}; ver {@code UniqueConstraintTranslator}).
+ * </p>
+ */
+@Repository
+public class PartialUpdateRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Actualiza solo los atributos indicados de la entidad con ese id.
+     *
+     * @param entityClass entidad a actualizar.
+     * @param id          clave primaria.
+     * @param changes     atributo de la entidad -> nuevo valor (para asociaciones, una referencia
+     *                    obtenida con {@link #reference(Class, Object)}).
+     * @return filas actualizadas (0 si el id no existe).
+     */
+    public <T> int updateById(Class<T> entityClass, Object id, Map<String, Object> changes) {
+        if (changes.isEmpty()) {
+            throw new IllegalArgumentException("No hay atributos que actualizar");
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = cb.createCriteriaUpdate(entityClass);
+        Root<T> root = update.from(entityClass);
+        changes.forEach(update::set);
+        update.where(cb.equal(root.get("id"), id));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    /**
+     * Referencia a una entidad por id sin consultarla, para asignar claves foráneas en {@link #updateById}.
+     */
+    public <T> T reference(Class<T> entityClass, Object id) {
+        return entityManager.getReference(entityClass, id);
+    }
+}
@@ -1,24 +1,112 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.SecondLevelCacheConfig;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ProvinceDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ProvinceDetailDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Province;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProvinceRepository extends JpaRepository<Province, Long> {
 
 
-    boolean existsByCode(String code);
-    boolean existsByCodeAndIdNot(String code, Long id);
     @Override
     Optional<Province> findById(Long id);
     @Query("SELECT p FROM Province p LEFT JOIN FETCH p.region WHERE p.id = :id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.REFERENCE_QUERY_CACHE)
+    })
     Optional<Province> findByIdWithRegion(@Param("id")Long id);
 
+    /**
+     * Todas las provincias con su región en una sola consulta (carga de la instantánea de referencia).
+     */
+    @Query("SELECT p FROM Province p JOIN FETCH p.region")
+    List<Province> findAllWithRegion();
 
+    /**
+     * Listado paginado de provincias proyectado directamente a {@link ProvinceDTO}, sin {@code COUNT(*)}:
+     * el total lo aporta la caché de conteos o una estimación.
+     * <p>
+     * La región se resuelve con un JOIN en la misma consulta, por lo que no se dispara
+     * un SELECT adicional por cada región al mapear la página.
+     * </p>
+     *
+     * @param pageable página y ordenación solicitadas (propiedades de {@link Province}).
+     * @return porción de provincias con el nombre de su región.
+     */
+    @Query("SELECT new org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ProvinceDTO(p.id, p.code, p.name, r.name) " +
+            "FROM Province p JOIN p.region r")
+    Slice<ProvinceDTO> findSliceAsDTO(Pageable pageable);
 
+    /**
+     * Primera página del listado por cursor (orden estable por nombre e id), ya proyectada a DTO.
+     */
+    @Query("SELECT new org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ProvinceDTO(p.id, p.code, p.name, r.name) " +
+            "FROM Province p JOIN p.region r ORDER BY p.name ASC, p.id ASC")
+    List<ProvinceDTO> findKeysetFirst(Limit limit);
+
+    /**
+     * Página siguiente a la posición (name, id) usando un predicado de búsqueda (seek) en lugar de OFFSET.
+     */
+    @Query("SELECT new org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ProvinceDTO(p.id, p.code, p.name, r.name) " +
+            "FROM Province p JOIN p.region r " +
+            "WHERE p.name > :name OR (p.name = :name AND p.id > :id) " +
+            "ORDER BY p.name ASC, p.id ASC")
+    List<ProvinceDTO> findKeysetAfter(@Param("name") String name, @Param("id") Long id, Limit limit);
+
+
+
+
+    /**
+     * Todas las provincias (con el nombre de su región) en streaming desde un cursor del servidor.
+     * <p>
+     * Es una proyección a DTO: no crea entidades gestionadas, así que el contexto de persistencia no crece.
+     * </p>
+     */
+    @Query("SELECT new org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ProvinceDTO(p.id, p.code, p.name, r.name) " +
+            "FROM Province p JOIN p.region r ORDER BY p.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<ProvinceDTO> streamAllAsDTO();
+
+
+    /**
+     * Cuáles de los ids dados existen (para el informe de un borrado masivo).
+     */
+    @Query("SELECT p.id FROM Province p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Ids de las provincias de una región.
+     */
+    @Query("SELECT p.id FROM Province p WHERE p.region.id = :regionId")
+    List<Long> findIdsByRegionId(@Param("regionId") Long regionId);
+
+    /**
+     * Borrado por conjunto en una única sentencia (sin cargar las entidades).
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Province p WHERE p.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Borra todas las provincias de las regiones dadas (cascada del borrado masivo de regiones).
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Province p WHERE p.region.id IN :regionIds")
+    int deleteAllByRegionIdIn(@Param("regionIds") Collection<Long> regionIds);
 }
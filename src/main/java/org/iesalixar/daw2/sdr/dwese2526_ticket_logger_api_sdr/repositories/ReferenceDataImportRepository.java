@@ -0,0 +1,146 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ProvinceCreateDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionCreateDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Operaciones JDBC por lotes para la importación masiva de regiones y provincias.
+ * <p>
+ * Las búsquedas son de conjunto ({@code WHERE code IN (...)}, una por bloque) y las escrituras
+ * usan {@code batchUpdate}, en lugar de una consulta + {@code save} por fila.
+ * Al saltarse Hibernate, quien las use debe invalidar la caché de segundo nivel.
+ * Los ids de las filas nuevas se reservan de las mismas secuencias que usan las entidades
+ * ({@code regions_seq}, {@code provinces_seq}), por bloques de {@code INCREMENT BY} como hace Hibernate.
+ * </p>
+ */
+@Repository
+public class ReferenceDataImportRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+
+    /**
+     * Ids de las regiones existentes con alguno de los códigos dados.
+     *
+     * @return mapa código -> id sin distinguir mayúsculas, como la collation de la BD
+     *         (los códigos inexistentes no aparecen).
+     */
+    public Map<String, Long> findRegionIdsByCode(Collection<String> codes) {
+        return findIdsByCode("regions", codes);
+    }
+
+
+    /**
+     * Ids de las provincias existentes con alguno de los códigos dados.
+     *
+     * @return mapa código -> id sin distinguir mayúsculas (los códigos inexistentes no aparecen).
+     */
+    public Map<String, Long> findProvinceIdsByCode(Collection<String> codes) {
+        return findIdsByCode("provinces", codes);
+    }
+
+
+    /**
+     * Inserta regiones nuevas; el {@code id} de cada DTO se rellena con el asignado.
+     */
+    public void insertRegions(List<RegionCreateDTO> rows) {
+        assignIds("regions_seq", rows, RegionCreateDTO::setId);
+        jdbcTemplate.batchUpdate("INSERT INTO regions (id, code, name) VALUES (?, ?, ?)", rows, rows.size(),
+                (ps, row) -> {
+                    ps.setLong(1, row.getId());
+                    ps.setString(2, row.getCode());
+                    ps.setString(3, row.getName());
+                });
+    }
+
+
+    /**
+     * Actualiza el nombre de regiones existentes ({@code id} debe venir relleno).
+     */
+    public void updateRegions(List<RegionCreateDTO> rows) {
+        jdbcTemplate.batchUpdate("UPDATE regions SET name = ? WHERE id = ?", rows, rows.size(),
+                (ps, row) -> {
+                    ps.setString(1, row.getName());
+                    ps.setLong(2, row.getId());
+                });
+    }
+
+
+    /**
+     * Inserta provincias nuevas; el {@code id} de cada DTO se rellena con el asignado.
+     */
+    public void insertProvinces(List<ProvinceCreateDTO> rows) {
+        assignIds("provinces_seq", rows, ProvinceCreateDTO::setId);
+        jdbcTemplate.batchUpdate("INSERT INTO provinces (id, code, name, region_id) VALUES (?, ?, ?, ?)", rows, rows.size(),
+                (ps, row) -> {
+                    ps.setLong(1, row.getId());
+                    ps.setString(2, row.getCode());
+                    ps.setString(3, row.getName());
+                    ps.setLong(4, row.getRegionId());
+                });
+    }
+
+
+    /**
+     * Actualiza nombre y región de provincias existentes ({@code id} debe venir relleno).
+     */
+    public void updateProvinces(List<ProvinceCreateDTO> rows) {
+        jdbcTemplate.batchUpdate("UPDATE provinces SET name = ?, region_id = ? WHERE id = ?", rows, rows.size(),
+                (ps, row) -> {
+                    ps.setString(1, row.getName());
+                    ps.setLong(2, row.getRegionId());
+                    ps.setLong(3, row.getId());
+                });
+    }
+
+
+    /**
+     * Reserva ids de la secuencia con la semántica pooled-lo de Hibernate: cada {@code NEXT VALUE}
+     * devuelve el primer id de un bloque de {@code INCREMENT BY} ids consecutivos.
+     */
+    private <T> void assignIds(String sequence, List<T> rows, BiConsumer<T, Long> setter) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        long blockSize = jdbcTemplate.queryForObject("SELECT increment FROM " + sequence, Long.class);
+        long next = 0;
+        long remaining = 0;
+        for (T row : rows) {
+            if (remaining == 0) {
+                next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+                remaining = blockSize;
+            }
+            setter.accept(row, next++);
+            remaining--;
+        }
+    }
+
+
+    private Map<String, Long> findIdsByCode(String table, Collection<String> codes) {
+        Map<String, Long> ids = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (codes.isEmpty()) {
+            return ids;
+        }
+        namedJdbcTemplate.query("SELECT id, code FROM " + table + " WHERE code IN (:codes)",
+                new MapSqlParameterSource("codes", codes),
+                rs -> {
+                    ids.put(rs.getString("code"), rs.getLong("id"));
+                });
+        return ids;
+    }
+}
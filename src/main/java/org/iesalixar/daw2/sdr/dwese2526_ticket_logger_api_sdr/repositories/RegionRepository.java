@@ -1,20 +1,79 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.SecondLevelCacheConfig;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Region;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface RegionRepository extends JpaRepository<Region, Long> {
 
-    boolean existsByCode(String code);
-    boolean existsByCodeAndIdNot(String code, Long id) ;
     @Override
     Optional<Region> findById(Long id);
     @Query("select r from Region r left join fetch r.provinces where r.id = :id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.REFERENCE_QUERY_CACHE)
+    })
     Optional<Region> findByIdWithProvinces(@Param("id") Long id);
 
-}
\ No newline at end of file
+    /**
+     * Página de regiones sin {@code COUNT(*)} (solo pide una fila de más para saber si hay siguiente).
+     */
+    Slice<Region> findAllBy(Pageable pageable);
+
+    /**
+     * Primera página del listado por cursor (orden estable por nombre e id).
+     */
+    @Query("SELECT r FROM Region r ORDER BY r.name ASC, r.id ASC")
+    List<Region> findKeysetFirst(Limit limit);
+
+    /**
+     * Página siguiente a la posición (name, id) usando un predicado de búsqueda (seek) en lugar de OFFSET.
+     */
+    @Query("SELECT r FROM Region r WHERE r.name > :name OR (r.name = :name AND r.id > :id) " +
+            "ORDER BY r.name ASC, r.id ASC")
+    List<Region> findKeysetAfter(@Param("name") String name, @Param("id") Long id, Limit limit);
+
+
+    /**
+     * Todas las regiones en streaming desde un cursor del servidor (exportación).
+     * <p>
+     * Se leen de {@code 500} en {@code 500} filas, en solo lectura y sin pasar por la caché de segundo nivel.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     * </p>
+     */
+    @Query("SELECT r FROM Region r ORDER BY r.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    Stream<Region> streamAllBy();
+
+
+    /**
+     * Cuáles de los ids dados existen (para el informe de un borrado masivo).
+     */
+    @Query("SELECT r.id FROM Region r WHERE r.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Borrado por conjunto en una única sentencia; las provincias de esas regiones deben borrarse antes.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Region r WHERE r.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+}
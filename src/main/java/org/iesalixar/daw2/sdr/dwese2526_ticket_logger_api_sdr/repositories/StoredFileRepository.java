@@ -0,0 +1,104 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Contador de referencias de los ficheros direccionados por contenido ({@code stored_files}).
+ * <p>
+ * Cada fila es un blob ({@code <sha256>.<ext>}), o un fichero con nombre UUID guardado desde una subida
+ * reanudable, y cuántos registros lo usan. {@code OrphanFileCollector} no borra ningún fichero con
+ * referencias registradas.
+ * </p>
+ * <p>
+ * {@link #acquire} es una sentencia atómica ({@code INSERT ... ON DUPLICATE KEY UPDATE}), así que dos subidas
+ * del mismo contenido no pueden perder una referencia. {@link #release} y {@link #lockReferences} bloquean
+ * la fila con {@code SELECT ... FOR UPDATE} dentro de la transacción del llamante: quien borra el blob lo
+ * hace con la fila bloqueada, y un {@code acquire} del mismo nombre en cualquier nodo espera a que termine
+ * (con la fila ya borrada vuelve a crearla y a escribir el blob). Con aislamiento REPEATABLE READ (el de
+ * MariaDB por defecto) el bloqueo cubre también un nombre sin fila, mediante el bloqueo de hueco del índice.
+ * </p>
+ */
+@Repository
+public class StoredFileRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Suma una referencia al blob, creando su fila si no existía.
+     *
+     * @return true si el blob es nuevo (primera referencia).
+     */
+    public boolean acquire(String fileName, String sha256, long sizeBytes) {
+        // MariaDB devuelve 1 fila afectada si inserta y 2 si actualiza la existente
+        int affected = jdbcTemplate.update(
+                "INSERT INTO stored_files (file_name, sha256, size_bytes, ref_count, created_at) " +
+                        "VALUES (?, ?, ?, 1, NOW()) " +
+                        "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1",
+                fileName, sha256, sizeBytes);
+        return affected == 1;
+    }
+
+    /**
+     * Bloquea la fila del fichero hasta el final de la transacción en curso.
+     *
+     * @return referencias registradas, o -1 si el fichero no está registrado.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int lockReferences(String fileName) {
+        List<Integer> current = jdbcTemplate.queryForList(
+                "SELECT ref_count FROM stored_files WHERE file_name = ? FOR UPDATE", Integer.class, fileName);
+        return current.isEmpty() ? -1 : current.get(0);
+    }
+
+    /**
+     * Quita una referencia al fichero y borra su fila si era la última. La fila queda bloqueada hasta el
+     * final de la transacción, así que quien recibe 0 puede borrar el blob sin que otra subida lo reutilice
+     * entretanto.
+     *
+     * @return referencias que quedan (0 solo si esta llamada ha borrado la fila), o -1 si el fichero no
+     * estaba registrado.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int release(String fileName) {
+        int current = lockReferences(fileName);
+        if (current < 0) {
+            return -1;
+        }
+        if (current > 1) {
+            jdbcTemplate.update("UPDATE stored_files SET ref_count = ref_count - 1 WHERE file_name = ?", fileName);
+            return current - 1;
+        }
+        int deleted = jdbcTemplate.update("DELETE FROM stored_files WHERE file_name = ? AND ref_count <= 1", fileName);
+        return deleted == 1 ? 0 : current;
+    }
+
+    /**
+     * De los nombres dados, los que tienen alguna referencia registrada ({@code ref_count > 0}).
+     */
+    public List<String> findReferenced(Collection<String> fileNames) {
+        if (fileNames.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(fileNames.size(), "?"));
+        return jdbcTemplate.queryForList(
+                "SELECT file_name FROM stored_files WHERE ref_count > 0 AND file_name IN (" + placeholders + ")",
+                String.class, fileNames.toArray());
+    }
+
+    /**
+     * Elimina el registro de un fichero huérfano (sin referencias).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void forget(String fileName) {
+        jdbcTemplate.update("DELETE FROM stored_files WHERE file_name = ?", fileName);
+    }
+}
@@ -0,0 +1,36 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Acceso a las estadísticas de tablas de MariaDB ({@code information_schema.TABLES}).
+ * <p>
+ * {@code TABLE_ROWS} es una estimación que InnoDB mantiene sin recorrer la tabla, por lo que
+ * leerla es prácticamente gratis comparado con un {@code COUNT(*)}, a cambio de no ser exacta.
+ * </p>
+ */
+@Repository
+public class TableStatisticsRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Número estimado de filas de una tabla del esquema actual.
+     *
+     * @param tableName nombre de la tabla (ej. "provinces").
+     * @return estimación de filas, o 0 si la tabla no tiene estadísticas.
+     */
+    public long estimateRowCount(String tableName) {
+        List<Long> rows = jdbcTemplate.queryForList(
+                "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                Long.class,
+                tableName);
+        if (rows.isEmpty() || rows.get(0) == null) return 0L;
+        return rows.get(0);
+    }
+}
@@ -2,6 +2,13 @@ package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories;
 
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.UserProfile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 import java.util.Optional;
 
@@ -9,4 +16,31 @@ public interface UserProfileRepository extends JpaRepository<UserProfile, Long>
     Optional<UserProfile> findByUserId(Long userId);
     boolean existsByUserId(Long userId);
 
+    /**
+     * De las rutas web indicadas, devuelve las que usa algún perfil (como imagen o como miniatura).
+     * Cada columna tiene su índice, así que son búsquedas por índice aunque la tabla sea grande.
+     */
+    @Query(value = "SELECT profile_image FROM user_profiles WHERE profile_image IN (:paths) " +
+            "UNION SELECT profile_image_small FROM user_profiles WHERE profile_image_small IN (:paths) " +
+            "UNION SELECT profile_image_medium FROM user_profiles WHERE profile_image_medium IN (:paths) " +
+            "UNION SELECT profile_image_large FROM user_profiles WHERE profile_image_large IN (:paths)",
+            nativeQuery = true)
+    List<String> findReferencedImages(@Param("paths") Collection<String> paths);
+
+    /**
+     * Guarda las miniaturas de la imagen de perfil, solo si el perfil sigue teniendo la misma imagen
+     * original (si el usuario la ha cambiado mientras se generaban, no se pisa la nueva).
+     *
+     * @return filas actualizadas (0 si la imagen ya no es la misma).
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserProfile p SET p.profileImageSmall = :small, p.profileImageMedium = :medium, " +
+            "p.profileImageLarge = :large WHERE p.id = :userId AND p.profileImage = :original")
+    int updateImageVariants(@Param("userId") Long userId,
+                            @Param("original") String original,
+                            @Param("small") String small,
+                            @Param("medium") String medium,
+                            @Param("large") String large);
+
 }
@@ -2,15 +2,25 @@ package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories;
 
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UserExportRowDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UserRoleNameDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Interfaz que define las operaciones de acceso a datos (DAO) para la entidad {@link User}.
@@ -24,8 +34,6 @@ import java.util.Optional;
  */
 public interface UsersRepository extends JpaRepository<User, Long> {
 
-    boolean existsByEmail(String email) ;
-    boolean existsByEmailAndIdNot(String email, Long id);
     @EntityGraph(attributePaths = "roles")
     Optional<User> findByEmail(String Email);
 
@@ -40,4 +48,50 @@ public interface UsersRepository extends JpaRepository<User, Long> {
      * @return {@link java.util.Optional} con el usuario y sus roles; {@code Optional.empty()} si no existe.
      */
     Optional<User> findByEmailIgnoreCase(String email);
+
+    /**
+     * Recupera en una sola consulta los nombres de rol de un conjunto de usuarios.
+     * <p>
+     * Se usa en la segunda fase del listado paginado para no inicializar la colección
+     * LAZY {@code roles} usuario a usuario.
+     * </p>
+     *
+     * @param userIds ids de los usuarios de la página.
+     * @return pares (userId, roleName); los usuarios sin roles no aparecen.
+     */
+    @Query("SELECT new org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UserRoleNameDTO(u.id, r.name) " +
+            "FROM User u JOIN u.roles r WHERE u.id IN :userIds")
+    List<UserRoleNameDTO> findRoleNamesByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Página de usuarios sin {@code COUNT(*)} (solo pide una fila de más para saber si hay siguiente).
+     */
+    Slice<User> findAllBy(Pageable pageable);
+
+    /**
+     * Primera página del listado por cursor (orden estable por email e id).
+     */
+    @Query("SELECT u FROM User u ORDER BY u.email ASC, u.id ASC")
+    List<User> findKeysetFirst(Limit limit);
+
+    /**
+     * Página siguiente a la posición (email, id) usando un predicado de búsqueda (seek) en lugar de OFFSET.
+     */
+    @Query("SELECT u FROM User u WHERE u.email > :email OR (u.email = :email AND u.id > :id) " +
+            "ORDER BY u.email ASC, u.id ASC")
+    List<User> findKeysetAfter(@Param("email") String email, @Param("id") Long id, Limit limit);
+
+    /**
+     * Todos los usuarios con sus roles en streaming desde un cursor del servidor (exportación).
+     * <p>
+     * Una fila por usuario y rol, ordenadas por id para poder agruparlas al vuelo; es una proyección,
+     * así que no crea entidades gestionadas ni necesita una consulta de roles por usuario.
+     * </p>
+     */
+    @Query("SELECT new org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UserExportRowDTO(" +
+            "u.id, u.email, u.active, u.accountNonLocked, u.lastPasswordChange, u.passwordExpiresAt, " +
+            "u.failedLoginAttempts, u.emailVerified, u.mustChangePassword, r.name) " +
+            "FROM User u LEFT JOIN u.roles r ORDER BY u.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<UserExportRowDTO> streamExportRows();
 }
@@ -0,0 +1,22 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ImportReportDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ImportRecordReader;
+
+import java.io.InputStream;
+
+public interface BulkImportService {
+
+    /** Qué hacer con las filas cuyo código ya existe en la BD. */
+    enum OnDuplicate { SKIP, UPDATE }
+
+    /**
+     * Importa regiones ({@code code, name}) leyendo la entrada en streaming.
+     */
+    ImportReportDTO importRegions(InputStream in, ImportRecordReader.Format format, OnDuplicate onDuplicate);
+
+    /**
+     * Importa provincias ({@code code, name, regionCode}) leyendo la entrada en streaming.
+     */
+    ImportReportDTO importProvinces(InputStream in, ImportRecordReader.Format format, OnDuplicate onDuplicate);
+}
@@ -0,0 +1,309 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.SessionFactory;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ImportReportDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ProvinceCreateDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionCreateDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Region;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ResourceChangedEvent;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.InvalidImportException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.ReferenceDataImportRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ImportRecordReader;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ImportRecordReader.ImportRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Importación masiva de regiones y provincias.
+ * <p>
+ * La entrada se lee registro a registro y se procesa en bloques de {@code app.import.chunk-size} filas.
+ * Cada bloque va en su propia transacción: se validan las filas, se resuelven los códigos existentes
+ * (y las regiones de las provincias) con una consulta de conjunto y se escribe con JDBC por lotes.
+ * Un fallo de escritura solo descarta su bloque; los anteriores quedan confirmados.
+ * </p>
+ * <p>
+ * Al terminar se invalida la caché de segundo nivel de Hibernate (las escrituras JDBC no pasan por ella)
+ * y se publica un {@link ResourceChangedEvent} con el número de filas insertadas/actualizadas.
+ * </p>
+ */
+@Service
+public class BulkImportServiceImpl implements BulkImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportServiceImpl.class);
+
+    @Autowired
+    private ReferenceDataImportRepository importRepository;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.import.max-errors:1000}")
+    private int maxErrors;
+
+
+    public BulkImportServiceImpl(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+
+    /** Fila ya validada y lista para escribir, junto a su posición en la entrada. */
+    private record PendingRow<T>(long row, T dto) {
+    }
+
+
+    /** Procesa un bloque de registros y anota el resultado en el informe. */
+    @FunctionalInterface
+    private interface ChunkProcessor {
+        void process(List<ImportRecord> chunk, ImportReportDTO report);
+    }
+
+
+    @Override
+    public ImportReportDTO importRegions(InputStream in, ImportRecordReader.Format format, OnDuplicate onDuplicate) {
+        Set<String> seenCodes = new HashSet<>();
+        return runImport("region", in, format,
+                (chunk, report) -> importRegionChunk(chunk, onDuplicate, seenCodes, report));
+    }
+
+
+    @Override
+    public ImportReportDTO importProvinces(InputStream in, ImportRecordReader.Format format, OnDuplicate onDuplicate) {
+        Set<String> seenCodes = new HashSet<>();
+        return runImport("province", in, format,
+                (chunk, report) -> importProvinceChunk(chunk, onDuplicate, seenCodes, report));
+    }
+
+
+    private ImportReportDTO runImport(String resource, InputStream in, ImportRecordReader.Format format,
+                                      ChunkProcessor processor) {
+        ImportReportDTO report = new ImportReportDTO(resource, maxErrors);
+        List<ImportRecord> chunk = new ArrayList<>(chunkSize);
+
+        try (ImportRecordReader reader = ImportRecordReader.open(format, in, resource, objectMapper)) {
+            ImportRecord record;
+            while ((record = reader.next()) != null) {
+                report.setProcessed(report.getProcessed() + 1);
+                chunk.add(record);
+                if (chunk.size() >= chunkSize) {
+                    processor.process(chunk, report);
+                    chunk.clear();
+                }
+            }
+        } catch (InvalidImportException ex) {
+            logger.warn("Importación de {} detenida en el registro {}: {}", resource, ex.getValue(), ex.getMessage());
+            report.setAborted(true);
+            report.reject((Long) ex.getValue(), null, null, ex.getMessage());
+        }
+        if (!chunk.isEmpty()) {
+            processor.process(chunk, report);
+        }
+
+        if (report.getInserted() > 0 || report.getUpdated() > 0) {
+            evictSecondLevelCache();
+            if (report.getInserted() > 0) {
+                eventPublisher.publishEvent(new ResourceChangedEvent(resource, ResourceChangedEvent.ChangeType.CREATED,
+                        List.of(), (int) report.getInserted()));
+            }
+            if (report.getUpdated() > 0) {
+                eventPublisher.publishEvent(new ResourceChangedEvent(resource, ResourceChangedEvent.ChangeType.UPDATED,
+                        List.of(), (int) report.getUpdated()));
+            }
+        }
+        logger.info("Importación de {} terminada: {} leídos, {} insertados, {} actualizados, {} omitidos, {} con error.",
+                resource, report.getProcessed(), report.getInserted(), report.getUpdated(),
+                report.getSkipped(), report.getFailed());
+        return report;
+    }
+
+
+    private void importRegionChunk(List<ImportRecord> records, OnDuplicate onDuplicate,
+                                   Set<String> seenCodes, ImportReportDTO report) {
+        List<PendingRow<RegionCreateDTO>> rows = new ArrayList<>(records.size());
+        for (ImportRecord record : records) {
+            RegionCreateDTO dto = new RegionCreateDTO(null, record.get("code"), record.get("name"));
+            if (isValid(record.getRow(), dto.getCode(), dto, report)
+                    && isFirstOccurrence(record.getRow(), dto.getCode(), seenCodes, report)) {
+                rows.add(new PendingRow<>(record.getRow(), dto));
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        writeChunk(rows, report, () -> {
+            Map<String, Long> existing = importRepository.findRegionIdsByCode(codesOf(rows, RegionCreateDTO::getCode));
+            List<RegionCreateDTO> inserts = new ArrayList<>();
+            List<RegionCreateDTO> updates = new ArrayList<>();
+            for (PendingRow<RegionCreateDTO> row : rows) {
+                Long id = existing.get(row.dto().getCode());
+                if (id == null) {
+                    inserts.add(row.dto());
+                } else {
+                    row.dto().setId(id);
+                    updates.add(row.dto());
+                }
+            }
+            if (!inserts.isEmpty()) {
+                importRepository.insertRegions(inserts);
+            }
+            if (onDuplicate == OnDuplicate.UPDATE && !updates.isEmpty()) {
+                importRepository.updateRegions(updates);
+            }
+            return new int[]{inserts.size(), updates.size()};
+        }, onDuplicate);
+    }
+
+
+    private void importProvinceChunk(List<ImportRecord> records, OnDuplicate onDuplicate,
+                                     Set<String> seenCodes, ImportReportDTO report) {
+        // Una sola consulta para todas las regiones referenciadas en el bloque
+        Set<String> regionCodes = records.stream()
+                .map(r -> r.get("regionCode"))
+                .filter(code -> code != null && !code.isBlank())
+                .collect(Collectors.toSet());
+        Map<String, Long> regionIds = importRepository.findRegionIdsByCode(regionCodes);
+
+        List<PendingRow<ProvinceCreateDTO>> rows = new ArrayList<>(records.size());
+        for (ImportRecord record : records) {
+            String regionCode = record.get("regionCode");
+            ProvinceCreateDTO dto = new ProvinceCreateDTO(null, record.get("code"), record.get("name"),
+                    regionCode == null ? null : regionIds.get(regionCode));
+            if (regionCode != null && !regionCode.isBlank() && dto.getRegionId() == null) {
+                report.reject(record.getRow(), dto.getCode(), "regionCode", "No existe la región " + regionCode);
+                continue;
+            }
+            if (isValid(record.getRow(), dto.getCode(), dto, report)
+                    && isFirstOccurrence(record.getRow(), dto.getCode(), seenCodes, report)) {
+                rows.add(new PendingRow<>(record.getRow(), dto));
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        writeChunk(rows, report, () -> {
+            Map<String, Long> existing = importRepository.findProvinceIdsByCode(codesOf(rows, ProvinceCreateDTO::getCode));
+            List<ProvinceCreateDTO> inserts = new ArrayList<>();
+            List<ProvinceCreateDTO> updates = new ArrayList<>();
+            for (PendingRow<ProvinceCreateDTO> row : rows) {
+                Long id = existing.get(row.dto().getCode());
+                if (id == null) {
+                    inserts.add(row.dto());
+                } else {
+                    row.dto().setId(id);
+                    updates.add(row.dto());
+                }
+            }
+            if (!inserts.isEmpty()) {
+                importRepository.insertProvinces(inserts);
+            }
+            if (onDuplicate == OnDuplicate.UPDATE && !updates.isEmpty()) {
+                importRepository.updateProvinces(updates);
+            }
+            return new int[]{inserts.size(), updates.size()};
+        }, onDuplicate);
+    }
+
+
+    /**
+     * Ejecuta la escritura de un bloque en su propia transacción y actualiza el informe.
+     * Si falla, se rechazan todas las filas del bloque con la causa.
+     */
+    private <T> void writeChunk(List<PendingRow<T>> rows, ImportReportDTO report,
+                                Supplier<int[]> write, OnDuplicate onDuplicate) {
+        try {
+            int[] result = transactionTemplate.execute(status -> write.get());
+            report.setInserted(report.getInserted() + result[0]);
+            if (onDuplicate == OnDuplicate.UPDATE) {
+                report.setUpdated(report.getUpdated() + result[1]);
+            } else {
+                report.setSkipped(report.getSkipped() + result[1]);
+            }
+        } catch (DataAccessException ex) {
+            String cause = NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+            logger.warn("Bloque de importación rechazado ({} filas): {}", rows.size(), cause);
+            for (PendingRow<T> row : rows) {
+                report.reject(row.row(), null, null, "Bloque rechazado por la BD: " + cause);
+            }
+        }
+    }
+
+
+    private boolean isValid(long row, String code, Object dto, ImportReportDTO report) {
+        Set<? extends ConstraintViolation<?>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return true;
+        }
+        List<? extends ConstraintViolation<?>> sorted = violations.stream()
+                .sorted(Comparator.comparing(v -> v.getPropertyPath().toString()))
+                .toList();
+        String message = sorted.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .collect(Collectors.joining("; "));
+        report.reject(row, code, sorted.get(0).getPropertyPath().toString(), message);
+        return false;
+    }
+
+
+    private boolean isFirstOccurrence(long row, String code, Set<String> seenCodes, ImportReportDTO report) {
+        // La BD compara los códigos sin distinguir mayúsculas
+        if (seenCodes.add(code.toLowerCase(Locale.ROOT))) {
+            return true;
+        }
+        report.reject(row, code, "code", "Código repetido en la entrada");
+        return false;
+    }
+
+
+    private <T> Set<String> codesOf(List<PendingRow<T>> rows, Function<T, String> code) {
+        return rows.stream().map(row -> code.apply(row.dto())).collect(Collectors.toSet());
+    }
+
+
+    private void evictSecondLevelCache() {
+        entityManagerFactory.getCache().evict(Region.class);
+        entityManagerFactory.getCache().evict(Province.class);
+        org.hibernate.Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictCollectionData(Region.class.getName() + ".provinces");
+        cache.evictQueryRegions();
+    }
+}
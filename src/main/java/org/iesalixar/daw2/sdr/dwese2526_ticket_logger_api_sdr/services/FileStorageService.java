@@ -1,17 +1,42 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
 
 
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.StoredFileRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Service
 public class FileStorageService {
@@ -21,61 +46,443 @@ public class FileStorageService {
     @Value("${app.upload-root}")
     private String uploadRootPath;
 
-    private static final String UPLOADS_SUBDIR = "uploads";
+    /**
+     * Con true (por defecto) los ficheros se nombran por el SHA-256 de su contenido y se deduplican
+     * con un contador de referencias; con false se usa un UUID aleatorio por subida.
+     */
+    @Value("${app.storage.content-addressed:true}")
+    private boolean contentAddressed;
 
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** Subdirectorio de {@code app.upload-root} donde se preparan las subidas (y se guardan con el backend local). */
+    static final String UPLOADS_SUBDIR = "uploads";
+
+    private static final String TEMP_PREFIX = ".upload-";
+    private static final String TEMP_SUFFIX = ".part";
+
+    /** Bytes máximos por llamada a transferFrom (el canal copia por bloques, sin un buffer del tamaño del fichero). */
+    private static final long TRANSFER_CHUNK_BYTES = 8L * 1024 * 1024;
+
+    /** Buffer de copia cuando hay que calcular el hash a la vez (fijo, no crece con el fichero). */
+    private static final int DIGEST_BUFFER_BYTES = 64 * 1024;
+
+    private static final int BLOB_LOCK_STRIPES = 64;
+
+    /** Nombre de un blob direccionado por contenido: SHA-256 en hexadecimal y extensión opcional. */
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("^[0-9a-f]{64}(\\.[a-z0-9]{1,10})?$");
+
+    private static final Pattern SAFE_EXTENSION = Pattern.compile("^[a-z0-9]{1,10}$");
+
+    /**
+     * Locks por nombre de blob (repartidos en franjas): serializan en este nodo la secuencia
+     * "contador en BD + fichero en el almacén" de un mismo contenido. Solo evitan esperas en la BD entre
+     * hilos del mismo nodo; lo que garantiza que el borrado de la última referencia no elimine un blob que
+     * otra subida idéntica acaba de reutilizar (en este o en otro nodo) es el bloqueo de la fila de
+     * {@code stored_files} que se mantiene mientras se borra (ver {@link StoredFileRepository}).
+     */
+    private final Lock[] blobLocks = new Lock[BLOB_LOCK_STRIPES];
+
+    public FileStorageService() {
+        for (int i = 0; i < blobLocks.length; i++) {
+            blobLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Guarda el fichero subido y devuelve su ruta web ({@code /uploads/<nombre>}).
+     * <p>
+     * En modo direccionado por contenido el nombre es {@code <sha256>.<ext>}, calculado mientras se copia:
+     * si ese contenido ya estaba guardado se reutiliza el blob existente y solo se suma una referencia.
+     * Como el contenido de un nombre nunca cambia, su URL se puede cachear indefinidamente.
+     * </p>
+     * <p>
+     * El contenido nunca se carga entero en memoria: se copia en streaming desde la parte multipart a un
+     * fichero temporal del propio directorio de subidas (mediante {@link FileChannel#transferFrom}) y, al
+     * terminar, se entrega completo al {@link StorageBackend} (en local, un move atómico). Así nadie puede
+     * ver un fichero a medias y un fallo a mitad de copia no deja basura con nombre válido.
+     * </p>
+     */
     public String saveFile(MultipartFile file){
         if (file == null || file.isEmpty()){
             logger.warn("Intento de guardar un archivo nulo o vacio");
             return null;
         }
-        try{
-            String originalFilename = file.getOriginalFilename();
-            String fileExtension = getFileExtension(originalFilename);
+        try (InputStream in = file.getInputStream()) {
+            return store(in, getFileExtension(file.getOriginalFilename()));
+        } catch (IOException e) {
+            logger.error("Error al leer el archivo subido: {}", e.getMessage(), e);
+            return null;
+        }
+    }
 
-            String uniqueFileName = UUID.randomUUID().toString();
-            if (!fileExtension.isBlank()){
-                uniqueFileName += "." + fileExtension;
-            }
+    /**
+     * Guarda un contenido generado por la aplicación (p. ej. miniaturas) con las mismas reglas que
+     * {@link #saveFile}: streaming a temporal, entrega completa al almacén y, si procede, deduplicación por contenido.
+     *
+     * @param extension extensión sin punto ("png", "jpg"...).
+     * @return ruta web del fichero guardado, o null si no se pudo guardar.
+     */
+    public String saveStream(InputStream content, String extension) {
+        return store(content, getFileExtension("file." + extension));
+    }
+
+    /**
+     * Datos del fichero (tamaño, fecha) a partir de su ruta web ({@code /uploads/<nombre>}) o su nombre,
+     * o vacío si no existe.
+     */
+    public Optional<StorageBackend.StoredObject> stat(String filePathOrWebPath) throws IOException {
+        return storageBackend.stat(normalizeFilemane(filePathOrWebPath));
+    }
+
+    /**
+     * Abre el fichero a partir de {@code offset}; con {@code length >= 0} solo se deben leer esos bytes
+     * (ver {@link StorageBackend#open}).
+     */
+    public InputStream open(String filePathOrWebPath, long offset, long length) throws IOException {
+        return storageBackend.open(normalizeFilemane(filePathOrWebPath), offset, length);
+    }
 
-            Path uploadsDir = Paths.get(uploadRootPath).resolve(UPLOADS_SUBDIR);
+    /**
+     * Ruta en disco del fichero si el almacén es local (para enviarlo con {@code sendfile}); vacío con
+     * almacenes remotos.
+     */
+    public Optional<Path> localPath(String filePathOrWebPath) {
+        return storageBackend.localPath(normalizeFilemane(filePathOrWebPath));
+    }
+
+    /**
+     * Indica si el nombre es el de un blob direccionado por contenido ({@code <sha256>.<ext>}): su
+     * contenido no puede cambiar nunca, así que se puede cachear como inmutable.
+     */
+    public boolean isContentAddressed(String fileName) {
+        return fileName != null && CONTENT_ADDRESSED_NAME.matcher(fileName).matches();
+    }
+
+    private String store(InputStream content, String fileExtension) {
+        Path tempFile = null;
+        try{
+            Path uploadsDir = uploadsDir();
             Files.createDirectories(uploadsDir);
-            Path filePath = uploadsDir.resolve(uniqueFileName);
-            Files.write(filePath, file.getBytes());
 
-            logger.info("Archivo {} guardado con éxito en {}", uniqueFileName, filePath);
+            // El temporal va en el mismo directorio para que, con el backend local, guardar sea un rename atómico
+            tempFile = Files.createTempFile(uploadsDir, TEMP_PREFIX, TEMP_SUFFIX);
 
-            return "/uploads/"+ uniqueFileName;
+            MessageDigest digest = contentAddressed ? newSha256() : null;
+            long bytes = copyToFile(content, tempFile, digest);
+            return storeStaged(tempFile, fileExtension, digest != null ? HexFormat.of().formatHex(digest.digest()) : null, bytes);
         } catch (IOException e) {
             logger.error("Error al guardar el archivo: {}", e.getMessage(), e);
             return null;
+        } finally {
+            // Si se ha movido ya no existe; si no (error o contenido repetido) se descarta
+            deleteQuietly(tempFile);
+        }
+    }
+
+    /**
+     * Guarda un fichero ya completo en el directorio de subidas ({@link #uploadsDirectory()}), p. ej. el de
+     * una subida reanudable, con las mismas reglas que {@link #saveFile}. Como está en el mismo sistema de
+     * ficheros, con el backend local entra en el almacén con un rename atómico, sin copiarlo.
+     * <p>
+     * Si va bien el fichero deja de existir en su ruta (se ha movido o, si el contenido ya estaba guardado,
+     * se descarta). Si falla se deja donde estaba para poder reintentarlo.
+     * </p>
+     *
+     * @param stagedFile fichero dentro de {@link #uploadsDirectory()}.
+     * @param extension  extensión sin punto, o vacía.
+     * @param sha256     hash ya verificado del contenido (en hexadecimal); se usa como nombre en modo
+     *                   direccionado por contenido.
+     * @return ruta web del fichero guardado.
+     */
+    public String saveStagedFile(Path stagedFile, String extension, String sha256) throws IOException {
+        String fileExtension = getFileExtension("file." + extension);
+        String webPath = storeStaged(stagedFile, fileExtension, sha256.toLowerCase(Locale.ROOT), Files.size(stagedFile));
+        deleteQuietly(stagedFile);
+        return webPath;
+    }
+
+    /**
+     * Entrega al almacén un temporal ya escrito: por su hash si {@code sha256} no es null (modo direccionado
+     * por contenido) o con un UUID nuevo si no.
+     */
+    private String storeStaged(Path tempFile, String fileExtension, String sha256, long bytes) throws IOException {
+        if (contentAddressed && sha256 != null) {
+            String blobName = fileExtension.isBlank() ? sha256 : sha256 + "." + fileExtension;
+            storeBlob(tempFile, blobName, sha256, bytes);
+            return "/uploads/" + blobName;
+        }
+
+        String uniqueFileName = UUID.randomUUID().toString();
+        if (!fileExtension.isBlank()){
+            uniqueFileName += "." + fileExtension;
+        }
+
+        storageBackend.put(uniqueFileName, tempFile, bytes);
+        if (sha256 != null) {
+            // Subida reanudable sin direccionar por contenido: se registra para que no se tome por huérfana
+            storedFileRepository.acquire(uniqueFileName, sha256, bytes);
+        }
+
+        logger.info("Archivo {} ({} bytes) guardado con éxito en el almacén {}", uniqueFileName, bytes, storageBackend.name());
+
+        return "/uploads/"+ uniqueFileName;
+    }
+
+    /**
+     * Registra una referencia al blob y, si no está en el almacén, le entrega el temporal con su nombre
+     * definitivo. Si el blob ya existía el temporal se descarta.
+     */
+    private void storeBlob(Path tempFile, String blobName, String sha256, long bytes) throws IOException {
+        Lock lock = lockFor(blobName);
+        lock.lock();
+        try {
+            boolean firstReference = storedFileRepository.acquire(blobName, sha256, bytes);
+            if (storageBackend.stat(blobName).isPresent()) {
+                // Se renueva la fecha para que OrphanFileCollector no lo tome por huérfano antes del commit
+                storageBackend.touch(blobName);
+                logger.info("Contenido ya almacenado, se reutiliza {} ({} bytes)", blobName, bytes);
+                return;
+            }
+            if (!firstReference) {
+                logger.warn("El blob {} estaba registrado pero no en el almacén; se vuelve a escribir", blobName);
+            }
+            storageBackend.put(blobName, tempFile, bytes);
+            logger.info("Archivo {} ({} bytes) guardado con éxito en el almacén {}", blobName, bytes, storageBackend.name());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copia el contenido al fichero destino por bloques de canal, sin pasar por un {@code byte[]}
+     * del tamaño del fichero. Si la parte multipart ya está en disco (lo normal con el umbral a 0)
+     * su {@link FileInputStream} aporta un {@link FileChannel} y la copia es de canal a canal.
+     * Con {@code digest} la copia pasa por un buffer fijo para calcular el hash en la misma lectura.
+     * El stream lo cierra quien lo abrió.
+     */
+    private long copyToFile(InputStream in, Path target, MessageDigest digest) throws IOException {
+        try (ReadableByteChannel source = (in instanceof FileInputStream fis) ? fis.getChannel() : Channels.newChannel(in);
+             FileChannel destination = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            if (digest == null) {
+                long transferred;
+                while ((transferred = destination.transferFrom(source, position, TRANSFER_CHUNK_BYTES)) > 0) {
+                    position += transferred;
+                }
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(DIGEST_BUFFER_BYTES);
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        position += destination.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+            destination.force(false);
+            return position;
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar el temporal {}: {}", path, e.getMessage());
         }
     }
 
+    /**
+     * Elimina un fichero subido. Los ficheros registrados en {@code stored_files} (blobs direccionados por
+     * contenido y subidas reanudables) solo se borran cuando se libera su última referencia; los que no
+     * tienen registro (nombres UUID antiguos) se borran directamente.
+     * <p>
+     * La referencia se libera y el fichero se borra en una misma transacción, con la fila del contador
+     * bloqueada: una subida del mismo contenido espera a que termine y vuelve a escribir el blob. Si falla
+     * el borrado del fichero la fila se elimina igualmente y el fichero, ya sin referencias, lo recoge
+     * {@link OrphanFileCollector}.
+     * </p>
+     */
     public void deleteFile(String filePathOrWebPath){
         if (filePathOrWebPath == null || filePathOrWebPath.isBlank()){
             logger.warn("Se ha intentado eliminar un archivo vacio");
             return;
         }
-        try{
-            String fileName = normalizeFilemane(filePathOrWebPath);
+        String fileName = normalizeFilemane(filePathOrWebPath);
+
+        Lock lock = lockFor(fileName);
+        lock.lock();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                int remaining = storedFileRepository.release(fileName);
+                if (remaining > 0) {
+                    logger.info("Archivo {} sigue en uso ({} referencias), no se borra", fileName, remaining);
+                    return;
+                }
+                try {
+                    storageBackend.delete(fileName);
+                    logger.info("Archivo {} eliminado con éxito del almacén {}", fileName, storageBackend.name());
+                } catch (IOException e) {
+                    logger.error("Error al eliminar el archivo {} : {}", filePathOrWebPath, e.getMessage(), e);
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            Path uploadDir = Paths.get(uploadRootPath).resolve(UPLOADS_SUBDIR);
-            Path filePath = uploadDir.resolve(fileName);
+    /**
+     * Con el backend local, mueve a su subdirectorio hasta {@code maxFiles} ficheros que sigan en la raíz
+     * plana de {@code uploads/} (ver {@link LocalStorageBackend#moveToShard}). Los blobs se mueven bajo su
+     * lock para no cruzarse con una subida o un borrado del mismo contenido.
+     *
+     * @param unmovable ficheros que no se han podido mover en lotes anteriores: no se vuelven a intentar y
+     *                  se añaden los de este lote, para que el siguiente avance hacia los demás.
+     * @return ficheros movidos (0 si el almacén no es local).
+     */
+    public int migrateFlatBatch(int maxFiles, Set<String> unmovable) throws IOException {
+        if (!(storageBackend instanceof LocalStorageBackend local)) {
+            return 0;
+        }
+        int moved = 0;
+        for (String fileName : local.listFlat(maxFiles, unmovable)) {
+            boolean blob = isContentAddressed(fileName);
+            Lock lock = blob ? lockFor(fileName) : null;
+            if (lock != null) {
+                lock.lock();
+            }
+            try {
+                if (local.moveToShard(fileName, blob)) {
+                    moved++;
+                } else {
+                    unmovable.add(fileName);
+                }
+            } finally {
+                if (lock != null) {
+                    lock.unlock();
+                }
+            }
+        }
+        return moved;
+    }
 
-            Files.deleteIfExists(filePath);
-            logger.info("Archivo {} eliminado con éxito ({})", fileName, filePath);
+    /**
+     * Recorre los ficheros del almacén (ver {@link StorageBackend#list}). Hay que cerrar el stream.
+     */
+    public Stream<StorageBackend.StoredObject> listStoredFiles() throws IOException {
+        return storageBackend.list();
+    }
 
+    /**
+     * Borra un fichero que ningún perfil referencia, siempre que no tenga referencias registradas y no se
+     * haya modificado desde {@code cutoff}.
+     * <p>
+     * Ambas cosas se comprueban con la fila de {@code stored_files} bloqueada (o el hueco, si no hay fila)
+     * hasta haber borrado el fichero: una subida que lo reutiliza en ese momento, en cualquier nodo, espera
+     * y después lo vuelve a escribir; una que lo reutilizó antes ya tiene su referencia o ha renovado la fecha.
+     * </p>
+     *
+     * @return true si se ha borrado.
+     */
+    public boolean deleteOrphan(String fileName, Instant cutoff) throws IOException {
+        Lock lock = lockFor(fileName);
+        lock.lock();
+        try {
+            return Boolean.TRUE.equals(new TransactionTemplate(transactionManager).execute(status -> {
+                if (storedFileRepository.lockReferences(fileName) > 0) {
+                    return false;
+                }
+                try {
+                    Optional<StorageBackend.StoredObject> stored = storageBackend.stat(fileName);
+                    if (stored.isEmpty() || !stored.get().lastModified().isBefore(cutoff)) {
+                        return false;
+                    }
+                    storedFileRepository.forget(fileName);
+                    storageBackend.delete(fileName);
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        }catch (IOException e){
-            logger.error("Error al eliminar el archivo {} : {}", filePathOrWebPath, e.getMessage(), e);
+    /**
+     * Borra los temporales de subida ({@code .upload-*.part}) anteriores a {@code cutoff}, restos de
+     * subidas interrumpidas (p. ej. por una caída a mitad de copia).
+     *
+     * @return temporales borrados.
+     */
+    public int deleteStaleTemporaryFiles(Instant cutoff) throws IOException {
+        Path uploadsDir = uploadsDir();
+        if (!Files.isDirectory(uploadsDir)) {
+            return 0;
+        }
+        int deleted = 0;
+        try (DirectoryStream<Path> temps = Files.newDirectoryStream(uploadsDir, TEMP_PREFIX + "*" + TEMP_SUFFIX)) {
+            for (Path temp : temps) {
+                try {
+                    if (Files.getLastModifiedTime(temp).toInstant().isBefore(cutoff) && Files.deleteIfExists(temp)) {
+                        deleted++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // Ya se ha movido o borrado
+                }
+            }
         }
+        return deleted;
+    }
+
+    /**
+     * Directorio local donde se preparan las subidas ({@code <upload-root>/uploads}); con el backend local
+     * es también donde se guardan.
+     */
+    public Path uploadsDirectory() {
+        return uploadsDir();
+    }
+
+    private Path uploadsDir() {
+        return Paths.get(uploadRootPath).resolve(UPLOADS_SUBDIR);
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible en la JVM", e);
+        }
+    }
+
+    private Lock lockFor(String blobName) {
+        return blobLocks[Math.floorMod(blobName.hashCode(), blobLocks.length)];
     }
 
+    /**
+     * Extensión del nombre original en minúsculas; se descarta si no es alfanumérica y corta
+     * (forma parte del nombre en disco, así que no puede traer rutas ni caracteres raros).
+     */
     private String getFileExtension(String fileName){
         if (fileName != null){
             int lastDot = fileName.lastIndexOf(".");
             if (lastDot > 0 && lastDot < fileName.length()-1){
-                return fileName.substring(lastDot + 1);
+                String extension = fileName.substring(lastDot + 1).toLowerCase(Locale.ROOT);
+                return SAFE_EXTENSION.matcher(extension).matches() ? extension : "";
             }
         }
         return "";
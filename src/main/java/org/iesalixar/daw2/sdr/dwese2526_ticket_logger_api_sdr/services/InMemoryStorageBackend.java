@@ -0,0 +1,87 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * {@link StorageBackend} en memoria ({@code app.storage.backend=memory}), pensado para pruebas: no
+ * necesita disco compartido ni servicios externos y se vacía al parar la aplicación.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "memory")
+public class InMemoryStorageBackend implements StorageBackend {
+
+    private record Entry(byte[] content, Instant lastModified) {
+    }
+
+    private final Map<String, Entry> objects = new ConcurrentHashMap<>();
+
+    private final StorageBackendMetrics metrics;
+
+    public InMemoryStorageBackend(MeterRegistry meterRegistry) {
+        this.metrics = new StorageBackendMetrics(meterRegistry, name());
+    }
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+
+    @Override
+    public void put(String key, Path source, long size) throws IOException {
+        metrics.record("put", () -> objects.put(key, new Entry(Files.readAllBytes(source), Instant.now())));
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        return metrics.record("stat", () -> Optional.ofNullable(objects.get(key)).map(entry -> toStoredObject(key, entry)));
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        return metrics.record("open", () -> {
+            Entry entry = objects.get(key);
+            if (entry == null) {
+                throw new NoSuchFileException(key);
+            }
+            int from = (int) Math.min(offset, entry.content().length);
+            int count = length < 0 ? entry.content().length - from : (int) Math.min(length, entry.content().length - from);
+            return new ByteArrayInputStream(entry.content(), from, count);
+        });
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        metrics.record("delete", () -> objects.remove(key));
+    }
+
+    @Override
+    public void touch(String key) throws IOException {
+        metrics.record("touch", () -> objects.computeIfPresent(key, (k, entry) -> new Entry(entry.content(), Instant.now())));
+    }
+
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        // Copia de las entradas: el stream no se ve afectado por escrituras concurrentes
+        return metrics.record("list", () -> List.copyOf(objects.entrySet()).stream()
+                .map(e -> toStoredObject(e.getKey(), e.getValue())));
+    }
+
+    private static StoredObject toStoredObject(String key, Entry entry) {
+        return new StoredObject(key, entry.content().length, entry.lastModified());
+    }
+}
@@ -0,0 +1,231 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * {@link StorageBackend} sobre el sistema de ficheros local, en {@code <app.upload-root>/uploads}.
+ * <p>
+ * Los ficheros se reparten en {@code uploads/ab/cd/<nombre>}; los anteriores a ese reparto pueden seguir en
+ * {@code uploads/<nombre>} hasta que los mueva {@link #moveToShard}, así que todas las operaciones buscan en
+ * las dos ubicaciones. El temporal que entrega {@link FileStorageService} está en el mismo directorio, por
+ * lo que guardar es un rename atómico.
+ * </p>
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "local", matchIfMissing = true)
+public class LocalStorageBackend implements StorageBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalStorageBackend.class);
+
+    private static final Pattern HEX_SHARD_PREFIX = Pattern.compile("^[0-9a-f]{4}$");
+
+    private final Path root;
+
+    private final StorageBackendMetrics metrics;
+
+    public LocalStorageBackend(@Value("${app.upload-root}") String uploadRootPath, MeterRegistry meterRegistry) {
+        this.root = Paths.get(uploadRootPath).resolve(FileStorageService.UPLOADS_SUBDIR);
+        this.metrics = new StorageBackendMetrics(meterRegistry, name());
+    }
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    @Override
+    public void put(String key, Path source, long size) throws IOException {
+        metrics.record("put", () -> {
+            moveIntoPlace(source, shardedPath(key));
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        return metrics.record("stat", () -> Optional.ofNullable(toStoredObject(key, locate(key))));
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        return metrics.record("open", () -> {
+            FileChannel channel = FileChannel.open(locate(key), StandardOpenOption.READ);
+            channel.position(offset);
+            return Channels.newInputStream(channel);
+        });
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        metrics.record("delete", () -> {
+            Files.deleteIfExists(shardedPath(key));
+            Files.deleteIfExists(root.resolve(key));
+            return null;
+        });
+    }
+
+    @Override
+    public void touch(String key) throws IOException {
+        metrics.record("touch", () -> Files.setLastModifiedTime(locate(key), FileTime.from(Instant.now())));
+    }
+
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return Stream.empty();
+        }
+        return metrics.record("list", () -> Files.walk(root)
+                .filter(path -> !path.getFileName().toString().startsWith("."))
+                .map(path -> toStoredObject(path.getFileName().toString(), path))
+                .filter(Objects::nonNull));
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(locate(key));
+    }
+
+    /**
+     * Nombres de hasta {@code maxFiles} ficheros que siguen en la raíz plana de {@code uploads/}
+     * (sin temporales ni ficheros ocultos), salvo los de {@code skip}.
+     */
+    public List<String> listFlat(int maxFiles, Set<String> skip) throws IOException {
+        List<String> names = new ArrayList<>(maxFiles);
+        if (!Files.isDirectory(root)) {
+            return names;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root,
+                entry -> Files.isRegularFile(entry) && !entry.getFileName().toString().startsWith(".")
+                        && !skip.contains(entry.getFileName().toString()))) {
+            for (Path entry : entries) {
+                names.add(entry.getFileName().toString());
+                if (names.size() >= maxFiles) {
+                    break;
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Mueve un fichero de la raíz plana a su subdirectorio con un rename atómico, de modo que en todo
+     * momento existe en una de las dos ubicaciones.
+     *
+     * @param sameContent true si un mismo nombre implica mismo contenido (blobs): si ya está en su
+     *                    subdirectorio, la copia plana sobra y se borra.
+     * @return true si se ha movido (o descartado por duplicada).
+     */
+    public boolean moveToShard(String key, boolean sameContent) throws IOException {
+        Path flat = root.resolve(key);
+        Path sharded = shardedPath(key);
+        if (!Files.exists(flat)) {
+            return false;
+        }
+        if (Files.exists(sharded)) {
+            if (sameContent) {
+                Files.deleteIfExists(flat);
+                return true;
+            }
+            logger.warn("{} existe en la raíz y en su subdirectorio; se deja sin mover", key);
+            return false;
+        }
+        moveIntoPlace(flat, sharded);
+        return true;
+    }
+
+    /**
+     * Ubicación del fichero: la repartida si existe, si no la plana anterior y, si no existe en ninguna,
+     * la repartida (puede haberse movido justo entre las dos comprobaciones).
+     */
+    private Path locate(String key) {
+        Path sharded = shardedPath(key);
+        if (Files.exists(sharded)) {
+            return sharded;
+        }
+        Path flat = root.resolve(key);
+        if (Files.exists(flat)) {
+            return flat;
+        }
+        return sharded;
+    }
+
+    /**
+     * Ubicación repartida de un fichero: {@code uploads/ab/cd/<nombre>}. Los nombres que generamos (SHA-256
+     * o UUID) ya empiezan por hexadecimal aleatorio y se usan sus cuatro primeros caracteres; para cualquier
+     * otro nombre se usa el hash del propio nombre.
+     */
+    private Path shardedPath(String key) {
+        String prefix = key.length() >= 4 ? key.substring(0, 4).toLowerCase(Locale.ROOT) : "";
+        if (!HEX_SHARD_PREFIX.matcher(prefix).matches()) {
+            prefix = HexFormat.of().formatHex(sha256(key.getBytes(StandardCharsets.UTF_8)), 0, 2);
+        }
+        return root.resolve(prefix.substring(0, 2)).resolve(prefix.substring(2, 4)).resolve(key);
+    }
+
+    private void moveIntoPlace(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            logger.warn("El sistema de ficheros no admite move atómico; se mueve de forma normal a {}", target);
+            Files.move(source, target);
+        }
+    }
+
+    /** Datos del fichero, o null si no existe o no es un fichero regular. */
+    private static StoredObject toStoredObject(String key, Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            return new StoredObject(key, attributes.size(), attributes.lastModifiedTime().toInstant());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("No se pudieron leer los atributos de {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible en la JVM", e);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.AsyncConfig;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.MailOutboxRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.MailOutboxRepository.OutboxMessage;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.MailOutboxRepository.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vacía la bandeja de salida de emails ({@code mail_outbox}) en segundo plano.
+ * <p>
+ * Cada pasada reclama lotes de mensajes cuyo turno ha llegado y los envía por SMTP en el pool
+ * {@link AsyncConfig#MAIL_EXECUTOR}, esperando a que termine cada lote antes de reclamar el siguiente.
+ * Tras un fallo el mensaje se reintenta con espera exponencial ({@code initial-backoff} × 2^(intento-1),
+ * hasta {@code max-backoff}); pasa a DEAD al agotar {@code max-attempts} o si el error es permanente
+ * (mensaje mal formado, destinatario rechazado con 5xx). Cualquier otro error inesperado se trata como
+ * transitorio, así que nunca interrumpe la pasada.
+ * </p>
+ * <p>
+ * La entrega es "al menos una vez": si el nodo se cae entre el envío y el registro del resultado, el
+ * mensaje se vuelve a enviar cuando vence su reserva ({@code lease}), salvo que ya hubiera agotado sus
+ * intentos: entonces pasa a DEAD.
+ * </p>
+ * <p>
+ * Métricas: {@code mail.outbox.messages{status}} (mensajes por estado, actualizado en cada pasada) y
+ * {@code mail.outbox.deliveries{outcome}} (duración de cada intento de envío: sent, retry o dead).
+ * </p>
+ */
+@Service
+public class MailOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailOutboxDispatcher.class);
+
+    /** Enviados antiguos que se borran como máximo por pasada. */
+    private static final int PURGE_LIMIT = 1000;
+
+    private enum Outcome { SENT, RETRY, DEAD }
+
+    private final MailOutboxRepository mailOutboxRepository;
+
+    private final JavaMailSender mailSender;
+
+    private final Executor mailExecutor;
+
+    private final String defaultFrom;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final int maxAttempts;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    private final Duration lease;
+
+    private final Duration retention;
+
+    private final Map<Status, AtomicLong> messagesByStatus = new EnumMap<>(Status.class);
+
+    private final Map<Outcome, Timer> deliveries = new EnumMap<>(Outcome.class);
+
+    private final MeterRegistry meterRegistry;
+
+
+    public MailOutboxDispatcher(MailOutboxRepository mailOutboxRepository,
+                                JavaMailSender mailSender,
+                                @Qualifier(AsyncConfig.MAIL_EXECUTOR) Executor mailExecutor,
+                                MeterRegistry meterRegistry,
+                                @Value("${spring.mail.from:}") String defaultFrom,
+                                @Value("${app.mail.outbox.enabled:true}") boolean enabled,
+                                @Value("${app.mail.outbox.batch-size:20}") int batchSize,
+                                @Value("${app.mail.outbox.max-attempts:8}") int maxAttempts,
+                                @Value("${app.mail.outbox.initial-backoff:PT30S}") Duration initialBackoff,
+                                @Value("${app.mail.outbox.max-backoff:PT1H}") Duration maxBackoff,
+                                @Value("${app.mail.outbox.lease:PT5M}") Duration lease,
+                                @Value("${app.mail.outbox.retention:P7D}") Duration retention) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailSender = mailSender;
+        this.mailExecutor = mailExecutor;
+        this.meterRegistry = meterRegistry;
+        this.defaultFrom = defaultFrom;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.retention = retention;
+
+        for (Status status : Status.values()) {
+            AtomicLong count = new AtomicLong();
+            messagesByStatus.put(status, count);
+            Gauge.builder("mail.outbox.messages", count, AtomicLong::get)
+                    .tag("status", status.name().toLowerCase(Locale.ROOT))
+                    .description("Mensajes de la bandeja de salida por estado")
+                    .register(meterRegistry);
+        }
+        for (Outcome outcome : Outcome.values()) {
+            deliveries.put(outcome, Timer.builder("mail.outbox.deliveries")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .description("Intentos de envío SMTP de la bandeja de salida")
+                    .register(meterRegistry));
+        }
+    }
+
+
+    @Scheduled(initialDelayString = "${app.mail.outbox.poll-interval:PT5S}",
+            fixedDelayString = "${app.mail.outbox.poll-interval:PT5S}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int expired = mailOutboxRepository.markExpiredLeasesDead(maxAttempts);
+            if (expired > 0) {
+                logger.error("Bandeja de salida: {} emails descartados por reserva vencida tras agotar los intentos", expired);
+            }
+            int claimed;
+            do {
+                List<OutboxMessage> batch = mailOutboxRepository.claimDue(batchSize, lease, maxAttempts);
+                claimed = batch.size();
+                CompletableFuture.allOf(batch.stream()
+                        .map(message -> CompletableFuture.runAsync(() -> deliver(message), mailExecutor))
+                        .toArray(CompletableFuture[]::new)).join();
+            } while (claimed == batchSize && !Thread.currentThread().isInterrupted());
+        } catch (RuntimeException e) {
+            // Los mensajes reclamados y sin resultado siguen en SENDING hasta que vence su reserva
+            logger.error("Error al procesar la bandeja de salida de emails: {}", e.getMessage(), e);
+        }
+
+        try {
+            int purged = mailOutboxRepository.deleteSentBefore(retention, PURGE_LIMIT);
+            if (purged > 0) {
+                logger.info("Bandeja de salida: {} emails enviados antiguos eliminados", purged);
+            }
+            mailOutboxRepository.countByStatus().forEach((status, count) -> messagesByStatus.get(status).set(count));
+        } catch (DataAccessException e) {
+            logger.error("Error al limpiar la bandeja de salida de emails: {}", e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Espera antes del siguiente intento tras {@code attempts} intentos fallidos.
+     */
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(Math.max(attempts - 1, 0), 30));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+
+    private void deliver(OutboxMessage message) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Outcome outcome;
+        String error = null;
+        try {
+            send(message);
+            outcome = Outcome.SENT;
+        } catch (MailException e) {
+            error = e.getMessage();
+            outcome = isPermanent(e) || message.attempts() >= maxAttempts ? Outcome.DEAD : Outcome.RETRY;
+        } catch (RuntimeException e) {
+            logger.error("Error inesperado al enviar el email {}: {}", message.id(), e.getMessage(), e);
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            outcome = message.attempts() >= maxAttempts ? Outcome.DEAD : Outcome.RETRY;
+        }
+        sample.stop(deliveries.get(outcome));
+
+        try {
+            switch (outcome) {
+                case SENT -> mailOutboxRepository.markSent(message.id());
+                case RETRY -> {
+                    Duration delay = backoff(message.attempts());
+                    logger.warn("Email {} a {} no enviado (intento {}), se reintenta en {}: {}",
+                            message.id(), message.recipient(), message.attempts(), delay, error);
+                    mailOutboxRepository.markRetry(message.id(), delay, error);
+                }
+                case DEAD -> {
+                    logger.error("Email {} a {} descartado tras {} intentos: {}",
+                            message.id(), message.recipient(), message.attempts(), error);
+                    mailOutboxRepository.markDead(message.id(), error);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Sigue en SENDING: al vencer la reserva se vuelve a procesar (o pasa a DEAD si ya no le quedan intentos)
+            logger.error("No se pudo registrar el resultado del email {}: {}", message.id(), e.getMessage(), e);
+        }
+    }
+
+
+    private void send(OutboxMessage message) {
+        MimeMessage mime = mailSender.createMimeMessage();
+        try {
+            MimeMessageHelper helper = new MimeMessageHelper(mime, StandardCharsets.UTF_8.name());
+            if (defaultFrom != null && !defaultFrom.isBlank()) {
+                helper.setFrom(defaultFrom);
+            }
+            helper.setTo(message.recipient());
+            helper.setSubject(message.subject());
+            helper.setText(message.body(), message.html());
+        } catch (MessagingException e) {
+            throw new MailPreparationException("Email could not be prepared.", e);
+        }
+        mailSender.send(mime);
+    }
+
+
+    /**
+     * Errores que no se arreglan reintentando: mensaje mal formado o destinatario rechazado de forma
+     * permanente (respuesta 5xx al {@code RCPT TO}, que el proveedor de JavaMail informa como dirección inválida).
+     */
+    private static boolean isPermanent(MailException e) {
+        if (e instanceof MailParseException || e instanceof MailPreparationException) {
+            return true;
+        }
+        if (e instanceof MailSendException sendException) {
+            for (Exception failure : sendException.getMessageExceptions()) {
+                if (failure instanceof SendFailedException sendFailed
+                        && sendFailed.getInvalidAddresses() != null && sendFailed.getInvalidAddresses().length > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
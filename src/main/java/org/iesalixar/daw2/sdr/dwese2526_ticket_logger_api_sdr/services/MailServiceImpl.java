@@ -1,27 +1,32 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
 
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.MailOutboxRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 
 
-import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 import java.util.Map;
 
+/**
+ * Envío de emails mediante bandeja de salida.
+ * <p>
+ * Los métodos no hablan con el servidor SMTP: dejan el mensaje ya renderizado en {@code mail_outbox},
+ * dentro de la transacción del llamante si la hay (el email solo sale si la operación hace commit), y
+ * {@link MailOutboxDispatcher} lo envía en segundo plano con reintentos. Así la latencia de la petición
+ * no depende del servidor de correo, ni falla si este está caído.
+ * </p>
+ */
 @Service
 public class MailServiceImpl implements MailService{
-    /** Cliente SMTP de Spring (crea y envía mensajes Mime). */
+    /** Bandeja de salida donde se encolan los mensajes. */
     @Autowired
-    private JavaMailSender mailSender;
+    private MailOutboxRepository mailOutboxRepository;
 
 
     /** Fuente de mensajes para i18n (asuntos y textos por claves). */
@@ -35,41 +40,35 @@ public class MailServiceImpl implements MailService{
 
 
     /**
-     * Remitente por defecto (application.properties).
-     * <p>Con Gmail suele coincidir con {@code spring.mail.username}.</p>
-     */
-    @Value("${spring.mail.from:}")
-    private String defaultFrom;
-
-
-    /**
-     * Envía un email en texto plano.
+     * Encola un email en texto plano.
      *
      * @param to destinatario
      * @param subject asunto
      * @param text cuerpo en texto plano
      */
     @Override
+    @Transactional
     public void sendText(String to, String subject, String text) {
         send(to, subject, text, false);
     }
 
 
     /**
-     * Envía un email en HTML.
+     * Encola un email en HTML.
      *
      * @param to destinatario
      * @param subject asunto
      * @param html cuerpo en HTML
      */
     @Override
+    @Transactional
     public void sendHtml(String to, String subject, String html) {
         send(to, subject, html, true);
     }
 
 
     /**
-     * Envía un email HTML renderizado desde una plantilla Thymeleaf.
+     * Encola un email HTML renderizado desde una plantilla Thymeleaf (se renderiza ahora, con el locale del usuario).
      * <p>
      * El asunto se obtiene por i18n usando {@code subjectKey}. El cuerpo se genera
      * renderizando {@code templateName} con las {@code variables} y añadiendo variables base:
@@ -83,6 +82,7 @@ public class MailServiceImpl implements MailService{
      * @param locale locale del usuario
      */
     @Override
+    @Transactional
     public void sendTemplate(String to,
                              String subjectKey,
                              String templateName,
@@ -105,36 +105,15 @@ public class MailServiceImpl implements MailService{
 
 
     /**
-     * Envía un {@link MimeMessage} con cuerpo en texto plano o HTML.
+     * Deja el mensaje pendiente en la bandeja de salida.
      *
      * @param to destinatario
      * @param subject asunto
      * @param body cuerpo del mensaje
      * @param isHtml {@code true} si el cuerpo es HTML; {@code false} si es texto plano
-     * @throws IllegalStateException si falla la construcción o el envío por SMTP
      */
     private void send(String to, String subject, String body, boolean isHtml) {
-        try {
-            MimeMessage msg = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(msg, StandardCharsets.UTF_8.name());
-
-
-            if (defaultFrom != null && !defaultFrom.isBlank()) {
-                helper.setFrom(defaultFrom);
-            }
-
-
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(body, isHtml);
-
-
-            mailSender.send(msg);
-
-
-        } catch (MessagingException e) {
-            throw new IllegalStateException("Email could not be sent.", e);
-        }
+        mailOutboxRepository.enqueue(to, subject, body, isHtml);
     }
 
 }
@@ -0,0 +1,113 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.AsyncConfig;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.StoredFileRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.UserProfileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Recolector periódico de ficheros subidos que ya no usa ningún perfil.
+ * <p>
+ * Recorre el almacén de subidas como un stream (sin cargar el listado completo en memoria) y contrasta
+ * los ficheros por lotes con {@code user_profiles} (imagen y miniaturas) y con los contadores de
+ * {@code stored_files} (p. ej. una subida reanudable completada, que aún no usa ningún perfil) mediante
+ * consultas {@code IN (...)} por lote. Solo se borran los no referenciados cuya última modificación sea anterior al
+ * periodo de gracia, para no tocar subidas cuya transacción aún no ha hecho commit. También elimina los
+ * temporales de subida abandonados (p. ej. tras una caída a mitad de copia).
+ * </p>
+ */
+@Service
+public class OrphanFileCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrphanFileCollector.class);
+
+    private static final String WEB_PREFIX = "/uploads/";
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Value("${app.storage.orphan-collector.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.orphan-collector.grace:PT24H}")
+    private Duration grace;
+
+    @Value("${app.storage.orphan-collector.chunk-size:500}")
+    private int chunkSize;
+
+    @Async(AsyncConfig.STORAGE_MAINTENANCE_EXECUTOR)
+    @Scheduled(initialDelayString = "${app.storage.orphan-collector.initial-delay:PT10M}",
+            fixedDelayString = "${app.storage.orphan-collector.interval:PT6H}")
+    public void collect() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Instant cutoff = Instant.now().minus(grace);
+        long scanned = 0;
+        long deleted = 0;
+
+        // Ruta web -> nombre en el almacén (con el backend local puede aparecer en la raíz plana y en su subdirectorio)
+        Map<String, String> chunk = new LinkedHashMap<>();
+        try (Stream<StorageBackend.StoredObject> files = fileStorageService.listStoredFiles()) {
+            Iterator<StorageBackend.StoredObject> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                StorageBackend.StoredObject file = iterator.next();
+                scanned++;
+                if (!file.lastModified().isBefore(cutoff)) {
+                    continue;
+                }
+                chunk.put(WEB_PREFIX + file.key(), file.key());
+                if (chunk.size() >= chunkSize) {
+                    deleted += deleteUnreferenced(chunk, cutoff);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                deleted += deleteUnreferenced(chunk, cutoff);
+            }
+            deleted += fileStorageService.deleteStaleTemporaryFiles(cutoff);
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Error recorriendo el almacén de subidas en busca de ficheros huérfanos: {}", e.getMessage(), e);
+        }
+        logger.info("Recolector de huérfanos: {} ficheros revisados, {} borrados en {} ms",
+                scanned, deleted, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int deleteUnreferenced(Map<String, String> chunk, Instant cutoff) throws IOException {
+        Set<String> referenced = new HashSet<>(userProfileRepository.findReferencedImages(chunk.keySet()));
+        Set<String> registered = new HashSet<>(storedFileRepository.findReferenced(chunk.values()));
+        int deleted = 0;
+        for (Map.Entry<String, String> entry : chunk.entrySet()) {
+            if (!referenced.contains(entry.getKey()) && !registered.contains(entry.getValue())
+                    && fileStorageService.deleteOrphan(entry.getValue(), cutoff)) {
+                logger.debug("Fichero huérfano eliminado: {}", entry.getValue());
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+}
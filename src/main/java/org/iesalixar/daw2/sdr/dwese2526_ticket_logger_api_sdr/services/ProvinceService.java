@@ -1,21 +1,30 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
 
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.*;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ExportWriter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
 
 
 public interface ProvinceService {
 
     Page<ProvinceDTO> list(Pageable pageable);
+    CursorPageDTO<ProvinceDTO> listByCursor(String cursor, int size);
+    EstimatedPageDTO<ProvinceDTO> listApproximate(Pageable pageable);
     ProvinceUpdateDTO getForEdit(Long id);
     ProvinceDTO create(ProvinceCreateDTO dto);
     ProvinceDTO update(ProvinceUpdateDTO dto);
+    void patch(Long id, ProvincePatchDTO patch);
     void delete(Long id);
+    BulkDeleteResultDTO deleteAll(Collection<Long> ids);
+    BulkDeleteResultDTO deleteByRegion(Long regionId);
     ProvinceDetailDTO getDetail(Long id);
     List<RegionDTO> listRegionsForSelect();
+    long export(ExportWriter.Format format, OutputStream out);
 
 
 
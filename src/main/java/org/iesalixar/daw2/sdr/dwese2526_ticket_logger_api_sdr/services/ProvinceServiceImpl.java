@@ -1,38 +1,111 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
 
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.*;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Province;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Region;
-import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.DuplicateResourceException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ResourceChangedEvent;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.ResourceNotFoundException;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.mappers.ProvinceMapper;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.mappers.RegionMapper;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.PartialUpdateRepository;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.ProvinceRepository;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.RegionRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.TableStatisticsRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ChunkedDeleter;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.CursorCodec;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ExportWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class ProvinceServiceImpl implements ProvinceService{
 
+    private static final List<ExportWriter.Column<ProvinceDTO>> EXPORT_COLUMNS = List.of(
+            new ExportWriter.Column<>("id", ProvinceDTO::getId),
+            new ExportWriter.Column<>("code", ProvinceDTO::getCode),
+            new ExportWriter.Column<>("name", ProvinceDTO::getName),
+            new ExportWriter.Column<>("regionName", ProvinceDTO::getRegionName)
+    );
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private ProvinceRepository provinceRepository;
 
     @Autowired
     private RegionRepository regionRepository;
 
+    @Autowired
+    private PartialUpdateRepository partialUpdateRepository;
+
+    @Value("${app.bulk-delete.chunk-size:500}")
+    private int deleteChunkSize;
+
+    @Autowired
+    private CursorCodec cursorCodec;
+
+    @Autowired
+    private TableCountCache tableCountCache;
+
+    @Autowired
+    private TableStatisticsRepository tableStatisticsRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
     @Override
+    @Transactional(readOnly = true)
     public Page<ProvinceDTO> list(Pageable pageable) {
-        return provinceRepository.findAll(pageable).map(ProvinceMapper::toDTO);
+        // El contenido se pide sin COUNT(*); el total sale de la caché y solo si hace falta
+        Slice<ProvinceDTO> slice = provinceRepository.findSliceAsDTO(pageable);
+        return PageableExecutionUtils.getPage(slice.getContent(), pageable,
+                () -> tableCountCache.get("province", provinceRepository::count));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public EstimatedPageDTO<ProvinceDTO> listApproximate(Pageable pageable) {
+        Slice<ProvinceDTO> slice = provinceRepository.findSliceAsDTO(pageable);
+        return EstimatedPageDTO.of(slice, tableStatisticsRepository.estimateRowCount("provinces"));
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProvinceDTO> listByCursor(String cursor, int size) {
+        CursorCodec.Position position = cursorCodec.decode("province", cursor);
+        // Se pide una fila de más para saber si existe página siguiente sin hacer COUNT(*)
+        List<ProvinceDTO> rows = (position == null)
+                ? provinceRepository.findKeysetFirst(Limit.of(size + 1))
+                : provinceRepository.findKeysetAfter(position.getSortKey(), position.getId(), Limit.of(size + 1));
+
+        return CursorPageDTO.of(rows, size,
+                last -> cursorCodec.encode("province", last.getName(), last.getId()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public ProvinceUpdateDTO getForEdit(Long id) {
         Province province = provinceRepository.findById(id)
                 .orElseThrow(()-> new ResourceNotFoundException("province", "id", id));
@@ -41,48 +114,130 @@ public class ProvinceServiceImpl implements ProvinceService{
 
     @Override
     public ProvinceDTO create(ProvinceCreateDTO dto) {
-        if (provinceRepository.existsByCode(dto.getCode())){
-            throw new DuplicateResourceException("province", "code", dto.getCode());
-        }
         Province province = ProvinceMapper.toEntity(dto);
-        province = provinceRepository.save(province);
-        return ProvinceMapper.toDTO(province);
+        // Sin comprobación previa: el índice UNIQUE de code detecta el duplicado (también entre peticiones simultáneas)
+        Province saved = provinceRepository.saveAndFlush(province);
+        eventPublisher.publishEvent(ResourceChangedEvent.created("province", saved.getId()));
+        return ProvinceMapper.toDTO(saved);
     }
 
     @Override
     public ProvinceDTO update(ProvinceUpdateDTO dto) {
-        if (provinceRepository.existsByCodeAndIdNot(dto.getCode(), dto.getId())){
-            throw new DuplicateResourceException("province", "code", dto.getId());
-
-        }
         Province province = provinceRepository.findById(dto.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("province" ,"id", dto.getId()));
 
         ProvinceMapper.copyToExistingEntity(dto, province);
-        province = provinceRepository.save(province);
-        return ProvinceMapper.toDTO(province);
+        Province saved = provinceRepository.saveAndFlush(province);
+        eventPublisher.publishEvent(ResourceChangedEvent.updated("province", saved.getId()));
+        return ProvinceMapper.toDTO(saved);
+    }
+
+    /**
+     * Actualización parcial: un único UPDATE con las columnas recibidas, sin leer antes la provincia.
+     * El código duplicado lo detecta el índice UNIQUE; la región nueva sí se comprueba para responder 404.
+     */
+    @Override
+    public void patch(Long id, ProvincePatchDTO patch) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        if (patch.has("code")) changes.put("code", patch.getCode());
+        if (patch.has("name")) changes.put("name", patch.getName());
+        if (patch.has("regionId")) {
+            if (!regionRepository.existsById(patch.getRegionId())) {
+                throw new ResourceNotFoundException("region", "id", patch.getRegionId());
+            }
+            changes.put("region", partialUpdateRepository.reference(Region.class, patch.getRegionId()));
+        }
+
+        if (changes.isEmpty()) {
+            if (!provinceRepository.existsById(id)) {
+                throw new ResourceNotFoundException("province", "id", id);
+            }
+            return;
+        }
+        int updated = partialUpdateRepository.updateById(Province.class, id, changes);
+        if (updated == 0) {
+            throw new ResourceNotFoundException("province", "id", id);
+        }
+        eventPublisher.publishEvent(ResourceChangedEvent.updated("province", id));
     }
 
     @Override
     public void delete(Long id) {
-        if (!provinceRepository.existsById(id)) {
+        BulkDeleteResultDTO result = deleteAll(List.of(id));
+        if (result.getDeleted().isEmpty()) {
             throw new ResourceNotFoundException("province", "id", id);
         }
-        provinceRepository.deleteById(id);
+    }
+
+    /**
+     * Borrado masivo por bloques: por cada bloque, un SELECT de los ids existentes y un DELETE por conjunto.
+     */
+    @Override
+    public BulkDeleteResultDTO deleteAll(Collection<Long> ids) {
+        BulkDeleteResultDTO result = ChunkedDeleter.delete("province", ids, deleteChunkSize,
+                provinceRepository::findExistingIds,
+                provinceRepository::deleteAllByIdIn);
+        publishDeleted(result);
+        return result;
+    }
+
+    /**
+     * Borra todas las provincias de una región. Los ids salen de una sola consulta, así que los
+     * bloques ya no necesitan comprobar cuáles existen.
+     */
+    @Override
+    public BulkDeleteResultDTO deleteByRegion(Long regionId) {
+        if (!regionRepository.existsById(regionId)) {
+            throw new ResourceNotFoundException("region", "id", regionId);
+        }
+        BulkDeleteResultDTO result = ChunkedDeleter.delete("province", provinceRepository.findIdsByRegionId(regionId),
+                deleteChunkSize, chunk -> chunk, provinceRepository::deleteAllByIdIn);
+        publishDeleted(result);
+        return result;
+    }
+
+    private void publishDeleted(BulkDeleteResultDTO result) {
+        if (!result.getDeleted().isEmpty()) {
+            eventPublisher.publishEvent(ResourceChangedEvent.deleted("province", result.getDeleted()));
+        }
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ProvinceDetailDTO getDetail(Long id) {
+        if (referenceDataCache.isEnabled()) {
+            Optional<ProvinceDetailDTO> cached = referenceDataCache.findProvinceDetail(id);
+            if (cached.isPresent()) return cached.get();
+        }
         Province province = provinceRepository.findByIdWithRegion(id)
                 .orElseThrow(() -> new ResourceNotFoundException("province", "id", id));
         return ProvinceMapper.toDetailDTO(province);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<RegionDTO> listRegionsForSelect() {
+        if (referenceDataCache.isEnabled()) {
+            Optional<List<RegionDTO>> cached = referenceDataCache.listRegions();
+            if (cached.isPresent()) return cached.get();
+        }
         List<Region> regions = regionRepository.findAll();
         return RegionMapper.toDTOList(regions);
     }
 
-
+    /**
+     * Exporta todas las provincias al stream indicado leyendo de un cursor del servidor.
+     * La consulta es una proyección a DTO, así que no hay entidades que desvincular.
+     *
+     * @return número de filas exportadas.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long export(ExportWriter.Format format, OutputStream out) {
+        try (Stream<ProvinceDTO> provinces = provinceRepository.streamAllAsDTO();
+             ExportWriter<ProvinceDTO> writer = new ExportWriter<>(format, out, objectMapper, EXPORT_COLUMNS)) {
+            provinces.forEach(writer::write);
+            return writer.getRows();
+        }
+    }
 }
@@ -0,0 +1,291 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.AsyncConfig;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.ReadYourWritesContext;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ProvinceDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ProvinceDetailDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionDetailDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Region;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ResourceChangedEvent;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.mappers.ProvinceMapper;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.mappers.RegionMapper;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.ProvinceRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.RegionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instantánea en memoria de los datos de referencia (regiones y provincias).
+ * <p>
+ * Son tablas pequeñas que casi nunca cambian, así que se cargan completas en una estructura
+ * inmutable (id→DTO, región→provincias). Las lecturas no usan bloqueos: leen la referencia
+ * {@code volatile} a la instantánea actual. Cada alta, modificación o baja de una región o provincia
+ * pide, tras el commit, una instantánea nueva que se publica de forma atómica (copy-on-write).
+ * </p>
+ * <p>
+ * La reconstrucción no se hace en el hilo de la petición: se encola en
+ * {@link AsyncConfig#REFERENCE_DATA_EXECUTOR} y los cambios que llegan mientras hay una pendiente se
+ * agrupan en ella (una ráfaga de escrituras cuesta como mucho una reconstrucción en curso y otra
+ * pendiente). Lee siempre del primario, porque la réplica puede no tener aún el cambio. Mientras la
+ * instantánea no incluya todos los cambios confirmados las consultas devuelven vacío y los servicios
+ * leen de la BD, así que nadie ve datos anteriores a su propia escritura.
+ * </p>
+ * <p>
+ * Con {@code app.reference-cache.enabled=false} los servicios leen directamente de los repositorios.
+ * </p>
+ */
+@Service
+public class ReferenceDataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    /**
+     * Estado inmutable de los datos de referencia en un momento dado.
+     */
+    private static final class Snapshot {
+        private final Map<Long, RegionDetailDTO> regionsById;
+        private final List<RegionDTO> regions;
+        private final Map<Long, ProvinceDetailDTO> provincesById;
+
+        private Snapshot(Map<Long, RegionDetailDTO> regionsById,
+                         List<RegionDTO> regions,
+                         Map<Long, ProvinceDetailDTO> provincesById) {
+            this.regionsById = Map.copyOf(regionsById);
+            this.regions = List.copyOf(regions);
+            this.provincesById = Map.copyOf(provincesById);
+        }
+    }
+
+    private final RegionRepository regionRepository;
+    private final ProvinceRepository provinceRepository;
+    private final TransactionTemplate readTransaction;
+    private final Executor rebuildExecutor;
+    private final boolean enabled;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer rebuilds;
+
+    private volatile Snapshot snapshot;
+
+    /** Cambios confirmados (se incrementa con cada uno). */
+    private final AtomicLong changes = new AtomicLong();
+
+    /** Cambios incluidos en la instantánea publicada. */
+    private volatile long snapshotChanges;
+
+    /** Hay una reconstrucción encolada que aún no ha empezado. */
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    public ReferenceDataCache(RegionRepository regionRepository,
+                              ProvinceRepository provinceRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Qualifier(AsyncConfig.REFERENCE_DATA_EXECUTOR) Executor rebuildExecutor,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.reference-cache.enabled:true}") boolean enabled) {
+        this.regionRepository = regionRepository;
+        this.provinceRepository = provinceRepository;
+        this.rebuildExecutor = rebuildExecutor;
+        this.enabled = enabled;
+
+        // Transacción nueva y propia (también si se reconstruye desde dentro de otra)
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+
+        this.hits = Counter.builder("reference.data.reads").tag("result", "hit")
+                .description("Lecturas servidas desde la instantánea de datos de referencia")
+                .register(meterRegistry);
+        this.misses = Counter.builder("reference.data.reads").tag("result", "miss")
+                .description("Lecturas que no estaban en la instantánea y fueron a la BD")
+                .register(meterRegistry);
+        this.rebuilds = Timer.builder("reference.data.rebuilds")
+                .description("Reconstrucciones de la instantánea de datos de referencia")
+                .register(meterRegistry);
+        Gauge.builder("reference.data.size", this, c -> c.snapshot == null ? 0 : c.snapshot.regionsById.size())
+                .tag("resource", "region").register(meterRegistry);
+        Gauge.builder("reference.data.size", this, c -> c.snapshot == null ? 0 : c.snapshot.provincesById.size())
+                .tag("resource", "province").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Carga la primera instantánea cuando la aplicación ya ha inicializado la BD (schema.sql/data.sql).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled) rebuild();
+    }
+
+    /**
+     * Pide una instantánea nueva tras el commit de cualquier cambio en regiones o provincias.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (!enabled) return;
+        if ("region".equals(event.getResource()) || "province".equals(event.getResource())) {
+            changes.incrementAndGet();
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Encola una reconstrucción, salvo que ya haya una encolada sin empezar (que incluirá este cambio).
+     */
+    private void scheduleRebuild() {
+        if (!rebuildQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuildExecutor.execute(() -> {
+                // Los cambios que lleguen a partir de aquí pueden no verse en esta lectura: encolan otra
+                rebuildQueued.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    logger.error("Error al reconstruir la instantánea de datos de referencia: {}", e.getMessage(), e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            rebuildQueued.set(false);
+            logger.warn("No se pudo encolar la reconstrucción de datos de referencia: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Lee regiones y provincias del primario (dos consultas) y publica una instantánea nueva.
+     * Sincronizado para que dos reconstrucciones no publiquen instantáneas fuera de orden.
+     */
+    public synchronized void rebuild() {
+        long includedChanges = changes.get();
+        Snapshot fresh = rebuilds.record(() ->
+                ReadYourWritesContext.onPrimary(() -> readTransaction.execute(status -> load())));
+        this.snapshot = fresh;
+        this.snapshotChanges = includedChanges;
+        logger.info("Instantánea de datos de referencia reconstruida: {} regiones, {} provincias.",
+                fresh.regionsById.size(), fresh.provincesById.size());
+    }
+
+    /**
+     * Detalle de una región (con sus provincias), o vacío si no está o la instantánea no está al día.
+     */
+    public Optional<RegionDetailDTO> findRegionDetail(Long id) {
+        Snapshot current = current();
+        return record(current == null ? null : current.regionsById.get(id)).map(ReferenceDataCache::copy);
+    }
+
+    /**
+     * Todas las regiones (para selects), o vacío si la instantánea no está al día.
+     */
+    public Optional<List<RegionDTO>> listRegions() {
+        Snapshot current = current();
+        return record(current == null ? null : current.regions)
+                .map(regions -> regions.stream().map(ReferenceDataCache::copy).toList());
+    }
+
+    /**
+     * Detalle de una provincia (con su región), o vacío si no está o la instantánea no está al día.
+     */
+    public Optional<ProvinceDetailDTO> findProvinceDetail(Long id) {
+        Snapshot current = current();
+        return record(current == null ? null : current.provincesById.get(id)).map(ReferenceDataCache::copy);
+    }
+
+    private <T> Optional<T> record(T found) {
+        if (found != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return Optional.ofNullable(found);
+    }
+
+    /**
+     * Instantánea actual si incluye todos los cambios confirmados; null si hay una reconstrucción por
+     * llegar. La primera se carga aquí mismo si la petición llega antes que {@link #warmUp()}.
+     */
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            rebuild();
+            current = snapshot;
+        }
+        return snapshotChanges >= changes.get() ? current : null;
+    }
+
+    private Snapshot load() {
+        List<Region> regionEntities = new ArrayList<>(regionRepository.findAll());
+        regionEntities.sort(Comparator.comparing(Region::getId));
+        List<Province> provinceEntities = new ArrayList<>(provinceRepository.findAllWithRegion());
+        provinceEntities.sort(Comparator.comparing(Province::getId));
+
+        Map<Long, List<ProvinceDTO>> provincesByRegion = new HashMap<>();
+        Map<Long, ProvinceDetailDTO> provincesById = new HashMap<>();
+        for (Province province : provinceEntities) {
+            ProvinceDetailDTO detail = ProvinceMapper.toDetailDTO(province);
+            provincesById.put(detail.getId(), detail);
+            provincesByRegion.computeIfAbsent(province.getRegion().getId(), id -> new ArrayList<>())
+                    .add(RegionMapper.toProvinceDTO(province));
+        }
+
+        Map<Long, RegionDetailDTO> regionsById = new HashMap<>();
+        List<RegionDTO> regions = new ArrayList<>();
+        for (Region region : regionEntities) {
+            RegionDTO dto = RegionMapper.toDTO(region);
+            regions.add(dto);
+            regionsById.put(dto.getId(), new RegionDetailDTO(dto.getId(), dto.getCode(), dto.getName(),
+                    List.copyOf(provincesByRegion.getOrDefault(dto.getId(), List.of()))));
+        }
+
+        return new Snapshot(regionsById, regions, provincesById);
+    }
+
+    // Los DTOs son mutables (Lombok @Data): se entrega una copia para que nadie altere la instantánea.
+
+    private static RegionDTO copy(RegionDTO dto) {
+        return new RegionDTO(dto.getId(), dto.getCode(), dto.getName());
+    }
+
+    private static ProvinceDTO copy(ProvinceDTO dto) {
+        return new ProvinceDTO(dto.getId(), dto.getCode(), dto.getName(), dto.getRegionName());
+    }
+
+    private static RegionDetailDTO copy(RegionDetailDTO dto) {
+        return new RegionDetailDTO(dto.getId(), dto.getCode(), dto.getName(),
+                dto.getProvinces().stream().map(ReferenceDataCache::copy).toList());
+    }
+
+    private static ProvinceDetailDTO copy(ProvinceDetailDTO dto) {
+        return new ProvinceDetailDTO(dto.getId(), dto.getCode(), dto.getName(),
+                dto.getRegion() != null ? copy(dto.getRegion()) : null);
+    }
+}
@@ -1,21 +1,34 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
 
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.BulkDeleteResultDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.CursorPageDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.EstimatedPageDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionCreateDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionDetailDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionPatchDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionUpdateDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ExportWriter;
 import org.jspecify.annotations.Nullable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
+import java.io.OutputStream;
+import java.util.Collection;
+
 public interface RegionService {
     Page<RegionDTO> list(Pageable pageable);
+    CursorPageDTO<RegionDTO> listByCursor(String cursor, int size);
+    EstimatedPageDTO<RegionDTO> listApproximate(Pageable pageable);
     RegionUpdateDTO getForEdit(Long id);
     RegionDTO create(RegionCreateDTO dto);
     RegionDTO update(RegionUpdateDTO dto);
+    void patch(Long id, RegionPatchDTO patch);
     void delete(Long id);
+    BulkDeleteResultDTO deleteAll(Collection<Long> ids);
     RegionDetailDTO getDetail( Long id);
+    long export(ExportWriter.Format format, OutputStream out);
     //RegionDTO listAll(Sort name);
 
 }
@@ -1,34 +1,121 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
 
-import jakarta.transaction.Transactional;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.BulkDeleteResultDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.CursorPageDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.EstimatedPageDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionCreateDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionDetailDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionPatchDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionUpdateDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Region;
-import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.DuplicateResourceException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ResourceChangedEvent;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.ResourceNotFoundException;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.mappers.RegionMapper;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.PartialUpdateRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.ProvinceRepository;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.RegionRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.TableStatisticsRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ChunkedDeleter;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.CursorCodec;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ExportWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class RegionServiceImpl implements RegionService {
 
+    private static final List<ExportWriter.Column<RegionDTO>> EXPORT_COLUMNS = List.of(
+            new ExportWriter.Column<>("id", RegionDTO::getId),
+            new ExportWriter.Column<>("code", RegionDTO::getCode),
+            new ExportWriter.Column<>("name", RegionDTO::getName)
+    );
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private RegionRepository regionRepository;
 
+    @Autowired
+    private PartialUpdateRepository partialUpdateRepository;
+
+    @Autowired
+    private ProvinceRepository provinceRepository;
+
+    @Value("${app.bulk-delete.chunk-size:500}")
+    private int deleteChunkSize;
+
+    @Autowired
+    private CursorCodec cursorCodec;
+
+    @Autowired
+    private TableCountCache tableCountCache;
+
+    @Autowired
+    private TableStatisticsRepository tableStatisticsRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
     @Override
+    @Transactional(readOnly = true)
     public Page<RegionDTO> list(Pageable pageable) {
-        return regionRepository.findAll(pageable).map(RegionMapper::toDTO);
+        // El contenido se pide sin COUNT(*); el total sale de la caché y solo si hace falta
+        Slice<RegionDTO> slice = regionRepository.findAllBy(pageable).map(RegionMapper::toDTO);
+        return PageableExecutionUtils.getPage(slice.getContent(), pageable,
+                () -> tableCountCache.get("region", regionRepository::count));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public EstimatedPageDTO<RegionDTO> listApproximate(Pageable pageable) {
+        Slice<RegionDTO> slice = regionRepository.findAllBy(pageable).map(RegionMapper::toDTO);
+        return EstimatedPageDTO.of(slice, tableStatisticsRepository.estimateRowCount("regions"));
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<RegionDTO> listByCursor(String cursor, int size) {
+        CursorCodec.Position position = cursorCodec.decode("region", cursor);
+        // Se pide una fila de más para saber si existe página siguiente sin hacer COUNT(*)
+        List<Region> rows = (position == null)
+                ? regionRepository.findKeysetFirst(Limit.of(size + 1))
+                : regionRepository.findKeysetAfter(position.getSortKey(), position.getId(), Limit.of(size + 1));
+
+        return CursorPageDTO.of(RegionMapper.toDTOList(rows), size,
+                last -> cursorCodec.encode("region", last.getName(), last.getId()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public RegionUpdateDTO getForEdit(Long id) {
         Region region = regionRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("region", "id", id));
         return RegionMapper.toUpdateDTO(region) ;
@@ -36,46 +123,112 @@ public class RegionServiceImpl implements RegionService {
 
     @Override
     public RegionDTO create(RegionCreateDTO dto) {
-        if (regionRepository.existsByCode(dto.getCode())){
-            throw new DuplicateResourceException("region", "code", dto.getCode());
-        }
         Region region = RegionMapper.toEntity(dto);
-        region = regionRepository.save(region);
-        return RegionMapper.toDTO(region);
+        // Sin comprobación previa: el índice UNIQUE de code detecta el duplicado (también entre peticiones simultáneas)
+        Region saved = regionRepository.saveAndFlush(region);
+        eventPublisher.publishEvent(ResourceChangedEvent.created("region", saved.getId()));
+        return RegionMapper.toDTO(saved);
 
     }
 
     @Override
     public RegionDTO update(RegionUpdateDTO dto) {
-
-        if (regionRepository.existsByCodeAndIdNot(dto.getCode(), dto.getId())){
-            throw new DuplicateResourceException("region", "code", dto.getId());
-
-        }
         Region region = regionRepository.findById(dto.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("region" ,"id", dto.getId()));
 
         RegionMapper.copyToExistingEntity(dto, region);
-        region = regionRepository.save(region);
-        return RegionMapper.toDTO(region);
+        Region saved = regionRepository.saveAndFlush(region);
+        eventPublisher.publishEvent(ResourceChangedEvent.updated("region", saved.getId()));
+        return RegionMapper.toDTO(saved);
+
+    }
 
+    /**
+     * Actualización parcial: un único UPDATE con las columnas recibidas, sin leer antes la región.
+     * Si el código choca con otro existente lo detecta el índice UNIQUE.
+     */
+    @Override
+    public void patch(Long id, RegionPatchDTO patch) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        if (patch.has("code")) changes.put("code", patch.getCode());
+        if (patch.has("name")) changes.put("name", patch.getName());
+
+        if (changes.isEmpty()) {
+            if (!regionRepository.existsById(id)) {
+                throw new ResourceNotFoundException("region", "id", id);
+            }
+            return;
+        }
+        int updated = partialUpdateRepository.updateById(Region.class, id, changes);
+        if (updated == 0) {
+            throw new ResourceNotFoundException("region", "id", id);
+        }
+        eventPublisher.publishEvent(ResourceChangedEvent.updated("region", id));
     }
 
     @Override
     public void delete(Long id) {
-        if (!regionRepository.existsById(id)){
+        BulkDeleteResultDTO result = deleteAll(List.of(id));
+        if (result.getDeleted().isEmpty()) {
             throw new ResourceNotFoundException("region", "id", id);
+        }
+    }
 
+    /**
+     * Borrado masivo por bloques: por cada bloque, un SELECT de los ids existentes y un DELETE por
+     * conjunto. Como hacía la cascada JPA de {@code Region.provinces}, antes se borran sus provincias.
+     */
+    @Override
+    public BulkDeleteResultDTO deleteAll(Collection<Long> ids) {
+        long[] cascaded = {0};
+        BulkDeleteResultDTO result = ChunkedDeleter.delete("region", ids, deleteChunkSize,
+                regionRepository::findExistingIds,
+                chunk -> {
+                    cascaded[0] += provinceRepository.deleteAllByRegionIdIn(chunk);
+                    regionRepository.deleteAllByIdIn(chunk);
+                });
+        result.setCascaded(cascaded[0]);
+
+        if (cascaded[0] > 0) {
+            // No se conocen los ids de las provincias: evento masivo (invalida el recurso completo)
+            eventPublisher.publishEvent(new ResourceChangedEvent("province", ResourceChangedEvent.ChangeType.DELETED,
+                    List.of(), (int) cascaded[0]));
+        }
+        if (!result.getDeleted().isEmpty()) {
+            eventPublisher.publishEvent(ResourceChangedEvent.deleted("region", result.getDeleted()));
         }
-        regionRepository.deleteById(id);
+        return result;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public RegionDetailDTO getDetail(Long id) {
+        if (referenceDataCache.isEnabled()) {
+            Optional<RegionDetailDTO> cached = referenceDataCache.findRegionDetail(id);
+            if (cached.isPresent()) return cached.get();
+        }
         Region region = regionRepository.findByIdWithProvinces(id)
                 .orElseThrow(() -> new ResourceNotFoundException("region", "id", id));
         return RegionMapper.toDetailDTO(region);
     }
 
-
+    /**
+     * Exporta todas las regiones al stream indicado leyendo de un cursor del servidor.
+     * Cada entidad se desvincula del contexto de persistencia en cuanto se escribe, así
+     * la memoria usada no depende del tamaño de la tabla.
+     *
+     * @return número de filas exportadas.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long export(ExportWriter.Format format, OutputStream out) {
+        try (Stream<Region> regions = regionRepository.streamAllBy();
+             ExportWriter<RegionDTO> writer = new ExportWriter<>(format, out, objectMapper, EXPORT_COLUMNS)) {
+            regions.forEach(region -> {
+                writer.write(RegionMapper.toDTO(region));
+                entityManager.detach(region);
+            });
+            return writer.getRows();
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.AsyncConfig;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.FilesReleasedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Borra los ficheros que una transacción ha dejado de usar, después del commit y fuera del hilo de la petición.
+ * <p>
+ * Si la transacción se deshace no se borra nada (el perfil sigue apuntando a ellos). Si el borrado falla
+ * o la cola está llena, el fichero queda huérfano y lo elimina más tarde {@link OrphanFileCollector}.
+ * </p>
+ */
+@Service
+public class ReleasedFileCleaner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReleasedFileCleaner.class);
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Async(AsyncConfig.FILE_CLEANUP_EXECUTOR)
+    @TransactionalEventListener
+    public void onFilesReleased(FilesReleasedEvent event) {
+        logger.debug("Borrando {} ficheros liberados", event.paths().size());
+        event.paths().forEach(fileStorageService::deleteFile);
+    }
+}
@@ -0,0 +1,98 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ResourceChangedEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versión en memoria de cada recurso, usada para generar los ETags de sus detalles y listados.
+ * <p>
+ * Cada {@link ResourceChangedEvent} confirmado (altas, modificaciones y bajas de los servicios, y los
+ * eventos con el número de filas de la importación masiva) incrementa la versión del recurso, así que un
+ * GET condicional responde 304 comparando el ETag sin consultar la BD ni serializar nada. El detalle de
+ * una región lista sus provincias y las provincias muestran su región, así que un cambio en una también
+ * incrementa la versión de la otra.
+ * </p>
+ * <p>
+ * Las versiones son locales a este nodo y empiezan en cero al arrancar; el ETag incluye un identificador
+ * de arranque para que un reinicio no reutilice ETags anteriores. Los cambios hechos fuera de la
+ * aplicación (SQL a mano) no se ven hasta el siguiente reinicio.
+ * </p>
+ */
+@Service
+public class ResourceVersionTracker {
+
+    /** Recursos cuyas respuestas incluyen datos del recurso clave. */
+    private static final Map<String, List<String>> DEPENDENTS = Map.of(
+            "province", List.of("region"),
+            "region", List.of("province")
+    );
+
+    private final String bootId = UUID.randomUUID().toString().substring(0, 8);
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * ETag fuerte de un recurso individual.
+     *
+     * @param resource recurso (ej. "region").
+     * @param id       id del recurso.
+     * @return ETag entrecomillado, listo para la cabecera.
+     */
+    public String entityETag(String resource, Long id) {
+        return "\"" + resource + "-" + id + "-" + bootId + "-" + versionOf(resource) + "\"";
+    }
+
+    /**
+     * ETag fuerte de un listado. Incluye los parámetros de la petición (página, tamaño, orden, cursor,
+     * modo aproximado...) porque cada combinación produce un cuerpo distinto.
+     *
+     * @param resource recurso (ej. "province").
+     * @param params   parámetros que determinan el contenido del listado.
+     * @return ETag entrecomillado, listo para la cabecera.
+     */
+    public String collectionETag(String resource, Object... params) {
+        String variant = sha256(Arrays.deepToString(params)).substring(0, 16);
+        return "\"" + resource + "s-" + variant + "-" + bootId + "-" + versionOf(resource) + "\"";
+    }
+
+    /**
+     * Incrementa la versión del recurso y de los que lo muestran tras el commit de un cambio.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        increment(event.getResource());
+        for (String dependent : DEPENDENTS.getOrDefault(event.getResource(), List.of())) {
+            increment(dependent);
+        }
+    }
+
+    private void increment(String resource) {
+        versions.computeIfAbsent(resource, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    private long versionOf(String resource) {
+        AtomicLong version = versions.get(resource);
+        return version == null ? 0L : version.get();
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible en la JVM", e);
+        }
+    }
+}
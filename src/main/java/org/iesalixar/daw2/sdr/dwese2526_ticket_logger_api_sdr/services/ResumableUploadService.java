@@ -0,0 +1,38 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UploadSessionCreateDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UploadSessionDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Subidas reanudables por trozos: se abre una sesión con el tamaño y el SHA-256 del fichero, se envían
+ * trozos indicando su offset (tras un corte se consulta el offset confirmado y se continúa desde ahí) y
+ * al finalizar se verifica el contenido y se guarda con {@link FileStorageService}.
+ */
+public interface ResumableUploadService {
+
+    /** Cabecera con el offset de un trozo (petición) o el offset confirmado (respuesta). */
+    String UPLOAD_OFFSET_HEADER = "Upload-Offset";
+
+    UploadSessionDTO create(UploadSessionCreateDTO dto) throws IOException;
+
+    UploadSessionDTO get(String id) throws IOException;
+
+    /**
+     * Escribe un trozo a partir de {@code offset}, que no puede quedar más allá de lo ya confirmado.
+     *
+     * @return offset confirmado tras el trozo.
+     */
+    long writeChunk(String id, long offset, InputStream content) throws IOException;
+
+    /**
+     * Comprueba que se ha recibido el fichero completo y que su SHA-256 es el declarado, y lo guarda.
+     *
+     * @return la sesión con la ruta web del fichero guardado.
+     */
+    UploadSessionDTO complete(String id) throws IOException;
+
+    void cancel(String id) throws IOException;
+}
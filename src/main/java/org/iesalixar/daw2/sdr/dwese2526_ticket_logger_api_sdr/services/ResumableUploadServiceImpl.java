@@ -0,0 +1,326 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.AsyncConfig;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UploadSessionCreateDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UploadSessionDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.InvalidFileException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.ResourceNotFoundException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.UploadOffsetMismatchException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Subidas reanudables sobre el directorio de subidas de {@link FileStorageService}.
+ * <p>
+ * Cada sesión son dos ficheros ocultos en ese directorio (los listados del almacén y el recolector de
+ * huérfanos los ignoran): {@code .resumable-<id>.properties} con lo declarado al abrirla y
+ * {@code .resumable-<id>.part} con los datos. Cada trozo se escribe directamente en su offset con
+ * {@link FileChannel#transferFrom}, sin pasar el cuerpo por un buffer de su tamaño, y se fuerza a disco
+ * antes de confirmar el nuevo offset. El offset confirmado es el tamaño del fichero de datos, así que
+ * sobrevive a reinicios y, si se corta la conexión a mitad de un trozo, lo ya escrito no se vuelve a enviar.
+ * </p>
+ * <p>
+ * Un lock sobre el fichero de datos impide que dos trozos (o un trozo y la finalización) de la misma sesión
+ * se crucen. Al finalizar, el fichero se renombra antes de verificar su SHA-256 para que ningún trozo
+ * rezagado pueda escribir en él, y se entrega a {@link FileStorageService#saveStagedFile} (con el backend
+ * local, un rename atómico). Las sesiones sin actividad durante {@code app.resumable-upload.expiry} se borran.
+ * </p>
+ * <p>
+ * Los datos se preparan en el disco del nodo que recibe la sesión: con varios nodos, las peticiones de una
+ * misma sesión deben llegar al mismo (o el directorio de subidas ser compartido).
+ * </p>
+ */
+@Service
+public class ResumableUploadServiceImpl implements ResumableUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumableUploadServiceImpl.class);
+
+    private static final String RESOURCE = "upload";
+
+    private static final String SESSION_PREFIX = ".resumable-";
+    private static final String DATA_SUFFIX = ".part";
+    private static final String META_SUFFIX = ".properties";
+    private static final String COMPLETING_SUFFIX = ".completing";
+
+    /** Bytes máximos por llamada a transferFrom. */
+    private static final long TRANSFER_CHUNK_BYTES = 1024 * 1024;
+
+    /** Buffer de lectura para calcular el SHA-256 al finalizar. */
+    private static final int DIGEST_BUFFER_BYTES = 64 * 1024;
+
+    private record Session(String id, Path data, Path meta, long length, String sha256, String extension) {
+    }
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Value("${app.resumable-upload.max-length:1GB}")
+    private DataSize maxLength;
+
+    @Value("${app.resumable-upload.expiry:PT24H}")
+    private Duration expiry;
+
+    @Override
+    public UploadSessionDTO create(UploadSessionCreateDTO dto) throws IOException {
+        if (dto.getLength() > maxLength.toBytes()) {
+            throw new InvalidFileException(RESOURCE, "length", dto.getLength(),
+                    ": el máximo es " + maxLength.toBytes() + " bytes");
+        }
+        String id = UUID.randomUUID().toString();
+        Path dir = fileStorageService.uploadsDirectory();
+        Files.createDirectories(dir);
+
+        Properties meta = new Properties();
+        meta.setProperty("length", Long.toString(dto.getLength()));
+        meta.setProperty("sha256", dto.getSha256().toLowerCase(Locale.ROOT));
+        meta.setProperty("extension", dto.getExtension() != null ? dto.getExtension().toLowerCase(Locale.ROOT) : "");
+        try (OutputStream out = Files.newOutputStream(dir.resolve(SESSION_PREFIX + id + META_SUFFIX), StandardOpenOption.CREATE_NEW)) {
+            meta.store(out, null);
+        }
+        Files.createFile(dir.resolve(SESSION_PREFIX + id + DATA_SUFFIX));
+
+        logger.info("Subida reanudable {} abierta ({} bytes)", id, dto.getLength());
+        return new UploadSessionDTO(id, dto.getLength(), 0, Instant.now().plus(expiry), null);
+    }
+
+    @Override
+    public UploadSessionDTO get(String id) throws IOException {
+        Session session = load(id);
+        try {
+            return new UploadSessionDTO(id, session.length(), Files.size(session.data()),
+                    lastActivity(session).plus(expiry), null);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException(RESOURCE, "id", id);
+        }
+    }
+
+    @Override
+    public long writeChunk(String id, long offset, InputStream content) throws IOException {
+        Session session = load(id);
+        if (offset < 0 || offset > session.length()) {
+            throw new InvalidFileException(RESOURCE, "offset", offset);
+        }
+        try (FileChannel channel = openData(session, StandardOpenOption.WRITE)) {
+            lock(channel, session);
+            long committed = channel.size();
+            if (offset > committed) {
+                throw new UploadOffsetMismatchException(RESOURCE, "offset", offset, committed);
+            }
+
+            // Sin buffer intermedio del tamaño del trozo: el canal copia por bloques directamente en el offset
+            ReadableByteChannel source = Channels.newChannel(content);
+            long position = offset;
+            try {
+                long transferred;
+                while (position < session.length()
+                        && (transferred = channel.transferFrom(source, position, Math.min(TRANSFER_CHUNK_BYTES, session.length() - position))) > 0) {
+                    position += transferred;
+                }
+            } finally {
+                // Lo escrito (también si se ha cortado la conexión) queda en disco antes de confirmarlo
+                channel.force(false);
+            }
+            if (position == session.length() && content.read() != -1) {
+                throw new InvalidFileException(RESOURCE, "length", session.length(), ": el trozo supera el tamaño declarado");
+            }
+            long newOffset = channel.size();
+            logger.debug("Subida {}: trozo {}-{} escrito, offset confirmado {}", id, offset, position, newOffset);
+            return newOffset;
+        }
+    }
+
+    @Override
+    public UploadSessionDTO complete(String id) throws IOException {
+        Session session = load(id);
+        Path completing = session.data().resolveSibling(SESSION_PREFIX + id + COMPLETING_SUFFIX);
+
+        try (FileChannel channel = openData(session, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            lock(channel, session);
+            long size = channel.size();
+            if (size != session.length()) {
+                throw new UploadOffsetMismatchException(RESOURCE, "length", session.length(), size);
+            }
+            // Primero se aparta de la ruta de datos: un trozo rezagado ya no puede abrirlo y, si lo tenía
+            // abierto, lock() ve que la ruta ha desaparecido; así nadie cambia los bytes que se van a verificar
+            Files.move(session.data(), completing, StandardCopyOption.ATOMIC_MOVE);
+            String sha256 = sha256(channel);
+            if (!sha256.equals(session.sha256())) {
+                logger.warn("Subida {} descartada: SHA-256 {} distinto del declarado {}", id, sha256, session.sha256());
+                deleteSession(session);
+                throw new InvalidFileException(RESOURCE, "sha256", session.sha256(), ": el contenido recibido no coincide");
+            }
+        }
+
+        String path;
+        try {
+            path = fileStorageService.saveStagedFile(completing, session.extension(), session.sha256());
+        } catch (IOException e) {
+            // Se devuelve a su sitio para poder reintentar la finalización
+            Files.move(completing, session.data(), StandardCopyOption.ATOMIC_MOVE);
+            throw e;
+        }
+        Files.deleteIfExists(session.meta());
+
+        logger.info("Subida reanudable {} finalizada: {} ({} bytes)", id, path, session.length());
+        return new UploadSessionDTO(id, session.length(), session.length(), null, path);
+    }
+
+    @Override
+    public void cancel(String id) throws IOException {
+        Session session = load(id);
+        deleteSession(session);
+        logger.info("Subida reanudable {} cancelada", id);
+    }
+
+    /**
+     * Borra las sesiones sin actividad desde hace más de {@code app.resumable-upload.expiry}.
+     */
+    @Async(AsyncConfig.STORAGE_MAINTENANCE_EXECUTOR)
+    @Scheduled(initialDelayString = "${app.resumable-upload.cleanup-interval:PT1H}",
+            fixedDelayString = "${app.resumable-upload.cleanup-interval:PT1H}")
+    public void deleteExpiredSessions() {
+        Path dir = fileStorageService.uploadsDirectory();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(expiry);
+        int deleted = 0;
+        try (DirectoryStream<Path> metas = Files.newDirectoryStream(dir, SESSION_PREFIX + "*" + META_SUFFIX)) {
+            for (Path meta : metas) {
+                String fileName = meta.getFileName().toString();
+                String id = fileName.substring(SESSION_PREFIX.length(), fileName.length() - META_SUFFIX.length());
+                try {
+                    Session session = load(id);
+                    if (lastActivity(session).isBefore(cutoff)) {
+                        deleteSession(session);
+                        deleted++;
+                    }
+                } catch (ResourceNotFoundException | IOException e) {
+                    logger.warn("No se pudo revisar la subida reanudable {}: {}", id, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error al limpiar subidas reanudables caducadas: {}", e.getMessage(), e);
+        }
+        if (deleted > 0) {
+            logger.info("Subidas reanudables caducadas eliminadas: {}", deleted);
+        }
+    }
+
+    private Session load(String id) throws IOException {
+        // Solo UUID: el id forma parte del nombre del fichero
+        try {
+            if (id == null || !UUID.fromString(id).toString().equals(id)) {
+                throw new ResourceNotFoundException(RESOURCE, "id", id);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ResourceNotFoundException(RESOURCE, "id", id);
+        }
+        Path dir = fileStorageService.uploadsDirectory();
+        Path meta = dir.resolve(SESSION_PREFIX + id + META_SUFFIX);
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(meta, StandardCharsets.ISO_8859_1)) {
+            properties.load(reader);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException(RESOURCE, "id", id);
+        }
+        return new Session(id, dir.resolve(SESSION_PREFIX + id + DATA_SUFFIX), meta,
+                Long.parseLong(properties.getProperty("length")),
+                properties.getProperty("sha256"),
+                properties.getProperty("extension", ""));
+    }
+
+    private FileChannel openData(Session session, StandardOpenOption... options) throws IOException {
+        try {
+            return FileChannel.open(session.data(), options);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException(RESOURCE, "id", session.id());
+        }
+    }
+
+    /**
+     * Lock exclusivo de la sesión sin esperar: si hay otro trozo (o la finalización) en curso se rechaza.
+     * Se libera al cerrar el canal.
+     */
+    private void lock(FileChannel channel, Session session) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            throw new UploadOffsetMismatchException(RESOURCE, "id", session.id(), channel.size());
+        }
+        // Si la sesión se ha finalizado o cancelado mientras se abría el canal, este ya no es su fichero
+        if (!Files.exists(session.data())) {
+            throw new ResourceNotFoundException(RESOURCE, "id", session.id());
+        }
+    }
+
+    private Instant lastActivity(Session session) throws IOException {
+        Instant meta = Files.getLastModifiedTime(session.meta()).toInstant();
+        if (!Files.exists(session.data())) {
+            return meta;
+        }
+        Instant data = Files.getLastModifiedTime(session.data()).toInstant();
+        return data.isAfter(meta) ? data : meta;
+    }
+
+    private void deleteSession(Session session) throws IOException {
+        Files.deleteIfExists(session.data());
+        Files.deleteIfExists(session.data().resolveSibling(SESSION_PREFIX + session.id() + COMPLETING_SUFFIX));
+        Files.deleteIfExists(session.meta());
+    }
+
+    private static String sha256(FileChannel channel) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible en la JVM", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(DIGEST_BUFFER_BYTES);
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) != -1) {
+            position += read;
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
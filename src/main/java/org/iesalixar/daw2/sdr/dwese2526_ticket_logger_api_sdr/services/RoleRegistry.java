@@ -0,0 +1,146 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Role;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ResourceChangedEvent;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.RoleChangeListener;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.RoleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Registro en memoria de los roles (id→Role, nombre→Role).
+ * <p>
+ * Los roles se consultan en cada formulario de usuario y en cada alta/edición, pero casi nunca cambian.
+ * Se cargan una vez con {@code findAll()} y se sirven sin ir a la BD hasta que se invalida el registro,
+ * cosa que se hace tras el commit de cualquier cambio en la tabla {@code roles} (los publica
+ * {@link RoleChangeListener} como {@link ResourceChangedEvent} del recurso {@code "role"}).
+ * </p>
+ * <p>
+ * Las entidades devueltas están desacopladas (detached) y se comparten entre peticiones: solo deben
+ * leerse o usarse como referencia en asociaciones (p.ej. {@code user.setRoles(...)}), nunca modificarse.
+ * </p>
+ */
+@Service
+public class RoleRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoleRegistry.class);
+
+    /** Estado inmutable del registro. */
+    private record Roles(Map<Long, Role> byId, Map<String, Role> byName, List<Role> all) {
+    }
+
+    private final RoleRepository roleRepository;
+
+    private volatile Roles roles;
+
+    public RoleRegistry(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    /**
+     * Todos los roles ordenados por id.
+     */
+    public List<Role> findAll() {
+        return current().all();
+    }
+
+    public Optional<Role> findById(Long id) {
+        return Optional.ofNullable(current().byId().get(id));
+    }
+
+    /**
+     * Equivalente en memoria de {@link RoleRepository#findByName(String)}.
+     */
+    public Optional<Role> findByName(String name) {
+        return Optional.ofNullable(current().byName().get(name));
+    }
+
+    /**
+     * Equivalente en memoria de {@code roleRepository.findAllById(ids)}: los ids desconocidos se ignoran.
+     *
+     * @param ids ids de rol seleccionados en el formulario.
+     * @return roles existentes con esos ids.
+     */
+    public Set<Role> findAllById(Collection<Long> ids) {
+        Set<Role> result = new HashSet<>();
+        if (ids == null) return result;
+        Map<Long, Role> byId = current().byId();
+        for (Long id : ids) {
+            Role role = byId.get(id);
+            if (role != null) result.add(role);
+        }
+        return result;
+    }
+
+    /**
+     * Descarta el registro; se recargará en la siguiente lectura.
+     * <p>
+     * Si hay una transacción en curso se invalida también al terminarla, para que ninguna lectura
+     * concurrente deje cacheado el estado anterior al commit.
+     * </p>
+     */
+    public void invalidate() {
+        roles = null;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    roles = null;
+                }
+            });
+        }
+        logger.info("Registro de roles invalidado.");
+    }
+
+    /**
+     * Invalida el registro tras el commit de cualquier cambio en los roles.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if ("role".equals(event.getResource())) {
+            invalidate();
+        }
+    }
+
+    private Roles current() {
+        Roles current = roles;
+        if (current == null) {
+            synchronized (this) {
+                current = roles;
+                if (current == null) {
+                    current = load();
+                    roles = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Roles load() {
+        List<Role> all = new ArrayList<>(roleRepository.findAll());
+        all.sort(Comparator.comparing(Role::getId));
+
+        Map<Long, Role> byId = new HashMap<>();
+        Map<String, Role> byName = new HashMap<>();
+        for (Role role : all) {
+            byId.put(role.getId(), role);
+            byName.put(role.getName(), role);
+        }
+        logger.info("Registro de roles cargado: {} roles.", all.size());
+        return new Roles(Map.copyOf(byId), Map.copyOf(byName), List.copyOf(all));
+    }
+}
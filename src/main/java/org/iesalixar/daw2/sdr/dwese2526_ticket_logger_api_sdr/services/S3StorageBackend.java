@@ -0,0 +1,228 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.multipart.MultipartConfiguration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link StorageBackend} sobre S3 o un servicio compatible (MinIO, Ceph...), con {@code app.storage.backend=s3}.
+ * <p>
+ * Usa el cliente asíncrono del SDK: los ficheros que superan {@code multipart-threshold} se suben como
+ * multipart, con las partes en paralelo y leídas directamente del temporal local (nunca se cargan enteras
+ * en memoria). Las lecturas con rango piden solo esos bytes ({@code Range}). Con {@code endpoint} se puede
+ * apuntar a un servidor local; {@code path-style} es necesario en la mayoría de los compatibles.
+ * </p>
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "s3")
+public class S3StorageBackend implements StorageBackend, DisposableBean {
+
+    /** Metadato con el que {@link #touch} renueva la fecha de modificación del objeto. */
+    private static final String TOUCHED_METADATA = "touched-at";
+
+    private final S3AsyncClient client;
+
+    private final String bucket;
+
+    private final String prefix;
+
+    private final Duration timeout;
+
+    private final StorageBackendMetrics metrics;
+
+    public S3StorageBackend(MeterRegistry meterRegistry,
+                            @Value("${app.storage.s3.bucket}") String bucket,
+                            @Value("${app.storage.s3.prefix:}") String prefix,
+                            @Value("${app.storage.s3.region:eu-west-1}") String region,
+                            @Value("${app.storage.s3.endpoint:}") String endpoint,
+                            @Value("${app.storage.s3.access-key:}") String accessKey,
+                            @Value("${app.storage.s3.secret-key:}") String secretKey,
+                            @Value("${app.storage.s3.path-style:false}") boolean pathStyle,
+                            @Value("${app.storage.s3.multipart-threshold:16MB}") DataSize multipartThreshold,
+                            @Value("${app.storage.s3.part-size:8MB}") DataSize partSize,
+                            @Value("${app.storage.s3.timeout:PT2M}") Duration timeout) {
+        this.bucket = bucket;
+        this.prefix = prefix;
+        this.timeout = timeout;
+        this.metrics = new StorageBackendMetrics(meterRegistry, name());
+
+        AwsCredentialsProvider credentials = accessKey.isBlank()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3AsyncClientBuilder builder = S3AsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .forcePathStyle(pathStyle)
+                .multipartEnabled(true)
+                .multipartConfiguration(MultipartConfiguration.builder()
+                        .thresholdInBytes(multipartThreshold.toBytes())
+                        .minimumPartSizeInBytes(partSize.toBytes())
+                        .build());
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        this.client = builder.build();
+    }
+
+    @Override
+    public String name() {
+        return "s3";
+    }
+
+    @Override
+    public void put(String key, Path source, long size) throws IOException {
+        metrics.record("put", () -> await(key, client.putObject(
+                request -> request.bucket(bucket).key(prefix + key).contentLength(size),
+                AsyncRequestBody.fromFile(source))));
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        return metrics.record("stat", () -> {
+            try {
+                HeadObjectResponse head = await(key, client.headObject(request -> request.bucket(bucket).key(prefix + key)));
+                return Optional.of(new StoredObject(key, head.contentLength(), head.lastModified()));
+            } catch (NoSuchFileException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        return metrics.record("open", () -> {
+            GetObjectRequest.Builder request = GetObjectRequest.builder().bucket(bucket).key(prefix + key);
+            if (offset > 0 || length >= 0) {
+                request.range("bytes=" + offset + "-" + (length >= 0 ? Long.toString(offset + length - 1) : ""));
+            }
+            // El cuerpo se consume como stream según llega, sin descargarlo antes
+            return await(key, client.getObject(request.build(), AsyncResponseTransformer.toBlockingInputStream()));
+        });
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        metrics.record("delete", () -> await(key, client.deleteObject(request -> request.bucket(bucket).key(prefix + key))));
+    }
+
+    @Override
+    public void touch(String key) throws IOException {
+        // S3 no permite cambiar la fecha: se copia el objeto sobre sí mismo (en el servidor) con metadatos nuevos
+        metrics.record("touch", () -> await(key, client.copyObject(request -> request
+                .sourceBucket(bucket).sourceKey(prefix + key)
+                .destinationBucket(bucket).destinationKey(prefix + key)
+                .metadataDirective(MetadataDirective.REPLACE)
+                .metadata(Map.of(TOUCHED_METADATA, Instant.now().toString())))));
+    }
+
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        Iterator<StoredObject> objects = new Iterator<>() {
+            private Iterator<S3Object> page = null;
+            private String continuationToken = null;
+            private boolean lastPage = false;
+
+            @Override
+            public boolean hasNext() {
+                // Las páginas (1000 claves) se piden según se van consumiendo
+                while ((page == null || !page.hasNext()) && !lastPage) {
+                    ListObjectsV2Response response = fetchPage(continuationToken);
+                    page = response.contents().iterator();
+                    continuationToken = response.nextContinuationToken();
+                    lastPage = !Boolean.TRUE.equals(response.isTruncated());
+                }
+                return page != null && page.hasNext();
+            }
+
+            @Override
+            public StoredObject next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                S3Object object = page.next();
+                return new StoredObject(object.key().substring(prefix.length()), object.size(), object.lastModified());
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(objects, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private ListObjectsV2Response fetchPage(String continuationToken) {
+        try {
+            return metrics.record("list", () -> await(bucket, client.listObjectsV2(ListObjectsV2Request.builder()
+                    .bucket(bucket).prefix(prefix).continuationToken(continuationToken).build())));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Espera el resultado de una llamada asíncrona con el timeout configurado y traduce los errores a
+     * {@link IOException} ({@link NoSuchFileException} si el objeto no existe).
+     */
+    private <T> T await(String key, CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando a S3 (" + key + ")", e);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IOException("Sin respuesta de S3 en " + timeout + " (" + key + ")", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NoSuchKeyException
+                    || (cause instanceof S3Exception s3Exception && s3Exception.statusCode() == 404)) {
+                throw new NoSuchFileException(key);
+            }
+            throw new IOException("Error de S3 con " + key + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        client.close();
+    }
+}
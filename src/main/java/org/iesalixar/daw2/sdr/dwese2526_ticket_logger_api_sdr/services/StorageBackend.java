@@ -0,0 +1,65 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Almacén de los ficheros subidos sobre el que trabaja {@link FileStorageService}.
+ * <p>
+ * Solo guarda bytes por clave (el nombre del fichero, p. ej. {@code <sha256>.png}): el nombrado, la
+ * deduplicación, el contador de referencias y los locks siguen en {@link FileStorageService}, que prepara
+ * cada subida en un temporal local y se la entrega ya completa. La implementación se elige con
+ * {@code app.storage.backend}: {@code local} (disco, por defecto), {@code s3} (S3 o compatible) o
+ * {@code memory} (pruebas).
+ * </p>
+ */
+public interface StorageBackend {
+
+    /**
+     * Datos básicos de un objeto guardado.
+     *
+     * @param key          nombre del fichero.
+     * @param size         tamaño en bytes.
+     * @param lastModified última modificación (o último {@link #touch}).
+     */
+    record StoredObject(String key, long size, Instant lastModified) {
+    }
+
+    /** Nombre del backend ("local", "s3", "memory"), usado como etiqueta de sus métricas. */
+    String name();
+
+    /**
+     * Guarda el contenido de un fichero local completo con esa clave. El backend puede mover el fichero
+     * en lugar de copiarlo; el llamante borra lo que quede de él.
+     */
+    void put(String key, Path source, long size) throws IOException;
+
+    /** Datos del objeto, o vacío si no existe. */
+    Optional<StoredObject> stat(String key) throws IOException;
+
+    /**
+     * Abre el objeto a partir de {@code offset}. Con {@code length >= 0} el backend puede limitar la lectura
+     * a esos bytes (p. ej. un GET con {@code Range}); quien lee no debe pasar de ahí.
+     *
+     * @throws java.nio.file.NoSuchFileException si el objeto no existe.
+     */
+    InputStream open(String key, long offset, long length) throws IOException;
+
+    /** Elimina el objeto (no falla si no existe). */
+    void delete(String key) throws IOException;
+
+    /** Renueva la fecha de modificación del objeto (periodo de gracia de {@code OrphanFileCollector}). */
+    void touch(String key) throws IOException;
+
+    /** Recorre todos los objetos guardados sin cargar el listado completo en memoria. Hay que cerrar el stream. */
+    Stream<StoredObject> list() throws IOException;
+
+    /** Ruta en disco del objeto si el backend es un sistema de ficheros local (permite {@code sendfile}). */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,47 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de las operaciones de un {@link StorageBackend}: timer {@code storage.backend.requests}
+ * etiquetado con el backend, la operación y el resultado ({@code success}/{@code error}).
+ */
+public final class StorageBackendMetrics {
+
+    /** Operación de E/S que puede fallar. */
+    @FunctionalInterface
+    public interface IoCall<T> {
+        T call() throws IOException;
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final String backend;
+
+    public StorageBackendMetrics(MeterRegistry meterRegistry, String backend) {
+        this.meterRegistry = meterRegistry;
+        this.backend = backend;
+    }
+
+    public <T> T record(String operation, IoCall<T> call) throws IOException {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = call.call();
+            outcome = "success";
+            return result;
+        } finally {
+            Timer.builder("storage.backend.requests")
+                    .description("Latencia de las operaciones del almacén de ficheros")
+                    .tag("backend", backend)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
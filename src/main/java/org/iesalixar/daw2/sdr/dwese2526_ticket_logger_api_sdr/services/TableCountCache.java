@@ -0,0 +1,110 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ResourceChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Caché en memoria del total de filas de cada recurso para los listados paginados.
+ * <p>
+ * Evita un {@code COUNT(*)} por petición: el total se calcula la primera vez, se ajusta con los
+ * eventos {@link ResourceChangedEvent} de alta/baja tras el commit y se recalcula al caducar el TTL
+ * (para recoger cambios hechos fuera de la aplicación). Un conteo que empieza justo entre el commit de un
+ * alta y su evento ya la incluye y recibe el ajuste igualmente; ese desfase también dura como mucho el TTL.
+ * </p>
+ */
+@Service
+public class TableCountCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TableCountCache.class);
+
+    /** Total cacheado y momento en que se calculó contra la BD. */
+    private record CachedCount(long value, long loadedAtNanos) {
+    }
+
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+
+    /** Altas y bajas confirmadas de cada recurso (para descartar conteos hechos a la vez). */
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final long ttlNanos;
+
+    public TableCountCache(@Value("${app.count-cache.ttl:PT1M}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Devuelve el total cacheado del recurso o lo calcula con {@code loader} si no existe o ha caducado.
+     * <p>
+     * El conteo se hace fuera del mapa, sin bloquear los ajustes de {@link #onResourceChanged}. Si durante
+     * el conteo llega un alta o baja confirmada no se sabe si el resultado ya la incluye, así que no se
+     * guarda: se devuelve a quien lo ha pedido y la siguiente lectura vuelve a contar.
+     * </p>
+     *
+     * @param resource recurso (ej. "region").
+     * @param loader   consulta de conteo real (ej. {@code repository::count}).
+     * @return total de filas.
+     */
+    public long get(String resource, LongSupplier loader) {
+        CachedCount cached = counts.get(resource);
+        if (cached != null && isFresh(cached)) {
+            return cached.value();
+        }
+        long generation = generationOf(resource).get();
+        long now = System.nanoTime();
+        long value = loader.getAsLong();
+        counts.compute(resource, (key, current) -> {
+            if (generationOf(key).get() != generation) {
+                logger.debug("Total de {} recalculado durante un cambio; no se guarda", key);
+                return current;
+            }
+            logger.debug("Total de {} recalculado: {}", key, value);
+            return new CachedCount(value, now);
+        });
+        return value;
+    }
+
+    private boolean isFresh(CachedCount cached) {
+        return System.nanoTime() - cached.loadedAtNanos() < ttlNanos;
+    }
+
+    private AtomicLong generationOf(String resource) {
+        return generations.computeIfAbsent(resource, key -> new AtomicLong());
+    }
+
+    /**
+     * Descarta el total cacheado del recurso (se recalculará en la siguiente lectura).
+     */
+    public void invalidate(String resource) {
+        counts.remove(resource);
+    }
+
+    /**
+     * Ajusta el total tras el commit de altas y bajas. Las modificaciones no cambian el total.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        long delta = switch (event.getType()) {
+            case CREATED -> event.getCount();
+            case DELETED -> -event.getCount();
+            case UPDATED -> 0;
+        };
+        if (delta == 0) return;
+
+        // Generación y ajuste bajo el mismo lock que el guardado de get(): un conteo empezado antes de este
+        // cambio no se guarda, y uno empezado después se guarda sobre el total ya ajustado
+        counts.compute(event.getResource(), (resource, cached) -> {
+            generationOf(resource).incrementAndGet();
+            return cached == null ? null : new CachedCount(Math.max(0, cached.value() + delta), cached.loadedAtNanos());
+        });
+    }
+}
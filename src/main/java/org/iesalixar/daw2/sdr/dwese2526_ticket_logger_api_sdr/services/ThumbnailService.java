@@ -0,0 +1,15 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ProfileImageUploadedEvent;
+
+/**
+ * Generación de miniaturas de las imágenes de perfil.
+ */
+public interface ThumbnailService {
+
+    /**
+     * Genera las miniaturas (pequeña, mediana y grande) de la imagen del evento y las asocia al perfil,
+     * siempre que el perfil siga teniendo esa misma imagen.
+     */
+    void generateProfileThumbnails(ProfileImageUploadedEvent event);
+}
@@ -0,0 +1,224 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.AsyncConfig;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ProfileImageUploadedEvent;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.UserProfileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Genera las miniaturas de la imagen de perfil en el ejecutor acotado {@link AsyncConfig#THUMBNAIL_EXECUTOR}.
+ * <p>
+ * Se ejecuta tras el commit de la transacción que cambió la imagen, así que la petición responde sin
+ * esperar al redimensionado; mientras tanto las páginas usan la imagen original. La imagen se decodifica
+ * una sola vez (submuestreada al leerla si es mucho mayor que la miniatura más grande) y cada tamaño se
+ * obtiene del anterior, de mayor a menor. Nunca se amplía una imagen pequeña.
+ * </p>
+ * <p>
+ * Las miniaturas se guardan con {@link FileStorageService#saveStream} (PNG si la imagen tiene transparencia,
+ * JPEG si no) y se asocian al perfil con un UPDATE condicionado a que la imagen original no haya cambiado
+ * entretanto; si cambió, las miniaturas generadas se eliminan.
+ * </p>
+ */
+@Service
+public class ThumbnailServiceImpl implements ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailServiceImpl.class);
+
+    /** Calidad de las miniaturas JPEG (0..1). */
+    private static final float JPEG_QUALITY = 0.85f;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Value("${app.thumbnails.small:48}")
+    private int smallSize;
+
+    @Value("${app.thumbnails.medium:128}")
+    private int mediumSize;
+
+    @Value("${app.thumbnails.large:512}")
+    private int largeSize;
+
+    /** Máximo de píxeles de la imagen original que se acepta decodificar (protege la memoria del proceso). */
+    @Value("${app.thumbnails.max-source-pixels:40000000}")
+    private long maxSourcePixels;
+
+    @Async(AsyncConfig.THUMBNAIL_EXECUTOR)
+    @TransactionalEventListener
+    @Override
+    public void generateProfileThumbnails(ProfileImageUploadedEvent event) {
+        long start = System.nanoTime();
+        List<String> created = new ArrayList<>();
+        try {
+            BufferedImage source = decode(event.imagePath());
+            if (source == null) {
+                return;
+            }
+            boolean alpha = source.getColorModel().hasAlpha();
+            String format = alpha ? "png" : "jpg";
+
+            // De mayor a menor: cada miniatura se escala a partir de la anterior
+            BufferedImage large = scale(source, largeSize, alpha);
+            BufferedImage medium = scale(large, mediumSize, alpha);
+            BufferedImage small = scale(medium, smallSize, alpha);
+
+            String largePath = save(large, format, created);
+            String mediumPath = save(medium, format, created);
+            String smallPath = save(small, format, created);
+            if (largePath == null || mediumPath == null || smallPath == null) {
+                logger.warn("No se pudieron guardar las miniaturas de {}", event.imagePath());
+                deleteAll(created);
+                return;
+            }
+
+            int updated = userProfileRepository.updateImageVariants(
+                    event.userId(), event.imagePath(), smallPath, mediumPath, largePath);
+            if (updated == 0) {
+                // El usuario cambió (o quitó) la imagen mientras se generaban: estas miniaturas ya no sirven
+                logger.info("La imagen del perfil {} cambió durante el redimensionado; se descartan las miniaturas", event.userId());
+                deleteAll(created);
+                return;
+            }
+            logger.info("Miniaturas de {} generadas en {} ms", event.imagePath(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Error generando las miniaturas de {}: {}", event.imagePath(), e.getMessage(), e);
+            deleteAll(created);
+        }
+    }
+
+    /**
+     * Decodifica la imagen una sola vez. Si es mucho mayor que la miniatura más grande se submuestrea
+     * durante la lectura (no se llega a tener en memoria la imagen completa).
+     *
+     * @return imagen decodificada, o null si el fichero no existe, no es una imagen legible o es demasiado grande.
+     */
+    private BufferedImage decode(String imagePath) throws IOException {
+        if (fileStorageService.stat(imagePath).isEmpty()) {
+            logger.warn("No existe la imagen original {}", imagePath);
+            return null;
+        }
+        try (InputStream content = fileStorageService.open(imagePath, 0, -1);
+             ImageInputStream in = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                logger.warn("Formato de imagen no soportado: {}", imagePath);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    logger.warn("Imagen demasiado grande para generar miniaturas ({}x{}): {}", width, height, imagePath);
+                    return null;
+                }
+                // Se conserva al menos el doble de la miniatura más grande para que el escalado final sea nítido
+                int subsampling = Math.max(1, Math.max(width, height) / (2 * largeSize));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Escala la imagen para que quepa en un cuadrado de {@code size} px manteniendo la proporción, por
+     * reducciones sucesivas a la mitad (bilineal) para no perder calidad. No amplía nunca; el resultado
+     * siempre es RGB o ARGB, que es lo que aceptan los escritores JPEG/PNG.
+     */
+    private static BufferedImage scale(BufferedImage image, int size, boolean alpha) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double ratio = Math.min(1.0, (double) size / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        BufferedImage current = image;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height, alpha);
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage image, int width, int height, boolean alpha) {
+        BufferedImage target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Codifica la miniatura en memoria (son pocos KB) y la guarda con {@link FileStorageService#saveStream}.
+     *
+     * @return ruta web, o null si no se pudo guardar.
+     */
+    private String save(BufferedImage image, String format, List<String> created) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        if ("jpg".equals(format)) {
+            writeJpeg(image, out);
+        } else {
+            ImageIO.write(image, "png", out);
+        }
+        String path = fileStorageService.saveStream(new ByteArrayInputStream(out.toByteArray()), format);
+        if (path != null) {
+            created.add(path);
+        }
+        return path;
+    }
+
+    private static void writeJpeg(BufferedImage image, ByteArrayOutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private void deleteAll(List<String> paths) {
+        paths.forEach(fileStorageService::deleteFile);
+    }
+}
@@ -0,0 +1,80 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.AsyncConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Migración en caliente de {@code uploads/<nombre>} a {@code uploads/ab/cd/<nombre>}.
+ * <p>
+ * Al arrancar (si {@code app.storage.shard-migration.enabled=true}) mueve en segundo plano los ficheros
+ * de la raíz plana por lotes, con una pausa entre lotes para no saturar el disco. La aplicación sigue
+ * sirviendo mientras tanto: {@link StorageBackend#stat} y el resto de operaciones del almacenamiento local
+ * ({@code LocalStorageBackend#locate}) encuentran cada fichero en cualquiera de las dos ubicaciones.
+ * Es idempotente; si se interrumpe, el siguiente arranque continúa donde se quedó. Los ficheros que no se
+ * pueden mover (p. ej. un nombre que ya existe en su subdirectorio con otro contenido) se quedan en la raíz,
+ * se apartan de los lotes siguientes y se informan al terminar.
+ * </p>
+ */
+@Service
+public class UploadShardMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadShardMigrator.class);
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Value("${app.storage.shard-migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.shard-migration.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.storage.shard-migration.pause:PT1S}")
+    private Duration pause;
+
+    @Async(AsyncConfig.STORAGE_MAINTENANCE_EXECUTOR)
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long total = 0;
+        Set<String> unmovable = new HashSet<>();
+        try {
+            while (true) {
+                int unmovableBefore = unmovable.size();
+                int moved = fileStorageService.migrateFlatBatch(batchSize, unmovable);
+                if (moved == 0 && unmovable.size() == unmovableBefore) {
+                    break;
+                }
+                total += moved;
+                logger.info("Migración de subidas a subdirectorios: {} ficheros movidos ({} en total)", moved, total);
+                Thread.sleep(pause.toMillis());
+            }
+            if (total > 0) {
+                logger.info("Migración de subidas completada: {} ficheros en {} ms", total, (System.nanoTime() - start) / 1_000_000);
+            }
+            if (!unmovable.isEmpty()) {
+                logger.warn("Migración de subidas: {} ficheros se quedan en la raíz sin mover", unmovable.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Migración de subidas interrumpida tras {} ficheros; continuará en el próximo arranque", total);
+        } catch (IOException e) {
+            logger.error("Error migrando subidas a subdirectorios tras {} ficheros: {}", total, e.getMessage(), e);
+        }
+    }
+}
@@ -1,20 +1,28 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
 
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UserProfileFormDTO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.User;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.UserProfile;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.FilesReleasedEvent;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ProfileImageUploadedEvent;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.InvalidFileException;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.ResourceNotFoundException;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.mappers.UserProfileMapper;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.UserProfileRepository;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.UsersRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ImageSignatures;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -34,8 +42,12 @@ public class UserProfileServiceImpl implements UserProfileService{
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
 
     @Override
+    @Transactional(readOnly = true)
     public UserProfileFormDTO getFormByEmail(String email) {
         User user = usersRepository.findByEmail(email)
                 .orElseThrow(()-> new ResourceNotFoundException("user", "email", email));
@@ -54,14 +66,18 @@ public class UserProfileServiceImpl implements UserProfileService{
 
         UserProfile profile = userProfileRepository.findByUserId(userId).orElse(null);
         boolean isNew = (profile == null);
+        boolean imageChanged = false;
+        // Ficheros que dejan de usarse; se borran en segundo plano solo si la transacción hace commit
+        List<String> releasedFiles = new ArrayList<>();
 
-        if (profileImageFile != null && !profileImageFile.isEmpty()){
+        // La imagen actual sale siempre de la BD, nunca del campo oculto del formulario
+        profileDto.setProfileImage(isNew ? null : profile.getProfileImage());
 
-            validateProfileImage(profileImageFile);
+        if (profileImageFile != null && !profileImageFile.isEmpty()){
 
-            String oldImagePath = profileDto.getProfileImage();
+            String imageExtension = validateProfileImage(profileImageFile);
 
-            String newImageWebPath = fileStorageService.saveFile(profileImageFile);
+            String newImageWebPath = saveProfileImage(profileImageFile, imageExtension);
             if (newImageWebPath == null || newImageWebPath.isBlank()){
                 throw new InvalidFileException(
                         "userProfile",
@@ -71,9 +87,13 @@ public class UserProfileServiceImpl implements UserProfileService{
                 );
             }
             profileDto.setProfileImage(newImageWebPath);
+            imageChanged = true;
 
-            if (oldImagePath != null || !oldImagePath.isBlank()){
-                fileStorageService.deleteFile(oldImagePath);
+            if (!isNew){
+                addIfPresent(releasedFiles, profile.getProfileImage());
+                addIfPresent(releasedFiles, profile.getProfileImageSmall());
+                addIfPresent(releasedFiles, profile.getProfileImageMedium());
+                addIfPresent(releasedFiles, profile.getProfileImageLarge());
             }
         }
 
@@ -82,25 +102,71 @@ public class UserProfileServiceImpl implements UserProfileService{
         }else{
             UserProfileMapper.copyToExistingEntity(profileDto, profile);
         }
+        if (imageChanged){
+            // Hasta que ThumbnailServiceImpl genere las nuevas miniaturas se sirve la imagen original
+            profile.setProfileImageSmall(null);
+            profile.setProfileImageMedium(null);
+            profile.setProfileImageLarge(null);
+        }
         userProfileRepository.save(profile);
+
+        if (imageChanged){
+            eventPublisher.publishEvent(new ProfileImageUploadedEvent(userId, profile.getProfileImage()));
+        }
+        if (!releasedFiles.isEmpty()){
+            eventPublisher.publishEvent(new FilesReleasedEvent(releasedFiles));
+        }
+    }
+
+    private static void addIfPresent(List<String> paths, String path){
+        if (path != null && !path.isBlank()){
+            paths.add(path);
+        }
     }
-    private void validateProfileImage(MultipartFile file){
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.startsWith("image/")){
+
+    /**
+     * Comprueba tamaño y formato de la imagen. El formato se decide por los primeros bytes del fichero
+     * (no por el Content-Type ni la extensión que manda el cliente) antes de copiarlo al almacén.
+     *
+     * @return extensión del formato detectado, con la que se guarda el fichero.
+     */
+    private String validateProfileImage(MultipartFile file){
+        if (file.getSize() > MAX_IMAGE_SIZE_BYTES){
             throw new InvalidFileException(
                     "userProfile",
                     "profileImageFile",
-                    contentType,
-                    "Tipo de archivo no permitido"
+                    file.getSize(),
+                    "Archivo demasiado grande (maximo " + MAX_IMAGE_SIZE_BYTES + " bytes)"
             );
         }
-        if (file.getSize() > MAX_IMAGE_SIZE_BYTES){
+        String extension;
+        try (InputStream in = file.getInputStream()){
+            extension = ImageSignatures.detectExtension(in);
+        }catch (IOException e){
             throw new InvalidFileException(
                     "userProfile",
                     "profileImageFile",
-                    file.getSize(),
-                    "Archivo demasiado grande (maximo " + MAX_IMAGE_SIZE_BYTES + " bytes)"
+                    file.getOriginalFilename(),
+                    "No se pudo leer la imagen de perfil."
+            );
+        }
+        if (extension == null){
+            throw new InvalidFileException(
+                    "userProfile",
+                    "profileImageFile",
+                    file.getContentType(),
+                    "Tipo de archivo no permitido"
             );
         }
+        return extension;
+    }
+
+    private String saveProfileImage(MultipartFile file, String extension){
+        try (InputStream in = file.getInputStream()){
+            return fileStorageService.saveStream(in, extension);
+        }catch (IOException e){
+            logger.error("Error al leer la imagen de perfil subida: {}", e.getMessage(), e);
+            return null;
+        }
     }
 }
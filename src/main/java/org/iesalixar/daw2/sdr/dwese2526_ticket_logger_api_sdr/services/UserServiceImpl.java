@@ -1,25 +1,40 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
 
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.*;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Region;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Role;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.User;
-import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.DuplicateResourceException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ResourceChangedEvent;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.ResourceNotFoundException;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.mappers.RegionMapper;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.mappers.UsersMapper;
-import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.RoleRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.TableStatisticsRepository;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.UsersRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.CursorCodec;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ExportWriter;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.PagedAssociationLoader;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -27,19 +42,102 @@ public class UserServiceImpl implements UserService{
 
     private static final int PASSWORD_EXPIRY_DAYS = 90;
 
+    private static final List<ExportWriter.Column<UsersDTO>> EXPORT_COLUMNS = List.of(
+            new ExportWriter.Column<>("id", UsersDTO::getId),
+            new ExportWriter.Column<>("email", UsersDTO::getEmail),
+            new ExportWriter.Column<>("active", UsersDTO::isActive),
+            new ExportWriter.Column<>("accountNonLocked", UsersDTO::isAccountNonLocked),
+            new ExportWriter.Column<>("lastPasswordChange", UsersDTO::getLastPasswordChange),
+            new ExportWriter.Column<>("passwordExpiresAt", UsersDTO::getPasswordExpiresAt),
+            new ExportWriter.Column<>("failedLoginAttempts", UsersDTO::getFailedLoginAttempts),
+            new ExportWriter.Column<>("emailVerified", UsersDTO::isEmailVerified),
+            new ExportWriter.Column<>("mustChangePassword", UsersDTO::isMustChangePassword),
+            new ExportWriter.Column<>("roles", user -> String.join("|", user.getRoles()))
+    );
+
     @Autowired
     private UsersRepository usersRepository;
 
     @Autowired
-    private RoleRepository roleRepository;
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private CursorCodec cursorCodec;
+
+    @Autowired
+    private TableCountCache tableCountCache;
+
+    @Autowired
+    private TableStatisticsRepository tableStatisticsRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
 
     @Override
+    @Transactional(readOnly = true)
     public Page<UsersDTO> list(Pageable pageable) {
-        return usersRepository.findAll(pageable).map(UsersMapper::toDTO);
+        // Fase 1: página de usuarios (sin tocar la colección LAZY de roles); el total sale de la caché
+        // Fase 2: roles de todos los usuarios de la página en una única consulta IN
+        Slice<User> slice = usersRepository.findAllBy(pageable);
+        List<UsersDTO> content = PagedAssociationLoader.assemble(
+                slice.getContent(),
+                User::getId,
+                this::findRoleNamesByUserIds,
+                UsersMapper::toDTO);
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> tableCountCache.get("user", usersRepository::count));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public EstimatedPageDTO<UsersDTO> listApproximate(Pageable pageable) {
+        Slice<User> slice = usersRepository.findAllBy(pageable);
+        List<UsersDTO> content = PagedAssociationLoader.assemble(
+                slice.getContent(),
+                User::getId,
+                this::findRoleNamesByUserIds,
+                UsersMapper::toDTO);
+        return EstimatedPageDTO.of(new SliceImpl<>(content, slice.getPageable(), slice.hasNext()),
+                tableStatisticsRepository.estimateRowCount("users"));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<UsersDTO> listByCursor(String cursor, int size) {
+        CursorCodec.Position position = cursorCodec.decode("user", cursor);
+        // Se pide una fila de más para saber si existe página siguiente sin hacer COUNT(*)
+        List<User> rows = (position == null)
+                ? usersRepository.findKeysetFirst(Limit.of(size + 1))
+                : usersRepository.findKeysetAfter(position.getSortKey(), position.getId(), Limit.of(size + 1));
+
+        CursorPageDTO<User> page = CursorPageDTO.of(rows, size,
+                last -> cursorCodec.encode("user", last.getEmail(), last.getId()));
+
+        // Roles de toda la página en una única consulta, igual que en el listado por OFFSET
+        return page.withContent(PagedAssociationLoader.assemble(
+                page.getContent(),
+                User::getId,
+                this::findRoleNamesByUserIds,
+                UsersMapper::toDTO));
+    }
+
+    /**
+     * Agrupa por usuario los nombres de rol de un conjunto de usuarios (una sola consulta).
+     */
+    private Map<Long, Set<String>> findRoleNamesByUserIds(Collection<Long> userIds) {
+        Map<Long, Set<String>> roleNamesByUser = new HashMap<>();
+        for (UserRoleNameDTO row : usersRepository.findRoleNamesByUserIds(userIds)) {
+            roleNamesByUser.computeIfAbsent(row.getUserId(), id -> new HashSet<>()).add(row.getRoleName());
+        }
+        return roleNamesByUser;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public UsersUpdateDTO getForEdit(Long id) {
         User user = usersRepository.findById(id)
                 .orElseThrow(()-> new ResourceNotFoundException("user", "id", id));
@@ -48,9 +146,6 @@ public class UserServiceImpl implements UserService{
 
     @Override
     public void create(UsersCreateDTO dto) {
-        if (usersRepository.existsByEmail(dto.getEmail())){
-            throw new DuplicateResourceException("user", "email", dto.getEmail());
-        }
         LocalDateTime lastPasswordChange = dto.getLastPasswordChange();
         if (lastPasswordChange == null) {
             lastPasswordChange = LocalDateTime.now();
@@ -58,17 +153,16 @@ public class UserServiceImpl implements UserService{
         }
         dto.setPasswordExpiresAt(lastPasswordChange.plusDays(PASSWORD_EXPIRY_DAYS));
 
-        // 3. Recuperar roles
-        Set<Role> roles = new HashSet<>(roleRepository.findAllById(dto.getRoleIds()));
+        // 3. Recuperar roles (desde el registro en memoria, sin ir a la BD)
+        Set<Role> roles = roleRegistry.findAllById(dto.getRoleIds());
         User user = UsersMapper.toEntity(dto, roles);
-        usersRepository.save(user);
+        // Sin comprobación previa: el índice UNIQUE de email detecta el duplicado (también entre peticiones simultáneas)
+        User saved = usersRepository.saveAndFlush(user);
+        eventPublisher.publishEvent(ResourceChangedEvent.created("user", saved.getId()));
     }
 
     @Override
     public void update(UsersUpdateDTO dto) {
-        if (usersRepository.existsByEmailAndIdNot(dto.getEmail(), dto.getId())){
-            throw new DuplicateResourceException("user", "email", dto.getEmail());
-        }
         User user = usersRepository.findById(dto.getId())
                 .orElseThrow(()-> new ResourceNotFoundException("user", "id", dto.getId()));
 
@@ -80,11 +174,12 @@ public class UserServiceImpl implements UserService{
         }
         dto.setPasswordExpiresAt(lastPasswordChange.plusDays(PASSWORD_EXPIRY_DAYS));
 
-        // 4. Recuperar roles
-        Set<Role> roles = new HashSet<>(roleRepository.findAllById(dto.getRoleIds()));
+        // 4. Recuperar roles (desde el registro en memoria, sin ir a la BD)
+        Set<Role> roles = roleRegistry.findAllById(dto.getRoleIds());
         UsersMapper.copyToExistingEntity(dto, user ,roles);
        // UsersMapper.toEntity(dto, roles);
-        usersRepository.save(user);
+        usersRepository.saveAndFlush(user);
+        eventPublisher.publishEvent(ResourceChangedEvent.updated("user", user.getId()));
     }
 
     @Override
@@ -93,9 +188,11 @@ public class UserServiceImpl implements UserService{
             throw new ResourceNotFoundException("user", "id", id);
         }
         usersRepository.deleteById(id);
+        eventPublisher.publishEvent(ResourceChangedEvent.deleted("user", id));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public UsersDetailDTO getDetail(Long id) {
         User user = usersRepository.findByIdWithRoles(id)
                 .orElseThrow(() -> new ResourceNotFoundException("user", "id", id));
@@ -103,7 +200,44 @@ public class UserServiceImpl implements UserService{
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Role> findAllRoles() {
-        return roleRepository.findAll();
+        return roleRegistry.findAll();
+    }
+
+    /**
+     * Exporta todos los usuarios con sus roles al stream indicado leyendo de un cursor del servidor.
+     * <p>
+     * La consulta devuelve una fila por usuario y rol ordenada por id; las filas consecutivas del
+     * mismo usuario se agrupan y el usuario se escribe en cuanto empieza el siguiente, de modo que
+     * solo hay un usuario en memoria cada vez.
+     * </p>
+     *
+     * @return número de usuarios exportados.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long export(ExportWriter.Format format, OutputStream out) {
+        try (Stream<UserExportRowDTO> rows = usersRepository.streamExportRows();
+             ExportWriter<UsersDTO> writer = new ExportWriter<>(format, out, objectMapper, EXPORT_COLUMNS)) {
+            UsersDTO current = null;
+            Iterator<UserExportRowDTO> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                UserExportRowDTO row = iterator.next();
+                if (current == null || !current.getId().equals(row.getId())) {
+                    if (current != null) {
+                        writer.write(current);
+                    }
+                    current = UsersMapper.toDTO(row);
+                }
+                if (row.getRoleName() != null) {
+                    current.getRoles().add(row.getRoleName());
+                }
+            }
+            if (current != null) {
+                writer.write(current);
+            }
+            return writer.getRows();
+        }
     }
 }
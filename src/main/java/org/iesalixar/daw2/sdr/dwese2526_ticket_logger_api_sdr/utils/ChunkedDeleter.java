@@ -0,0 +1,63 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.BulkDeleteResultDTO;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Borrado por conjuntos de ids, en bloques de tamaño fijo.
+ * <p>
+ * Por cada bloque se ejecuta una consulta {@code SELECT id ... WHERE id IN (...)} para saber cuáles
+ * existen y un único {@code DELETE ... WHERE id IN (...)} con ellos, en lugar de
+ * {@code existsById} + {@code deleteById} (que además carga la entidad) por cada id.
+ * El tamaño del bloque acota el número de parámetros de cada sentencia.
+ * </p>
+ */
+public final class ChunkedDeleter {
+
+    private ChunkedDeleter() {
+    }
+
+    /**
+     * @param resource      recurso borrado, para el informe.
+     * @param ids           ids pedidos (se ignoran los repetidos, se conserva el orden).
+     * @param chunkSize     ids por sentencia.
+     * @param findExisting  devuelve cuáles de los ids del bloque existen.
+     * @param deleteChunk   borra los ids existentes del bloque (nunca recibe una lista vacía).
+     * @return ids eliminados y ausentes.
+     */
+    public static BulkDeleteResultDTO delete(String resource,
+                                             Collection<Long> ids,
+                                             int chunkSize,
+                                             Function<List<Long>, Collection<Long>> findExisting,
+                                             Consumer<List<Long>> deleteChunk) {
+        BulkDeleteResultDTO result = new BulkDeleteResultDTO(resource);
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            List<Long> chunk = distinct.subList(from, Math.min(from + chunkSize, distinct.size()));
+            Set<Long> existing = new HashSet<>(findExisting.apply(chunk));
+
+            List<Long> toDelete = new ArrayList<>(existing.size());
+            for (Long id : chunk) {
+                if (existing.contains(id)) {
+                    toDelete.add(id);
+                } else {
+                    result.getMissing().add(id);
+                }
+            }
+            if (!toDelete.isEmpty()) {
+                deleteChunk.accept(toDelete);
+                result.getDeleted().addAll(toDelete);
+            }
+        }
+        return result;
+    }
+}
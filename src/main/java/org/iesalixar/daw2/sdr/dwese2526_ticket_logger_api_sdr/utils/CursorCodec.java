@@ -0,0 +1,121 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.InvalidCursorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Codifica y valida los cursores opacos de la paginación por clave (keyset / seek).
+ * <p>
+ * Un cursor guarda la última clave de ordenación y el id de la última fila servida, junto con el
+ * recurso al que pertenece. Se firma con HMAC-SHA256 para que el cliente no pueda fabricarlo ni
+ * reutilizarlo en otro listado. Formato: {@code base64url(payload).base64url(firma)}.
+ * </p>
+ */
+@Component
+public class CursorCodec {
+
+    private static final Logger logger = LoggerFactory.getLogger(CursorCodec.class);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final byte[] secret;
+
+    /**
+     * @param configuredSecret clave de firma ({@code app.cursor.secret}). Si está vacía se genera una
+     *                         aleatoria al arrancar y los cursores dejan de ser válidos tras un reinicio.
+     */
+    public CursorCodec(@Value("${app.cursor.secret:}") String configuredSecret) {
+        if (configuredSecret == null || configuredSecret.isBlank()) {
+            logger.warn("app.cursor.secret no configurado: se usa una clave aleatoria (los cursores caducan al reiniciar).");
+            byte[] random = new byte[32];
+            new SecureRandom().nextBytes(random);
+            this.secret = random;
+        } else {
+            this.secret = configuredSecret.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Posición decodificada de un cursor: última clave de ordenación e id servidos.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Position {
+        private final String sortKey;
+        private final Long id;
+    }
+
+    /**
+     * Genera el cursor que apunta justo después de la fila indicada.
+     *
+     * @param resource recurso del listado (ej. "region").
+     * @param sortKey  valor de la clave de ordenación de la última fila.
+     * @param id       id de la última fila (desempate).
+     * @return cursor opaco y firmado.
+     */
+    public String encode(String resource, String sortKey, Long id) {
+        String payload = resource + "\n" + sortKey + "\n" + id;
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+    }
+
+    /**
+     * Valida la firma de un cursor y devuelve su posición.
+     *
+     * @param resource recurso esperado; un cursor de otro listado se rechaza.
+     * @param cursor   cursor recibido del cliente.
+     * @return posición, o {@code null} si el cursor viene vacío (primera página).
+     * @throws InvalidCursorException si el cursor está mal formado, manipulado o es de otro recurso.
+     */
+    public Position decode(String resource, String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+
+        int dot = cursor.indexOf('.');
+        if (dot <= 0 || dot == cursor.length() - 1) {
+            throw new InvalidCursorException(resource, "cursor", cursor);
+        }
+        try {
+            byte[] payloadBytes = DECODER.decode(cursor.substring(0, dot));
+            byte[] signature = DECODER.decode(cursor.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+                throw new InvalidCursorException(resource, "cursor", cursor);
+            }
+
+            String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split("\n", -1);
+            if (parts.length != 3 || !parts[0].equals(resource)) {
+                throw new InvalidCursorException(resource, "cursor", cursor);
+            }
+            return new Position(parts[1], Long.valueOf(parts[2]));
+
+        } catch (IllegalArgumentException e) {
+            // Base64 o número inválidos
+            throw new InvalidCursorException(resource, "cursor", cursor);
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, HMAC_ALGORITHM));
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo firmar el cursor.", e);
+        }
+    }
+}
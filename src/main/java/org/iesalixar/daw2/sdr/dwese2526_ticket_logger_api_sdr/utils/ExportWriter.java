@@ -0,0 +1,166 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Escribe filas de una exportación directamente en el stream de la respuesta, una a una.
+ * <p>
+ * NDJSON: un objeto JSON por línea (se serializa la propia fila). CSV: cabecera con los nombres de
+ * las columnas y una línea por fila. No se acumula nada salvo un buffer de tamaño fijo, que se vacía
+ * cada {@value #FLUSH_EVERY} filas para que el cliente reciba datos mientras se sigue leyendo la BD.
+ * </p>
+ *
+ * @param <T> tipo de fila exportada.
+ */
+public class ExportWriter<T> implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int FLUSH_EVERY = 1000;
+
+
+    /** Formatos de exportación. */
+    @Getter
+    @AllArgsConstructor
+    public enum Format {
+        NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        /**
+         * @return el formato con ese nombre (sin distinguir mayúsculas), o null si no existe.
+         */
+        public static Format from(String value) {
+            for (Format format : values()) {
+                if (format.name().equals(value.trim().toUpperCase(Locale.ROOT))) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+
+    /** Columna del CSV: nombre de cabecera y cómo obtener su valor de la fila. */
+    public record Column<T>(String name, Function<T, Object> value) {
+    }
+
+
+    private final Format format;
+
+    private final OutputStream out;
+
+    private final Writer writer;
+
+    private final ObjectWriter jsonWriter;
+
+    private final List<Column<T>> columns;
+
+    private long rows;
+
+
+    /**
+     * @param format       formato de salida.
+     * @param out          stream de la respuesta.
+     * @param objectMapper mapper de Jackson (para NDJSON).
+     * @param columns      columnas (para CSV).
+     */
+    public ExportWriter(Format format, OutputStream out, ObjectMapper objectMapper, List<Column<T>> columns) {
+        this.format = format;
+        this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+        this.writer = new OutputStreamWriter(this.out, StandardCharsets.UTF_8);
+        this.jsonWriter = objectMapper.writer();
+        this.columns = columns;
+        if (format == Format.CSV) {
+            writeCsvLine(columns.stream().map(Column::name).map(Object.class::cast).toList());
+        }
+    }
+
+
+    /**
+     * Escribe una fila.
+     */
+    public void write(T row) {
+        try {
+            if (format == Format.NDJSON) {
+                out.write(jsonWriter.writeValueAsBytes(row));
+                out.write('\n');
+            } else {
+                writeCsvLine(columns.stream().map(column -> column.value().apply(row)).toList());
+            }
+            if (++rows % FLUSH_EVERY == 0) {
+                flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * @return filas escritas.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+
+    private void flush() {
+        try {
+            writer.flush();
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    private void writeCsvLine(List<Object> values) {
+        try {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvField(values.get(i)));
+            }
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,59 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Detección del formato de imagen por sus primeros bytes ("magic bytes").
+ * <p>
+ * El {@code Content-Type} y la extensión los decide el cliente; la cabecera del propio fichero no. Basta con
+ * leer {@value #HEADER_BYTES} bytes, así que se rechaza lo que no es una imagen sin copiarlo ni decodificarlo.
+ * </p>
+ */
+public final class ImageSignatures {
+
+    /** Bytes de cabecera necesarios para reconocer todos los formatos admitidos. */
+    public static final int HEADER_BYTES = 12;
+
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] GIF87A = "GIF87a".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GIF89A = "GIF89a".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RIFF = "RIFF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WEBP = "WEBP".getBytes(StandardCharsets.US_ASCII);
+
+    private ImageSignatures() {
+    }
+
+    /**
+     * Lee la cabecera del stream (sin cerrarlo) y devuelve la extensión del formato detectado.
+     *
+     * @return "jpg", "png", "gif" o "webp"; {@code null} si no es ninguno de ellos.
+     */
+    public static String detectExtension(InputStream in) throws IOException {
+        return detectExtension(in.readNBytes(HEADER_BYTES));
+    }
+
+    public static String detectExtension(byte[] header) {
+        if (startsWith(header, 0, JPEG)) {
+            return "jpg";
+        }
+        if (startsWith(header, 0, PNG)) {
+            return "png";
+        }
+        if (startsWith(header, 0, GIF87A) || startsWith(header, 0, GIF89A)) {
+            return "gif";
+        }
+        if (startsWith(header, 0, RIFF) && startsWith(header, 8, WEBP)) {
+            return "webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, byte[] prefix) {
+        return data.length >= offset + prefix.length
+                && Arrays.equals(data, offset, offset + prefix.length, prefix, 0, prefix.length);
+    }
+}
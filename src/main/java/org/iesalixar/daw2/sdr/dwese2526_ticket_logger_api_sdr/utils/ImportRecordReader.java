@@ -0,0 +1,267 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.InvalidImportException;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lector en streaming de los registros de una importación masiva (CSV con cabecera o array JSON de objetos).
+ * <p>
+ * Lee un registro cada vez directamente del cuerpo de la petición, sin cargar el fichero completo en memoria.
+ * Cada registro es un mapa {@code campo -> valor} con los nombres de campo en minúsculas, para que la
+ * cabecera CSV y las claves JSON se traten igual. Un error de formato lanza {@link InvalidImportException}
+ * con el número de registro en el que se detectó.
+ * </p>
+ */
+public abstract class ImportRecordReader implements AutoCloseable {
+
+    /** Formatos de entrada admitidos. */
+    public enum Format { CSV, JSON }
+
+
+    /**
+     * Registro leído: posición (1 = primer registro de datos) y valores por campo.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ImportRecord {
+        private final long row;
+        private final Map<String, String> values;
+
+        public String get(String field) {
+            String value = values.get(field.toLowerCase(Locale.ROOT));
+            return value == null ? null : value.trim();
+        }
+    }
+
+
+    protected final String resource;
+
+    protected long row;
+
+
+    protected ImportRecordReader(String resource) {
+        this.resource = resource;
+    }
+
+
+    /**
+     * Abre un lector para el formato indicado.
+     *
+     * @param format       formato de la entrada.
+     * @param in           cuerpo de la petición (UTF-8).
+     * @param resource     recurso que se importa (solo para los errores).
+     * @param objectMapper mapper de Jackson (solo para JSON).
+     */
+    public static ImportRecordReader open(Format format, InputStream in, String resource, ObjectMapper objectMapper) {
+        return switch (format) {
+            case CSV -> new Csv(in, resource);
+            case JSON -> new Json(in, resource, objectMapper);
+        };
+    }
+
+
+    /**
+     * @return el siguiente registro, o null al llegar al final.
+     */
+    public abstract ImportRecord next();
+
+
+    @Override
+    public abstract void close();
+
+
+    protected InvalidImportException invalid(String message) {
+        return new InvalidImportException(resource, "row", row, message);
+    }
+
+
+    /**
+     * CSV (RFC 4180): separador coma, comillas dobles opcionales y primera línea de cabecera.
+     */
+    private static final class Csv extends ImportRecordReader {
+
+        private final Reader reader;
+
+        private List<String> header;
+
+        private boolean eof;
+
+        private Csv(InputStream in, String resource) {
+            super(resource);
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public ImportRecord next() {
+            if (header == null) {
+                List<String> names = readLine();
+                if (names == null) {
+                    return null;
+                }
+                header = new ArrayList<>(names.size());
+                for (String name : names) {
+                    header.add(name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+                }
+            }
+            List<String> fields;
+            do {
+                fields = readLine();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+
+            row++;
+            if (fields.size() > header.size()) {
+                throw invalid("El registro tiene " + fields.size() + " columnas y la cabecera " + header.size());
+            }
+            Map<String, String> values = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                values.put(header.get(i), fields.get(i));
+            }
+            return new ImportRecord(row, values);
+        }
+
+        /** Lee una línea lógica (puede ocupar varias físicas si hay saltos dentro de comillas). */
+        private List<String> readLine() {
+            if (eof) {
+                return null;
+            }
+            try {
+                List<String> fields = new ArrayList<>();
+                StringBuilder field = new StringBuilder();
+                boolean quoted = false;
+                boolean any = false;
+                int c;
+                while ((c = reader.read()) != -1) {
+                    any = true;
+                    if (quoted) {
+                        if (c == '"') {
+                            reader.mark(1);
+                            int next = reader.read();
+                            if (next == '"') {
+                                field.append('"');
+                            } else {
+                                quoted = false;
+                                if (next != -1) {
+                                    reader.reset();
+                                }
+                            }
+                        } else {
+                            field.append((char) c);
+                        }
+                    } else if (c == '"') {
+                        quoted = true;
+                    } else if (c == ',') {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                    } else if (c == '\n') {
+                        fields.add(field.toString());
+                        return fields;
+                    } else if (c != '\r') {
+                        field.append((char) c);
+                    }
+                }
+                eof = true;
+                if (quoted) {
+                    throw invalid("Comillas sin cerrar al final del fichero");
+                }
+                if (!any) {
+                    return null;
+                }
+                fields.add(field.toString());
+                return fields;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+                // El cuerpo de la petición lo cierra el contenedor
+            }
+        }
+    }
+
+
+    /**
+     * JSON: un array de objetos planos ({@code [{"code":"SE","name":"Sevilla"}, ...]}).
+     */
+    private static final class Json extends ImportRecordReader {
+
+        private final JsonParser parser;
+
+        private final ObjectReader objectReader;
+
+        private boolean started;
+
+        private Json(InputStream in, String resource, ObjectMapper objectMapper) {
+            super(resource);
+            // Se lee un objeto cada vez; lo que sigue al objeto es el resto del array, no basura
+            this.objectReader = objectMapper.readerFor(Map.class)
+                    .without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+            this.parser = objectMapper.createParser(in);
+        }
+
+        @Override
+        public ImportRecord next() {
+            try {
+                if (!started) {
+                    started = true;
+                    JsonToken first = parser.nextToken();
+                    if (first == null) {
+                        return null;
+                    }
+                    if (first != JsonToken.START_ARRAY) {
+                        throw invalid("Se esperaba un array JSON de objetos");
+                    }
+                }
+                JsonToken token = parser.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    return null;
+                }
+                row++;
+                if (token != JsonToken.START_OBJECT) {
+                    throw invalid("Cada elemento del array debe ser un objeto");
+                }
+                Map<String, Object> object = objectReader.readValue(parser);
+                Map<String, String> values = new LinkedHashMap<>();
+                for (Map.Entry<String, Object> entry : object.entrySet()) {
+                    Object value = entry.getValue();
+                    values.put(entry.getKey().toLowerCase(Locale.ROOT), value == null ? null : value.toString());
+                }
+                return new ImportRecord(row, values);
+            } catch (JacksonException e) {
+                throw invalid("JSON mal formado: " + e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public void close() {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Carga en dos fases de listados paginados con una asociación "a muchos".
+ * <p>
+ * Fase 1: se obtiene la página de entidades (con su conteo) SIN inicializar la colección LAZY.
+ * Fase 2: se recuperan los elementos asociados de TODAS las filas de la página con una única
+ * consulta {@code IN (...)} y se ensamblan los DTOs en memoria.
+ * </p>
+ * <p>
+ * Así una página de N filas cuesta siempre el mismo número de consultas (página + conteo + asociación),
+ * en lugar de 1 + N por la inicialización perezosa fila a fila.
+ * </p>
+ */
+public final class PagedAssociationLoader {
+
+    private PagedAssociationLoader() {
+    }
+
+    /**
+     * Ensambla una página de DTOs a partir de una página de entidades y una carga por lotes.
+     *
+     * @param page         página de entidades (fase 1).
+     * @param idExtractor  obtiene la clave de cada entidad (normalmente su id).
+     * @param batchFetcher recibe todas las claves de la página y devuelve sus asociados agrupados por clave (fase 2).
+     * @param assembler    construye el DTO con la entidad y sus asociados (puede recibir {@code null} si no tiene).
+     * @return página de DTOs con la misma paginación y total que {@code page}.
+     */
+    public static <E, K, V, D> Page<D> load(Page<E> page,
+                                            Function<E, K> idExtractor,
+                                            Function<Collection<K>, Map<K, V>> batchFetcher,
+                                            BiFunction<E, V, D> assembler) {
+        List<D> content = assemble(page.getContent(), idExtractor, batchFetcher, assembler);
+        return new PageImpl<>(content, page.getPageable(), page.getTotalElements());
+    }
+
+    /**
+     * Variante sobre una lista ya cargada (útil para slices o listados sin conteo).
+     */
+    public static <E, K, V, D> List<D> assemble(List<E> rows,
+                                                Function<E, K> idExtractor,
+                                                Function<Collection<K>, Map<K, V>> batchFetcher,
+                                                BiFunction<E, V, D> assembler) {
+        if (rows == null || rows.isEmpty()) return List.of();
+
+        Set<K> ids = new LinkedHashSet<>();
+        for (E row : rows) {
+            ids.add(idExtractor.apply(row));
+        }
+
+        Map<K, V> associated = batchFetcher.apply(ids);
+
+        return rows.stream()
+                .map(row -> assembler.apply(row, associated.get(idExtractor.apply(row))))
+                .toList();
+    }
+}
@@ -31,59 +31,59 @@ INSERT IGNORE INTO users (
 (3, 'maria@app.local',        '$2a$12$6jTyc1yBWM1C/glHtRB0yed6JfaucVcsYCzvWzCGPyxENjT3.nrku',  TRUE,  TRUE,  NOW(), DATE_ADD(NOW(), INTERVAL 3 MONTH), 0, TRUE,  TRUE ),
 (4, 'blockeduser@app.local',  '$2a$12$6jTyc1yBWM1C/glHtRB0yed6JfaucVcsYCzvWzCGPyxENjT3.nrku',    FALSE, FALSE, NOW(), DATE_ADD(NOW(), INTERVAL 3 MONTH), 5, FALSE, FALSE);
 
-INSERT IGNORE INTO provinces (code, name, region_id) VALUES
-('01', 'Araba/Álava', 16),
-('02', 'Albacete', 8),
-('03', 'Alicante/Alacant', 10),
-('04', 'Almería', 1),
-('05', 'Ávila', 7),
-('06', 'Badajoz', 11),
-('07', 'Balears, Illes', 4),
-('08', 'Barcelona', 9),
-('09', 'Burgos', 7),
-('10', 'Cáceres', 11),
-('11', 'Cádiz', 1),
-('12', 'Castellón/Castelló', 10),
-('13', 'Ciudad Real', 8),
-('14', 'Córdoba', 1),
-('15', 'Coruña, A', 12),
-('16', 'Cuenca', 8),
-('17', 'Girona', 9),
-('18', 'Granada', 1),
-('19', 'Guadalajara', 8),
-('20', 'Gipuzkoa', 16),
-('21', 'Huelva', 1),
-('22', 'Huesca', 2),
-('23', 'Jaén', 1),
-('24', 'León', 7),
-('25', 'Lleida', 9),
-('26', 'Rioja, La', 17),
-('27', 'Lugo', 12),
-('28', 'Madrid', 13),
-('29', 'Málaga', 1),
-('30', 'Murcia', 14),
-('31', 'Navarra', 15),
-('32', 'Ourense', 12),
-('33', 'Asturias', 3),
-('34', 'Palencia', 7),
-('35', 'Palmas, Las', 5),
-('36', 'Pontevedra', 12),
-('37', 'Salamanca', 7),
-('38', 'Santa Cruz de Tenerife', 5),
-('39', 'Cantabria', 6),
-('40', 'Segovia', 7),
-('41', 'Sevilla', 1),
-('42', 'Soria', 7),
-('43', 'Tarragona', 9),
-('44', 'Teruel', 2),
-('45', 'Toledo', 8),
-('46', 'Valencia/València', 10),
-('47', 'Valladolid', 7),
-('48', 'Bizkaia', 16),
-('49', 'Zamora', 7),
-('50', 'Zaragoza', 2),
-('51', 'Ceuta', 18),
-('52', 'Melilla', 18);
+INSERT IGNORE INTO provinces (id, code, name, region_id) VALUES
+(1, '01', 'Araba/Álava', 16),
+(2, '02', 'Albacete', 8),
+(3, '03', 'Alicante/Alacant', 10),
+(4, '04', 'Almería', 1),
+(5, '05', 'Ávila', 7),
+(6, '06', 'Badajoz', 11),
+(7, '07', 'Balears, Illes', 4),
+(8, '08', 'Barcelona', 9),
+(9, '09', 'Burgos', 7),
+(10, '10', 'Cáceres', 11),
+(11, '11', 'Cádiz', 1),
+(12, '12', 'Castellón/Castelló', 10),
+(13, '13', 'Ciudad Real', 8),
+(14, '14', 'Córdoba', 1),
+(15, '15', 'Coruña, A', 12),
+(16, '16', 'Cuenca', 8),
+(17, '17', 'Girona', 9),
+(18, '18', 'Granada', 1),
+(19, '19', 'Guadalajara', 8),
+(20, '20', 'Gipuzkoa', 16),
+(21, '21', 'Huelva', 1),
+(22, '22', 'Huesca', 2),
+(23, '23', 'Jaén', 1),
+(24, '24', 'León', 7),
+(25, '25', 'Lleida', 9),
+(26, '26', 'Rioja, La', 17),
+(27, '27', 'Lugo', 12),
+(28, '28', 'Madrid', 13),
+(29, '29', 'Málaga', 1),
+(30, '30', 'Murcia', 14),
+(31, '31', 'Navarra', 15),
+(32, '32', 'Ourense', 12),
+(33, '33', 'Asturias', 3),
+(34, '34', 'Palencia', 7),
+(35, '35', 'Palmas, Las', 5),
+(36, '36', 'Pontevedra', 12),
+(37, '37', 'Salamanca', 7),
+(38, '38', 'Santa Cruz de Tenerife', 5),
+(39, '39', 'Cantabria', 6),
+(40, '40', 'Segovia', 7),
+(41, '41', 'Sevilla', 1),
+(42, '42', 'Soria', 7),
+(43, '43', 'Tarragona', 9),
+(44, '44', 'Teruel', 2),
+(45, '45', 'Toledo', 8),
+(46, '46', 'Valencia/València', 10),
+(47, '47', 'Valladolid', 7),
+(48, '48', 'Bizkaia', 16),
+(49, '49', 'Zamora', 7),
+(50, '50', 'Zaragoza', 2),
+(51, '51', 'Ceuta', 18),
+(52, '52', 'Melilla', 18);
 
 -- Insertar los roles
 INSERT IGNORE INTO roles (id, name, display_name, description) VALUES
@@ -1,14 +1,28 @@
+-- Secuencias para los ids de regions, users, provinces y password_reset_tokens.
+-- Hibernate reserva un bloque de INCREMENT BY ids con un único NEXT VALUE (optimizador pooled-lo),
+-- así los INSERT no necesitan ejecutarse uno a uno para conocer el id y se pueden agrupar en lotes JDBC.
+-- La importación masiva por JDBC toma sus ids de las mismas secuencias.
+-- Empiezan en 1000 para no chocar con los ids fijos de data.sql, y en cada arranque se adelantan a
+-- MAX(id)+1 de su tabla (ver tras password_reset_tokens) por si la BD ya tenía filas con ids mayores.
+-- Para cambiar el tamaño del bloque: ALTER SEQUENCE ... INCREMENT BY n.
+CREATE SEQUENCE IF NOT EXISTS regions_seq START WITH 1000 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1000 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS provinces_seq START WITH 1000 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS password_reset_tokens_seq START WITH 1000 INCREMENT BY 50;
+
+
 
 CREATE TABLE IF NOT EXISTS regions (
    id INT AUTO_INCREMENT PRIMARY KEY,
-   code VARCHAR(10) NOT NULL UNIQUE,
-   name VARCHAR(100) NOT NULL
+   code VARCHAR(10) NOT NULL,
+   name VARCHAR(100) NOT NULL,
+   CONSTRAINT uk_regions_code UNIQUE (code)
 );
 
 
 CREATE TABLE IF NOT EXISTS users (
    id BIGINT AUTO_INCREMENT PRIMARY KEY,
-   email VARCHAR(100) NOT NULL UNIQUE,
+   email VARCHAR(100) NOT NULL,
    password_hash VARCHAR(500) NOT NULL,
    active BOOLEAN NOT NULL DEFAULT TRUE,
    account_non_locked BOOLEAN NOT NULL DEFAULT TRUE,
@@ -16,18 +30,36 @@ CREATE TABLE IF NOT EXISTS users (
    password_expires_at DATETIME NULL,
    failed_login_attempts INT DEFAULT 0,
    email_verified BOOLEAN NOT NULL DEFAULT FALSE,
-   must_change_password BOOLEAN NOT NULL DEFAULT FALSE
+   must_change_password BOOLEAN NOT NULL DEFAULT FALSE,
+   CONSTRAINT uk_users_email UNIQUE (email)
 );
 
 
 CREATE TABLE IF NOT EXISTS provinces (
    id INT AUTO_INCREMENT PRIMARY KEY,
-   code VARCHAR(10) NOT NULL UNIQUE,
+   code VARCHAR(10) NOT NULL,
    name VARCHAR(100) NOT NULL,
    region_id INT NOT NULL,
+   CONSTRAINT uk_provinces_code UNIQUE (code),
    FOREIGN KEY (region_id) REFERENCES regions(id)
 );
 
+-- Los índices UNIQUE tienen nombre propio porque la API traduce sus violaciones a 409 por ese nombre
+-- (UniqueConstraintTranslator). Las BD creadas antes los tienen con el nombre de la columna: se crea el
+-- nuevo y después se borra el antiguo, así la columna nunca se queda sin índice único.
+ALTER TABLE regions ADD UNIQUE INDEX IF NOT EXISTS uk_regions_code (code);
+ALTER TABLE regions DROP INDEX IF EXISTS code;
+ALTER TABLE users ADD UNIQUE INDEX IF NOT EXISTS uk_users_email (email);
+ALTER TABLE users DROP INDEX IF EXISTS email;
+ALTER TABLE provinces ADD UNIQUE INDEX IF NOT EXISTS uk_provinces_code (code);
+ALTER TABLE provinces DROP INDEX IF EXISTS code;
+
+
+-- Índices para la paginación por cursor (orden por nombre + id como desempate).
+-- users.email ya es UNIQUE, por lo que su índice sirve igual para el listado de usuarios.
+CREATE INDEX IF NOT EXISTS idx_regions_name_id ON regions (name, id);
+CREATE INDEX IF NOT EXISTS idx_provinces_name_id ON provinces (name, id);
+
 
 CREATE TABLE IF NOT EXISTS user_profiles (
    -- Clave primaria = FK a users.id  (1:1 tipo "shared primary key")
@@ -38,6 +70,10 @@ CREATE TABLE IF NOT EXISTS user_profiles (
    phone_number    VARCHAR(30)  NULL,
    -- Ruta/URL de la imagen de perfil (no el binario)
    profile_image   VARCHAR(255) NULL,
+   -- Miniaturas de profile_image (48, 128 y 512 px), generadas en segundo plano
+   profile_image_small  VARCHAR(255) NULL,
+   profile_image_medium VARCHAR(255) NULL,
+   profile_image_large  VARCHAR(255) NULL,
    -- Otros campos típicos de perfil
    bio             VARCHAR(500) NULL,              -- pequeña descripción / sobre mí
    locale          VARCHAR(10)  NULL,              -- es_ES, en_US...
@@ -54,6 +90,17 @@ CREATE TABLE IF NOT EXISTS user_profiles (
        ON UPDATE CASCADE
 );
 
+-- Columnas de miniaturas para BD creadas antes de existir
+ALTER TABLE user_profiles ADD COLUMN IF NOT EXISTS profile_image_small VARCHAR(255) NULL AFTER profile_image;
+ALTER TABLE user_profiles ADD COLUMN IF NOT EXISTS profile_image_medium VARCHAR(255) NULL AFTER profile_image_small;
+ALTER TABLE user_profiles ADD COLUMN IF NOT EXISTS profile_image_large VARCHAR(255) NULL AFTER profile_image_medium;
+
+-- Índices para localizar qué perfiles usan un fichero (recolector de ficheros huérfanos)
+CREATE INDEX IF NOT EXISTS idx_user_profiles_image ON user_profiles (profile_image);
+CREATE INDEX IF NOT EXISTS idx_user_profiles_image_small ON user_profiles (profile_image_small);
+CREATE INDEX IF NOT EXISTS idx_user_profiles_image_medium ON user_profiles (profile_image_medium);
+CREATE INDEX IF NOT EXISTS idx_user_profiles_image_large ON user_profiles (profile_image_large);
+
 -- Tabla de roles
 CREATE TABLE IF NOT EXISTS roles (
    id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -126,3 +173,54 @@ CREATE TABLE IF NOT EXISTS password_reset_tokens (
     -- Acelera tareas de limpieza (borrar tokens caducados) y consultas por expiración.
     INDEX idx_prt_expires_at (expires_at)
 );
+
+-- Adelanta cada secuencia a MAX(id)+1 de su tabla: filas insertadas antes de existir la secuencia o a mano
+-- (AUTO_INCREMENT) no deben volver a salir como ids nuevos. SETVAL solo admite un número literal, de ahí
+-- la sentencia preparada; y nunca hace retroceder la secuencia, así que repetirlo en cada arranque es seguro.
+SET @sql = CONCAT('SELECT SETVAL(regions_seq, ', (SELECT COALESCE(MAX(id), 0) + 1 FROM regions), ', 0)');
+PREPARE setval_stmt FROM @sql;
+EXECUTE setval_stmt;
+SET @sql = CONCAT('SELECT SETVAL(users_seq, ', (SELECT COALESCE(MAX(id), 0) + 1 FROM users), ', 0)');
+PREPARE setval_stmt FROM @sql;
+EXECUTE setval_stmt;
+SET @sql = CONCAT('SELECT SETVAL(provinces_seq, ', (SELECT COALESCE(MAX(id), 0) + 1 FROM provinces), ', 0)');
+PREPARE setval_stmt FROM @sql;
+EXECUTE setval_stmt;
+SET @sql = CONCAT('SELECT SETVAL(password_reset_tokens_seq, ', (SELECT COALESCE(MAX(id), 0) + 1 FROM password_reset_tokens), ', 0)');
+PREPARE setval_stmt FROM @sql;
+EXECUTE setval_stmt;
+DEALLOCATE PREPARE setval_stmt;
+
+
+-- Blobs de subidas direccionados por contenido: el nombre del fichero es el SHA-256 de su contenido
+-- (más la extensión), así que el mismo fichero subido varias veces se guarda una sola vez.
+-- ref_count cuenta cuántos registros lo usan; el blob se borra del disco cuando llega a 0.
+CREATE TABLE IF NOT EXISTS stored_files (
+    file_name  VARCHAR(80) NOT NULL PRIMARY KEY,   -- <sha256 hex>.<ext>
+    sha256     CHAR(64)    NOT NULL,
+    size_bytes BIGINT      NOT NULL,
+    ref_count  INT         NOT NULL DEFAULT 1,
+    created_at DATETIME    NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+
+-- Bandeja de salida de emails: se escribe en la misma transacción que la operación que genera el email
+-- y MailOutboxDispatcher la vacía en segundo plano. status: PENDING (por enviar o reintentar),
+-- SENDING (reclamado por un envío en curso; next_attempt_at es el fin de la reserva), SENT o DEAD
+-- (agotados los reintentos o error permanente).
+CREATE TABLE IF NOT EXISTS mail_outbox (
+    id              BIGINT AUTO_INCREMENT PRIMARY KEY,
+    recipient       VARCHAR(320)  NOT NULL,
+    subject         VARCHAR(998)  NOT NULL,
+    body            MEDIUMTEXT    NOT NULL,
+    html            BOOLEAN       NOT NULL DEFAULT FALSE,
+    status          VARCHAR(16)   NOT NULL DEFAULT 'PENDING',
+    attempts        INT           NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(6)   NOT NULL,
+    last_error      VARCHAR(1000) NULL,
+    created_at      DATETIME(6)   NOT NULL,
+    sent_at         DATETIME(6)   NULL,
+    -- El dispatcher busca por estado y fecha del siguiente intento; la limpieza de enviados, por sent_at
+    INDEX idx_mail_outbox_due (status, next_attempt_at),
+    INDEX idx_mail_outbox_sent_at (sent_at)
+);
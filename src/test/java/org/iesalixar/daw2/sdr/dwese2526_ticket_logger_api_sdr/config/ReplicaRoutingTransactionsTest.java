@@ -0,0 +1,119 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Enrutado de varias transacciones de una misma petición contra dos BD reales (H2 en memoria), con
+ * Hibernate configurado como en la aplicación y la sesión compartida por toda la petición (como haría
+ * "Open Session in View").
+ */
+class ReplicaRoutingTransactionsTest {
+
+    private JdbcDataSource primary;
+
+    private JdbcDataSource replica;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private EntityManager requestEntityManager;
+
+    private TransactionTemplate readWrite;
+
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+
+        DataSourceRoutingConfig config = new DataSourceRoutingConfig();
+        DataSource dataSource = config.dataSource(primary,
+                new StaticListableBeanFactory(Map.of("replicaDataSource", replica)).getBeanProvider(DataSource.class));
+
+        Map<String, Object> jpaProperties = new HashMap<>();
+        config.releaseConnectionAfterTransaction().customize(jpaProperties);
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan(getClass().getPackageName());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(jpaProperties);
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        // Una sola sesión para toda la "petición"
+        requestEntityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(requestEntityManager));
+        ReadYourWritesContext.begin(false, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWritesContext.clear();
+        TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+        requestEntityManager.close();
+        entityManagerFactory.close();
+    }
+
+    private static JdbcDataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+        jdbc.execute("CREATE TABLE audit (note VARCHAR(20))");
+        return dataSource;
+    }
+
+    private String currentNode() {
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        return (String) entityManager.createNativeQuery("SELECT name FROM node").getSingleResult();
+    }
+
+    private static List<String> notes(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForList("SELECT note FROM audit", String.class);
+    }
+
+    @Test
+    void eachTransactionOfTheRequestGetsItsOwnRoutedConnection() {
+        assertEquals("replica", readOnly.execute(status -> currentNode()));
+
+        // La escritura no puede reutilizar la conexión de la réplica de la transacción anterior
+        assertEquals("primary", readWrite.execute(status -> {
+            SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory)
+                    .createNativeQuery("INSERT INTO audit (note) VALUES ('written')").executeUpdate();
+            return currentNode();
+        }));
+        assertEquals(List.of("written"), notes(primary));
+        assertEquals(List.of(), notes(replica));
+
+        // Tras la escritura, el resto de la petición lee del primario
+        assertEquals("primary", readOnly.execute(status -> currentNode()));
+    }
+}
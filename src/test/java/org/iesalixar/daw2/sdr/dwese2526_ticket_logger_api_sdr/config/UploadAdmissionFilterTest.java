@@ -0,0 +1,127 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.ContentTooLargeException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.FileStorageService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UploadAdmissionFilterTest {
+
+    @TempDir
+    Path uploads;
+
+    private UploadAdmissionFilter filter(int maxConcurrent, DataSize minFreeSpace) {
+        FileStorageService fileStorageService = mock(FileStorageService.class);
+        when(fileStorageService.uploadsDirectory()).thenReturn(uploads);
+        return new UploadAdmissionFilter(fileStorageService, new SimpleMeterRegistry(), List.of("/profile/update"),
+                DataSize.ofMegabytes(3), maxConcurrent, DataSize.ofMegabytes(64), minFreeSpace, Duration.ofSeconds(30));
+    }
+
+    private static MockHttpServletRequest upload(int contentLength) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/profile/update");
+        request.setContentType("multipart/form-data; boundary=x");
+        request.setContent(new byte[contentLength]);
+        return request;
+    }
+
+    /** Subida con {@code Transfer-Encoding: chunked}: el tamaño no se conoce hasta leer el cuerpo. */
+    private static MockHttpServletRequest chunkedUpload(int bodyLength) {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/profile/update") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        request.setContent(new byte[bodyLength]);
+        return request;
+    }
+
+    @Test
+    void admitsUploadWithinLimits() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter(8, DataSize.ofBytes(0)).doFilter(upload(1024), response, chain);
+
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void rejectsOversizedBodyBeforeReadingIt() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter(8, DataSize.ofBytes(0)).doFilter(upload(4 * 1024 * 1024), response, chain);
+
+        assertEquals(413, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void capsChunkedBodiesAtTheMaximumContentLength() throws Exception {
+        UploadAdmissionFilter filter = filter(8, DataSize.ofBytes(0));
+
+        // Lo que ya se ha leído dentro del máximo se entrega tal cual
+        AtomicLong received = new AtomicLong();
+        filter.doFilter(chunkedUpload(3 * 1024 * 1024), new MockHttpServletResponse(),
+                (request, response) -> received.set(request.getInputStream().transferTo(OutputStream.nullOutputStream())));
+        assertEquals(3 * 1024 * 1024, received.get());
+
+        // Sin Content-Length el filtro no puede rechazarlo antes: la lectura se corta al pasar el máximo
+        assertThrows(ContentTooLargeException.class, () -> filter.doFilter(chunkedUpload(4 * 1024 * 1024),
+                new MockHttpServletResponse(),
+                (request, response) -> request.getInputStream().transferTo(OutputStream.nullOutputStream())));
+    }
+
+    @Test
+    void answersServiceUnavailableWhenNoUploadSlotIsFree() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter(0, DataSize.ofBytes(0)).doFilter(upload(1024), response, chain);
+
+        assertEquals(503, response.getStatus());
+        assertEquals("30", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void answersServiceUnavailableWhenDiskIsNearlyFull() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter(8, DataSize.ofTerabytes(1024)).doFilter(upload(1024), response, new MockFilterChain());
+
+        assertEquals(503, response.getStatus());
+    }
+
+    @Test
+    void ignoresOtherPaths() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/regions");
+        request.setContent(new byte[4 * 1024 * 1024]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter(0, DataSize.ofBytes(0)).doFilter(request, response, new MockFilterChain());
+
+        assertEquals(200, response.getStatus());
+    }
+}
@@ -0,0 +1,124 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.controllers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.FileStorageService;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.InMemoryStorageBackend;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.LocalStorageBackend;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.StorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class UploadControllerTest {
+
+    private static final String SHA256 = "a".repeat(64);
+    private static final String BLOB = SHA256 + ".png";
+
+    @TempDir
+    Path uploadRoot;
+
+    /** Almacén real al que se delegan las lecturas del {@link FileStorageService} simulado. */
+    private StorageBackend storageBackend;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @InjectMocks
+    private UploadController uploadController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        useBackend(new LocalStorageBackend(uploadRoot.toString(), new SimpleMeterRegistry()));
+        lenient().when(fileStorageService.stat(anyString())).thenAnswer(inv -> storageBackend.stat(inv.getArgument(0)));
+        lenient().when(fileStorageService.open(anyString(), anyLong(), anyLong()))
+                .thenAnswer(inv -> storageBackend.open(inv.getArgument(0), inv.getArgument(1), inv.getArgument(2)));
+        lenient().when(fileStorageService.localPath(anyString())).thenAnswer(inv -> storageBackend.localPath(inv.getArgument(0)));
+        lenient().when(fileStorageService.isContentAddressed(BLOB)).thenReturn(true);
+        mockMvc = MockMvcBuilders.standaloneSetup(uploadController).build();
+    }
+
+    private void useBackend(StorageBackend backend) throws IOException {
+        Path source = Files.writeString(uploadRoot.resolve("source.tmp"), "0123456789", StandardCharsets.US_ASCII);
+        backend.put(BLOB, source, Files.size(source));
+        storageBackend = backend;
+    }
+
+    @Test
+    void servesWholeFileWithStrongETagAndImmutableCaching() throws Exception {
+        mockMvc.perform(get("/uploads/" + BLOB))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + SHA256 + "\""))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"));
+    }
+
+    @Test
+    void answersNotModifiedWhenETagMatches() throws Exception {
+        mockMvc.perform(get("/uploads/" + BLOB).header(HttpHeaders.IF_NONE_MATCH, "\"" + SHA256 + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void servesSingleByteRange() throws Exception {
+        mockMvc.perform(get("/uploads/" + BLOB).header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(content().string("2345"));
+    }
+
+    @Test
+    void ignoresRangeWhenIfRangeDoesNotMatch() throws Exception {
+        mockMvc.perform(get("/uploads/" + BLOB).header(HttpHeaders.RANGE, "bytes=2-5").header(HttpHeaders.IF_RANGE, "\"otro\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() throws Exception {
+        mockMvc.perform(get("/uploads/" + BLOB).header(HttpHeaders.RANGE, "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    void servesRangesFromRemoteBackendsWithoutLocalPath() throws Exception {
+        useBackend(new InMemoryStorageBackend(new SimpleMeterRegistry()));
+
+        mockMvc.perform(get("/uploads/" + BLOB).header(HttpHeaders.RANGE, "bytes=6-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 6-9/10"))
+                .andExpect(content().string("6789"));
+    }
+
+    @Test
+    void hidesTemporaryAndMissingFiles() throws Exception {
+        mockMvc.perform(get("/uploads/.upload-123.part")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/uploads/missing.png")).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,107 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ProvinceCreateDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionCreateDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Escrituras por lotes contra H2 con el esquema de regiones y provincias ({@code reference-data-h2.sql}).
+ */
+class ReferenceDataImportRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ReferenceDataImportRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:import-" + UUID.randomUUID() + ";MODE=MariaDB;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("reference-data-h2.sql")).execute(dataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new ReferenceDataImportRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repository, "namedJdbcTemplate", new NamedParameterJdbcTemplate(dataSource));
+    }
+
+    private static List<RegionCreateDTO> regions(int count, String prefix) {
+        List<RegionCreateDTO> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new RegionCreateDTO(null, prefix + i, "Región " + prefix + i));
+        }
+        return rows;
+    }
+
+    @Test
+    void allocatesIdsInPooledLoBlocksLikeHibernate() {
+        // 120 filas con INCREMENT BY 50: tres NEXT VALUE (1000, 1050, 1100) y ids consecutivos desde el primero
+        List<RegionCreateDTO> first = regions(120, "A");
+        repository.insertRegions(first);
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(1000L + i, first.get(i).getId());
+        }
+
+        // Lo que sobra del último bloque no se reutiliza: la siguiente reserva empieza en el bloque nuevo
+        List<RegionCreateDTO> second = regions(1, "B");
+        repository.insertRegions(second);
+        assertEquals(1150L, second.get(0).getId());
+
+        // Hibernate (pooled-lo con el mismo INCREMENT BY) seguirá desde un bloque que nadie ha usado
+        assertEquals(1200L, jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR regions_seq", Long.class));
+        assertEquals(121, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM regions", Integer.class));
+        assertEquals(1150L, jdbcTemplate.queryForObject("SELECT MAX(id) FROM regions", Long.class));
+    }
+
+    @Test
+    void findsExistingCodesIgnoringCase() {
+        List<RegionCreateDTO> regions = List.of(new RegionCreateDTO(null, "AN", "Andalucía"));
+        repository.insertRegions(regions);
+        Long andalucia = regions.get(0).getId();
+
+        Map<String, Long> ids = repository.findRegionIdsByCode(Set.of("an", "ZZ"));
+
+        assertEquals(Map.of("AN", andalucia), ids);
+        assertEquals(andalucia, ids.get("an"));
+        assertEquals(andalucia, ids.get("An"));
+        assertTrue(repository.findProvinceIdsByCode(Set.of()).isEmpty());
+    }
+
+    @Test
+    void updatesOnlyTheGivenRows() {
+        List<RegionCreateDTO> regions = regions(2, "R");
+        repository.insertRegions(regions);
+        List<ProvinceCreateDTO> provinces =
+                List.of(new ProvinceCreateDTO(null, "SE", "Sevilla", regions.get(0).getId()),
+                        new ProvinceCreateDTO(null, "CA", "Cádiz", regions.get(0).getId()));
+        repository.insertProvinces(provinces);
+
+        ProvinceCreateDTO moved = new ProvinceCreateDTO(provinces.get(0).getId(), "SE", "Sevilla (nueva)",
+                regions.get(1).getId());
+        repository.updateProvinces(List.of(moved));
+        repository.updateRegions(List.of(new RegionCreateDTO(regions.get(1).getId(), "R1", "Renombrada")));
+
+        assertEquals(Map.of("name", "Sevilla (nueva)", "region_id", regions.get(1).getId().intValue()),
+                jdbcTemplate.queryForMap("SELECT name, region_id FROM provinces WHERE code = 'SE'"));
+        assertEquals(Map.of("name", "Cádiz", "region_id", regions.get(0).getId().intValue()),
+                jdbcTemplate.queryForMap("SELECT name, region_id FROM provinces WHERE code = 'CA'"));
+        assertEquals(List.of("Región R0", "Renombrada"),
+                jdbcTemplate.queryForList("SELECT name FROM regions ORDER BY id", String.class));
+    }
+}
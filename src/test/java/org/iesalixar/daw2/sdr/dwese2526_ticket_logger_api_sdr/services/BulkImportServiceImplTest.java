@@ -0,0 +1,206 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.SessionFactory;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ImportReportDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.ImportRowErrorDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Region;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ResourceChangedEvent;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.ReferenceDataImportRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services.BulkImportService.OnDuplicate;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ImportRecordReader.Format;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Importación completa contra H2 ({@code reference-data-h2.sql}) con bloques de 2 filas, para que cada
+ * prueba cruce varios límites de bloque. La caché de segundo nivel y el publicador de eventos son mocks.
+ */
+class BulkImportServiceImplTest {
+
+    /** Nombre que la tabla de regiones rechaza, para simular un fallo de la BD a mitad de importación. */
+    private static final String REJECTED_BY_DB = "Rechazada por la BD";
+
+    private ValidatorFactory validatorFactory;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicInteger commits = new AtomicInteger();
+
+    private final AtomicInteger rollbacks = new AtomicInteger();
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+
+    private final Cache jpaCache = mock(Cache.class);
+
+    private final org.hibernate.Cache hibernateCache = mock(org.hibernate.Cache.class);
+
+    private BulkImportServiceImpl importService;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:bulk-" + UUID.randomUUID() + ";MODE=MariaDB;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("reference-data-h2.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("ALTER TABLE regions ADD CONSTRAINT ck_regions_test CHECK (name <> '" + REJECTED_BY_DB + "')");
+
+        ReferenceDataImportRepository importRepository = new ReferenceDataImportRepository();
+        ReflectionTestUtils.setField(importRepository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(importRepository, "namedJdbcTemplate", new NamedParameterJdbcTemplate(dataSource));
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource) {
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+                commits.incrementAndGet();
+                super.doCommit(status);
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) {
+                rollbacks.incrementAndGet();
+                super.doRollback(status);
+            }
+        };
+
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(entityManagerFactory.getCache()).thenReturn(jpaCache);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(hibernateCache);
+
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        importService = new BulkImportServiceImpl(transactionManager);
+        ReflectionTestUtils.setField(importService, "importRepository", importRepository);
+        ReflectionTestUtils.setField(importService, "validator", validatorFactory.getValidator());
+        ReflectionTestUtils.setField(importService, "objectMapper", JsonMapper.builder().build());
+        ReflectionTestUtils.setField(importService, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(importService, "entityManagerFactory", entityManagerFactory);
+        ReflectionTestUtils.setField(importService, "chunkSize", 2);
+        ReflectionTestUtils.setField(importService, "maxErrors", 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    private static ByteArrayInputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<String> regionCodes() {
+        return jdbcTemplate.queryForList("SELECT code FROM regions ORDER BY code", String.class);
+    }
+
+    @Test
+    void writesEachChunkInItsOwnTransaction() {
+        String csv = "code,name\nAN,Andalucía\nAR,Aragón\nAS," + REJECTED_BY_DB + "\nCB,Cantabria\nCL,Castilla y León\n";
+
+        ImportReportDTO report = importService.importRegions(body(csv), Format.CSV, OnDuplicate.SKIP);
+
+        // Bloques [AN, AR] [AS, CB] [CL]: el segundo falla entero y no arrastra a los demás
+        assertEquals(2, commits.get());
+        assertEquals(1, rollbacks.get());
+        assertEquals(List.of("AN", "AR", "CL"), regionCodes());
+        assertEquals(5, report.getProcessed());
+        assertEquals(3, report.getInserted());
+        assertEquals(2, report.getFailed());
+        assertEquals(List.of(3L, 4L), report.getErrors().stream().map(ImportRowErrorDTO::getRow).toList());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("Bloque rechazado por la BD"));
+    }
+
+    @Test
+    void rejectsInvalidRowsAndCodesRepeatedIgnoringCase() {
+        jdbcTemplate.update("INSERT INTO regions (id, code, name) VALUES (1, 'CT', 'Cataluña')");
+        String csv = "code,name\nAN,Andalucía\nAR,\nan,Otra Andalucía\nARA,Aragón\nct,Otra Cataluña\n";
+
+        ImportReportDTO report = importService.importRegions(body(csv), Format.CSV, OnDuplicate.SKIP);
+
+        // "an" repite AN aunque esté en otro bloque; "ct" ya existe en la BD como CT y se omite
+        assertEquals(List.of(2L, 3L, 4L), report.getErrors().stream().map(ImportRowErrorDTO::getRow).toList());
+        assertEquals(List.of("name", "code", "code"),
+                report.getErrors().stream().map(ImportRowErrorDTO::getField).toList());
+        assertEquals("Código repetido en la entrada", report.getErrors().get(1).getMessage());
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getSkipped());
+        assertEquals(3, report.getFailed());
+        assertEquals(List.of("AN", "CT"), regionCodes());
+        assertEquals("Cataluña", jdbcTemplate.queryForObject("SELECT name FROM regions WHERE id = 1", String.class));
+    }
+
+    @Test
+    void publishesCreatedAndUpdatedCountsAndEvictsTheSecondLevelCache() {
+        jdbcTemplate.update("INSERT INTO regions (id, code, name) VALUES (1, 'AN', 'Andalucía')");
+        jdbcTemplate.update("INSERT INTO provinces (id, code, name, region_id) VALUES (1, 'SE', 'Sevilla', 1)");
+        String json = "[{\"code\":\"se\",\"name\":\"Sevilla (nueva)\",\"regionCode\":\"an\"},"
+                + "{\"code\":\"CA\",\"name\":\"Cádiz\",\"regionCode\":\"AN\"},"
+                + "{\"code\":\"HU\",\"name\":\"Huelva\",\"regionCode\":\"AN\"},"
+                + "{\"code\":\"XX\",\"name\":\"Sin región\",\"regionCode\":\"ZZ\"}]";
+
+        ImportReportDTO report = importService.importProvinces(body(json), Format.JSON, OnDuplicate.UPDATE);
+
+        assertEquals(2, report.getInserted());
+        assertEquals(1, report.getUpdated());
+        assertEquals(1, report.getFailed());
+        assertEquals("regionCode", report.getErrors().get(0).getField());
+        assertEquals("Sevilla (nueva)", jdbcTemplate.queryForObject("SELECT name FROM provinces WHERE id = 1", String.class));
+
+        // Un evento por tipo de cambio con el total de la importación, no uno por bloque
+        ArgumentCaptor<ResourceChangedEvent> events = ArgumentCaptor.forClass(ResourceChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(List.of(ResourceChangedEvent.ChangeType.CREATED, ResourceChangedEvent.ChangeType.UPDATED),
+                events.getAllValues().stream().map(ResourceChangedEvent::getType).toList());
+        assertEquals(List.of(2, 1), events.getAllValues().stream().map(ResourceChangedEvent::getCount).toList());
+        assertTrue(events.getAllValues().stream().allMatch(e -> e.getResource().equals("province") && e.getIds().isEmpty()));
+
+        verify(jpaCache).evict(Region.class);
+        verify(jpaCache).evict(Province.class);
+        verify(hibernateCache).evictCollectionData(Region.class.getName() + ".provinces");
+        verify(hibernateCache).evictQueryRegions();
+    }
+
+    @Test
+    void importsThatChangeNothingNeitherPublishNorEvict() {
+        jdbcTemplate.update("INSERT INTO regions (id, code, name) VALUES (1, 'AN', 'Andalucía')");
+
+        ImportReportDTO report = importService.importRegions(
+                body("[{\"code\":\"AN\",\"name\":\"Otra\"},{\"code\":\"\",\"name\":\"Sin código\"}]"),
+                Format.JSON, OnDuplicate.SKIP);
+
+        assertEquals(1, report.getSkipped());
+        assertEquals(1, report.getFailed());
+        verifyNoInteractions(eventPublisher, jpaCache, hibernateCache);
+    }
+}
@@ -0,0 +1,150 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.StoredFileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FileStorageServiceTest {
+
+    @TempDir
+    Path root;
+
+    @Mock
+    private StoredFileRepository storedFileRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(fileStorageService, "uploadRootPath", root.toString());
+        ReflectionTestUtils.setField(fileStorageService, "contentAddressed", true);
+        ReflectionTestUtils.setField(fileStorageService, "storageBackend",
+                new LocalStorageBackend(root.toString(), new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void storesBlobsInShardedDirectories() {
+        when(storedFileRepository.acquire(anyString(), anyString(), anyLong())).thenReturn(true);
+
+        String webPath = fileStorageService.saveStream(new ByteArrayInputStream("avatar".getBytes(StandardCharsets.UTF_8)), "png");
+
+        String name = webPath.substring("/uploads/".length());
+        Path expected = root.resolve("uploads").resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+        assertTrue(Files.isRegularFile(expected));
+        assertEquals(expected, fileStorageService.localPath(webPath).orElseThrow());
+    }
+
+    @Test
+    void migratesFlatFilesWhileTheyKeepResolving() throws Exception {
+        Path uploads = Files.createDirectories(root.resolve("uploads"));
+        String legacy = "5f0c2b8e-1d3a-4c5b-9e7f-0a1b2c3d4e5f.jpg";
+        Files.writeString(uploads.resolve(legacy), "legacy");
+        Files.writeString(uploads.resolve(".upload-1.part"), "temporal");
+
+        assertEquals(uploads.resolve(legacy), fileStorageService.localPath("/uploads/" + legacy).orElseThrow());
+
+        assertEquals(1, fileStorageService.migrateFlatBatch(10, new HashSet<>()));
+        assertEquals(0, fileStorageService.migrateFlatBatch(10, new HashSet<>()));
+
+        Path sharded = uploads.resolve("5f").resolve("0c").resolve(legacy);
+        assertTrue(Files.isRegularFile(sharded));
+        assertFalse(Files.exists(uploads.resolve(legacy)));
+        assertEquals(sharded, fileStorageService.localPath("/uploads/" + legacy).orElseThrow());
+
+        fileStorageService.deleteFile("/uploads/" + legacy);
+        assertFalse(Files.exists(sharded));
+    }
+
+    @Test
+    void unmovableFilesDoNotBlockTheRestOfTheMigration() throws Exception {
+        Path uploads = Files.createDirectories(root.resolve("uploads"));
+        // Mismo nombre en la raíz y en su subdirectorio con otro contenido: no se puede mover
+        String conflicting = "0a1b2c3d-1111-4c5b-9e7f-0a1b2c3d4e5f.jpg";
+        Files.writeString(uploads.resolve(conflicting), "antiguo");
+        Files.writeString(Files.createDirectories(uploads.resolve("0a").resolve("1b")).resolve(conflicting), "nuevo");
+        String legacy = "5f0c2b8e-1d3a-4c5b-9e7f-0a1b2c3d4e5f.jpg";
+        Files.writeString(uploads.resolve(legacy), "legacy");
+
+        // Lotes de uno: el fichero que no se puede mover se aparta y los siguientes lotes llegan al otro
+        Set<String> unmovable = new HashSet<>();
+        int moved = 0;
+        for (int batch = 0; batch < 5; batch++) {
+            moved += fileStorageService.migrateFlatBatch(1, unmovable);
+        }
+
+        assertEquals(1, moved);
+        assertEquals(Set.of(conflicting), unmovable);
+        assertTrue(Files.isRegularFile(uploads.resolve("5f").resolve("0c").resolve(legacy)));
+        assertEquals("antiguo", Files.readString(uploads.resolve(conflicting)));
+    }
+
+    @Test
+    void keepsTheBlobWhileReferencesRemain() {
+        when(storedFileRepository.acquire(anyString(), anyString(), anyLong())).thenReturn(true);
+        String webPath = fileStorageService.saveStream(new ByteArrayInputStream("shared".getBytes(StandardCharsets.UTF_8)), "txt");
+        String name = webPath.substring("/uploads/".length());
+        Path stored = fileStorageService.localPath(webPath).orElseThrow();
+
+        when(storedFileRepository.release(name)).thenReturn(1);
+        fileStorageService.deleteFile(webPath);
+        assertTrue(Files.exists(stored));
+
+        when(storedFileRepository.release(name)).thenReturn(0);
+        fileStorageService.deleteFile(webPath);
+        assertFalse(Files.exists(stored));
+    }
+
+    @Test
+    void deletesOrphanBlobsOnlyOutsideTheGracePeriod() throws Exception {
+        String blob = "b".repeat(64) + ".jpg";
+        Path file = Files.createDirectories(root.resolve("uploads/bb/bb")).resolve(blob);
+        Files.writeString(file, "orphan");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+
+        assertFalse(fileStorageService.deleteOrphan(blob, Instant.now().minus(Duration.ofDays(3))));
+        assertTrue(Files.exists(file));
+
+        // Con referencias registradas no es huérfano, aunque ningún perfil lo use
+        when(storedFileRepository.lockReferences(blob)).thenReturn(1);
+        assertFalse(fileStorageService.deleteOrphan(blob, Instant.now().minus(Duration.ofDays(1))));
+        assertTrue(Files.exists(file));
+        verify(storedFileRepository, never()).forget(blob);
+
+        when(storedFileRepository.lockReferences(blob)).thenReturn(-1);
+        assertTrue(fileStorageService.deleteOrphan(blob, Instant.now().minus(Duration.ofDays(1))));
+        assertFalse(Files.exists(file));
+        verify(storedFileRepository).forget(blob);
+    }
+}
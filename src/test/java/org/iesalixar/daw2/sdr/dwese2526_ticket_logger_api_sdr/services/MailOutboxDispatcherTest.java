@@ -0,0 +1,142 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.AsyncConfig;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.MailOutboxRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.MailOutboxRepository.OutboxMessage;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.MailOutboxRepository.Status;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MailOutboxDispatcherTest {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Mock
+    private MailOutboxRepository mailOutboxRepository;
+
+    private SmtpStandInServer smtp;
+
+    private ThreadPoolTaskExecutor mailExecutor;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtp = new SmtpStandInServer();
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtp.port());
+
+        mailExecutor = new AsyncConfig().mailExecutor(2, 10);
+        mailExecutor.initialize();
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new MailOutboxDispatcher(mailOutboxRepository, mailSender, mailExecutor, meterRegistry,
+                "tickets@example.com", true, 10, MAX_ATTEMPTS, Duration.ofSeconds(30), Duration.ofMinutes(10),
+                Duration.ofMinutes(5), Duration.ofDays(7));
+
+        when(mailOutboxRepository.countByStatus()).thenReturn(Map.of(
+                Status.PENDING, 1L, Status.SENDING, 0L, Status.SENT, 2L, Status.DEAD, 0L));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        mailExecutor.shutdown();
+        smtp.close();
+    }
+
+    private void claim(OutboxMessage... messages) {
+        when(mailOutboxRepository.claimDue(anyInt(), any(Duration.class), eq(MAX_ATTEMPTS))).thenReturn(List.of(messages));
+    }
+
+    @Test
+    void sendsClaimedMessagesAndPublishesStatusCounts() {
+        claim(new OutboxMessage(1, "ana@example.com", "Hola", "<p>Bienvenida</p>", true, 1),
+                new OutboxMessage(2, "luis@example.com", "Aviso", "Texto plano", false, 1));
+
+        dispatcher.dispatch();
+
+        verify(mailOutboxRepository).markSent(1);
+        verify(mailOutboxRepository).markSent(2);
+        assertEquals(2, smtp.messages().size());
+        assertTrue(smtp.messages().stream().anyMatch(m -> m.recipients().equals(List.of("ana@example.com"))
+                && m.data().contains("Subject: Hola") && m.data().contains("From: tickets@example.com")));
+
+        assertEquals(2, meterRegistry.get("mail.outbox.deliveries").tag("outcome", "sent").timer().count());
+        assertEquals(1.0, meterRegistry.get("mail.outbox.messages").tag("status", "pending").gauge().value());
+        assertEquals(2.0, meterRegistry.get("mail.outbox.messages").tag("status", "sent").gauge().value());
+    }
+
+    @Test
+    void retriesTransientFailuresWithExponentialBackoff() {
+        smtp.rejectTemporarily("ana@example.com");
+        claim(new OutboxMessage(1, "ana@example.com", "Hola", "Texto", false, 3));
+
+        dispatcher.dispatch();
+
+        // 30 s x 2^(3-1)
+        verify(mailOutboxRepository).markRetry(eq(1L), eq(Duration.ofMinutes(2)), anyString());
+        verify(mailOutboxRepository, never()).markSent(1);
+        assertEquals(Duration.ofSeconds(30), dispatcher.backoff(1));
+        assertEquals(Duration.ofMinutes(10), dispatcher.backoff(20));
+        assertEquals(1, meterRegistry.get("mail.outbox.deliveries").tag("outcome", "retry").timer().count());
+    }
+
+    @Test
+    void deadLettersPermanentRejectionsAndExhaustedRetries() {
+        smtp.rejectPermanently("nadie@example.com");
+        smtp.rejectTemporarily("luis@example.com");
+        claim(new OutboxMessage(1, "nadie@example.com", "Hola", "Texto", false, 1),
+                new OutboxMessage(2, "luis@example.com", "Aviso", "Texto", false, MAX_ATTEMPTS));
+
+        dispatcher.dispatch();
+
+        verify(mailOutboxRepository).markDead(eq(1L), anyString());
+        verify(mailOutboxRepository).markDead(eq(2L), anyString());
+        verify(mailOutboxRepository, never()).markRetry(any(Long.class), any(Duration.class), anyString());
+        assertEquals(0, smtp.messages().size());
+        assertEquals(2, meterRegistry.get("mail.outbox.deliveries").tag("outcome", "dead").timer().count());
+    }
+
+    @Test
+    void unexpectedErrorsAreClassifiedWithoutAbortingThePass() {
+        // Sin destinatario MimeMessageHelper lanza IllegalArgumentException, que no es una MailException
+        claim(new OutboxMessage(1, null, "Hola", "Texto", false, 1),
+                new OutboxMessage(2, null, "Aviso", "Texto", false, MAX_ATTEMPTS),
+                new OutboxMessage(3, "ana@example.com", "Hola", "Texto", false, 1));
+        when(mailOutboxRepository.markExpiredLeasesDead(MAX_ATTEMPTS)).thenReturn(1);
+
+        dispatcher.dispatch();
+
+        verify(mailOutboxRepository).markRetry(eq(1L), eq(Duration.ofSeconds(30)), anyString());
+        verify(mailOutboxRepository).markDead(eq(2L), anyString());
+        verify(mailOutboxRepository).markSent(3);
+        // La pasada termina: limpieza y métricas incluidas
+        verify(mailOutboxRepository).deleteSentBefore(Duration.ofDays(7), 1000);
+        assertEquals(1.0, meterRegistry.get("mail.outbox.messages").tag("status", "pending").gauge().value());
+    }
+}
@@ -0,0 +1,177 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.config.UniqueConstraintTranslator;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionCreateDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.RegionPatchDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Region;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.DuplicateResourceException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.PartialUpdateRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.RegionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.support.PersistenceExceptionTranslationInterceptor;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.PersistenceExceptionTranslationRepositoryProxyPostProcessor;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Duplicados detectados por el índice UNIQUE real de {@code regions.code} (H2 en memoria, tablas generadas
+ * desde las entidades) y traducidos por {@link UniqueConstraintTranslator} en los repositorios, tal y como
+ * los monta Spring: sin ninguna traducción en el servicio.
+ */
+class RegionServiceImplTest {
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+
+    private TransactionTemplate transaction;
+
+    private RegionServiceImpl regionService;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:regions-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan(Region.class.getPackageName());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "create",
+                // Solo se prueban las restricciones de la BD, no las de Hibernate ni las de validación
+                "hibernate.check_nullability", "false",
+                "jakarta.persistence.validation.mode", "none"));
+        factoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+        transaction = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+
+        // Los mismos traductores que encuentra Spring en el contexto: el de la aplicación y el de JPA (este
+        // fuera del FactoryBean, que aquí se resolvería al EntityManagerFactory que fabrica)
+        PersistenceExceptionTranslator jpaTranslator = factoryBean::translateExceptionIfPossible;
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of(
+                "uniqueConstraintTranslator", new UniqueConstraintTranslator(),
+                "entityManagerFactory", jpaTranslator));
+        JpaRepositoryFactory repositoryFactory =
+                new JpaRepositoryFactory(SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory));
+        repositoryFactory.addRepositoryProxyPostProcessor(new PersistenceExceptionTranslationRepositoryProxyPostProcessor(beans));
+
+        PartialUpdateRepository partialUpdates = new PartialUpdateRepository();
+        ReflectionTestUtils.setField(partialUpdates, "entityManager",
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory));
+        ProxyFactory partialUpdatesProxy = new ProxyFactory(partialUpdates);
+        partialUpdatesProxy.setProxyTargetClass(true);
+        partialUpdatesProxy.addAdvice(new PersistenceExceptionTranslationInterceptor(beans));
+
+        regionService = new RegionServiceImpl();
+        ReflectionTestUtils.setField(regionService, "regionRepository", repositoryFactory.getRepository(RegionRepository.class));
+        ReflectionTestUtils.setField(regionService, "partialUpdateRepository", partialUpdatesProxy.getProxy());
+        ReflectionTestUtils.setField(regionService, "eventPublisher", mock(ApplicationEventPublisher.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        factoryBean.destroy();
+    }
+
+    private static RegionCreateDTO createDTO(String code) {
+        RegionCreateDTO dto = new RegionCreateDTO();
+        dto.setCode(code);
+        dto.setName("Región " + code);
+        return dto;
+    }
+
+    private RegionDTO create(RegionCreateDTO dto) {
+        return transaction.execute(status -> regionService.create(dto));
+    }
+
+    @Test
+    void concurrentCreatesWithSameCodeYieldOneRegionAndDuplicates() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<RegionDTO>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Callable<RegionDTO> create = () -> {
+                    start.await();
+                    return create(createDTO("AN"));
+                };
+                results.add(executor.submit(create));
+            }
+            start.countDown();
+
+            int created = 0;
+            int duplicates = 0;
+            for (Future<RegionDTO> result : results) {
+                try {
+                    result.get();
+                    created++;
+                } catch (ExecutionException ex) {
+                    DuplicateResourceException duplicate = assertInstanceOf(DuplicateResourceException.class, ex.getCause());
+                    assertEquals("region", duplicate.getResource());
+                    assertEquals("code", duplicate.getField());
+                    duplicates++;
+                }
+            }
+
+            assertEquals(1, created);
+            assertEquals(threads - 1, duplicates);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void partialUpdatesHitTheSameIndex() {
+        create(createDTO("AN"));
+        RegionDTO aragon = create(createDTO("AR"));
+        RegionPatchDTO patch = new RegionPatchDTO();
+        patch.setCode("AN");
+
+        DuplicateResourceException duplicate = assertThrows(DuplicateResourceException.class,
+                () -> transaction.executeWithoutResult(status -> regionService.patch(aragon.getId(), patch)));
+        assertEquals("region", duplicate.getResource());
+        assertEquals("code", duplicate.getField());
+    }
+
+    @Test
+    void otherIntegrityViolationsAreNotReportedAsDuplicates() {
+        RegionCreateDTO withoutName = createDTO("AN");
+        withoutName.setName(null);
+
+        DataIntegrityViolationException thrown =
+                assertThrows(DataIntegrityViolationException.class, () -> create(withoutName));
+        assertFalse(thrown instanceof DuplicateResourceException);
+    }
+}
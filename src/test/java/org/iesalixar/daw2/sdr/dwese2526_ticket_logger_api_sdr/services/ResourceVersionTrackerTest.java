@@ -0,0 +1,42 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ResourceChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ResourceVersionTrackerTest {
+
+    private final ResourceVersionTracker tracker = new ResourceVersionTracker();
+
+    @Test
+    void etagsChangeOnlyWhenTheResourceOrWhatItShowsChanges() {
+        String region = tracker.entityETag("region", 1L);
+        String provinces = tracker.collectionETag("province", PageRequest.of(0, 10), null, false);
+
+        // Sin cambios, mismo ETag; otros parámetros, otro cuerpo y otro ETag
+        assertEquals(region, tracker.entityETag("region", 1L));
+        assertEquals(provinces, tracker.collectionETag("province", PageRequest.of(0, 10), null, false));
+        assertNotEquals(provinces, tracker.collectionETag("province", PageRequest.of(1, 10), null, false));
+        assertNotEquals(provinces, tracker.collectionETag("province", PageRequest.of(0, 10), null, true));
+
+        // Una provincia cambia sus listados y el detalle de las regiones (que la listan)
+        tracker.onResourceChanged(ResourceChangedEvent.updated("province", 10L));
+        assertNotEquals(region, tracker.entityETag("region", 1L));
+        assertNotEquals(provinces, tracker.collectionETag("province", PageRequest.of(0, 10), null, false));
+
+        // La importación masiva publica eventos sin ids, solo con el número de filas
+        String afterUpdate = tracker.collectionETag("province", PageRequest.of(0, 10), null, false);
+        tracker.onResourceChanged(new ResourceChangedEvent("province", ResourceChangedEvent.ChangeType.CREATED, List.of(), 250));
+        assertNotEquals(afterUpdate, tracker.collectionETag("province", PageRequest.of(0, 10), null, false));
+
+        // Los usuarios no aparecen en regiones ni provincias
+        String unchanged = tracker.entityETag("region", 1L);
+        tracker.onResourceChanged(ResourceChangedEvent.created("user", 5L));
+        assertEquals(unchanged, tracker.entityETag("region", 1L));
+    }
+}
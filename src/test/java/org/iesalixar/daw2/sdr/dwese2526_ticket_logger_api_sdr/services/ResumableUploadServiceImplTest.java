@@ -0,0 +1,191 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UploadSessionCreateDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UploadSessionDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.InvalidFileException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.ResourceNotFoundException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.UploadOffsetMismatchException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.StoredFileRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.UserProfileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+class ResumableUploadServiceImplTest {
+
+    @TempDir
+    Path root;
+
+    private FileStorageService fileStorageService;
+
+    private ResumableUploadServiceImpl resumableUploadService;
+
+    private StoredFileRepository storedFileRepository;
+
+    private final byte[] content = new byte[300_000];
+
+    /** Contadores de {@code stored_files} simulados en memoria. */
+    private final Map<String, Integer> references = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        new Random(7).nextBytes(content);
+
+        storedFileRepository = Mockito.mock(StoredFileRepository.class);
+        when(storedFileRepository.acquire(anyString(), anyString(), anyLong()))
+                .thenAnswer(call -> references.merge(call.getArgument(0), 1, Integer::sum) == 1);
+        when(storedFileRepository.findReferenced(anyCollection())).thenAnswer(call -> ((Collection<?>) call.getArgument(0))
+                .stream().filter(references::containsKey).toList());
+        fileStorageService = new FileStorageService();
+        ReflectionTestUtils.setField(fileStorageService, "uploadRootPath", root.toString());
+        ReflectionTestUtils.setField(fileStorageService, "contentAddressed", true);
+        ReflectionTestUtils.setField(fileStorageService, "storedFileRepository", storedFileRepository);
+        ReflectionTestUtils.setField(fileStorageService, "transactionManager", Mockito.mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(fileStorageService, "storageBackend",
+                new LocalStorageBackend(root.toString(), new SimpleMeterRegistry()));
+
+        resumableUploadService = new ResumableUploadServiceImpl();
+        ReflectionTestUtils.setField(resumableUploadService, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(resumableUploadService, "maxLength", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(resumableUploadService, "expiry", Duration.ofHours(24));
+    }
+
+    private UploadSessionDTO open(String sha256) throws IOException {
+        return resumableUploadService.create(new UploadSessionCreateDTO((long) content.length, sha256, "bin"));
+    }
+
+    private InputStream slice(int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(content, from, to));
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    @Test
+    void resumesFromTheCommittedOffsetAndStoresTheVerifiedFile() throws Exception {
+        String sha256 = sha256(content);
+        String id = open(sha256).getId();
+
+        assertEquals(100_000, resumableUploadService.writeChunk(id, 0, slice(0, 100_000)));
+
+        // Corte a mitad del segundo trozo: solo llegan 50.000 bytes, que quedan confirmados
+        InputStream interrupted = new InputStream() {
+            private final InputStream delegate = slice(100_000, 150_000);
+
+            @Override
+            public int read() throws IOException {
+                int b = delegate.read();
+                if (b == -1) {
+                    throw new IOException("Conexión cerrada por el cliente");
+                }
+                return b;
+            }
+        };
+        assertThrows(IOException.class, () -> resumableUploadService.writeChunk(id, 100_000, interrupted));
+        long committed = resumableUploadService.get(id).getOffset();
+        assertEquals(150_000, committed);
+
+        // Un trozo que deja un hueco se rechaza con el offset correcto
+        UploadOffsetMismatchException gap = assertThrows(UploadOffsetMismatchException.class,
+                () -> resumableUploadService.writeChunk(id, 200_000, slice(200_000, 300_000)));
+        assertEquals(150_000, gap.getCommittedOffset());
+
+        assertEquals(content.length, resumableUploadService.writeChunk(id, committed, slice((int) committed, content.length)));
+
+        UploadSessionDTO completed = resumableUploadService.complete(id);
+        assertEquals("/uploads/" + sha256 + ".bin", completed.getPath());
+        assertArrayEquals(content, Files.readAllBytes(fileStorageService.localPath(completed.getPath()).orElseThrow()));
+        assertThrows(ResourceNotFoundException.class, () -> resumableUploadService.get(id));
+    }
+
+    @Test
+    void completedUploadsSurviveTheOrphanCollector() throws Exception {
+        String id = open(sha256(content)).getId();
+        resumableUploadService.writeChunk(id, 0, slice(0, content.length));
+        Path stored = fileStorageService.localPath(resumableUploadService.complete(id).getPath()).orElseThrow();
+
+        // Un fichero sin referencias, para comprobar que el recolector sí borra los huérfanos
+        String orphanPath = fileStorageService.saveStream(new ByteArrayInputStream(new byte[]{1, 2, 3}), "bin");
+        references.remove(orphanPath.substring("/uploads/".length()));
+        Path orphan = fileStorageService.localPath(orphanPath).orElseThrow();
+
+        // Pasado el periodo de gracia, sin que ningún perfil use todavía la subida
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofDays(2)));
+        Files.setLastModifiedTime(stored, old);
+        Files.setLastModifiedTime(orphan, old);
+
+        UserProfileRepository userProfileRepository = Mockito.mock(UserProfileRepository.class);
+        when(userProfileRepository.findReferencedImages(any())).thenReturn(List.of());
+        OrphanFileCollector collector = new OrphanFileCollector();
+        ReflectionTestUtils.setField(collector, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(collector, "userProfileRepository", userProfileRepository);
+        ReflectionTestUtils.setField(collector, "storedFileRepository", storedFileRepository);
+        ReflectionTestUtils.setField(collector, "enabled", true);
+        ReflectionTestUtils.setField(collector, "grace", Duration.ofHours(24));
+        ReflectionTestUtils.setField(collector, "chunkSize", 500);
+        collector.collect();
+
+        assertTrue(Files.exists(stored));
+        assertArrayEquals(content, Files.readAllBytes(stored));
+        assertFalse(Files.exists(orphan));
+    }
+
+    @Test
+    void rejectsIncompleteOrCorruptedUploads() throws Exception {
+        String id = open("0".repeat(64)).getId();
+        resumableUploadService.writeChunk(id, 0, slice(0, 1000));
+
+        assertThrows(UploadOffsetMismatchException.class, () -> resumableUploadService.complete(id));
+
+        resumableUploadService.writeChunk(id, 1000, slice(1000, content.length));
+        assertThrows(InvalidFileException.class, () -> resumableUploadService.complete(id));
+        // La sesión se descarta y no queda nada en el almacén
+        assertThrows(ResourceNotFoundException.class, () -> resumableUploadService.get(id));
+        try (var files = fileStorageService.listStoredFiles()) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void rejectsChunksBeyondTheDeclaredLength() throws Exception {
+        String id = open(sha256(content)).getId();
+        byte[] tooLong = Arrays.copyOf(content, content.length + 10);
+
+        assertThrows(InvalidFileException.class, () -> resumableUploadService.writeChunk(id, 0, new ByteArrayInputStream(tooLong)));
+        assertThrows(ResourceNotFoundException.class, () -> resumableUploadService.get("../etc/passwd"));
+    }
+}
@@ -0,0 +1,350 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Servidor S3 mínimo en memoria para las pruebas de {@link S3StorageBackend} (direccionamiento path-style,
+ * sin validar firmas).
+ * <p>
+ * Cubre lo que usa el backend: PUT de objetos (también con cuerpo {@code aws-chunked}), subidas multipart,
+ * HEAD, GET con {@code Range}, DELETE, copia con {@code x-amz-copy-source} y ListObjectsV2. Registra las
+ * peticiones recibidas para poder comprobar, p. ej., que una subida grande ha ido por partes.
+ * </p>
+ */
+class S3StandInServer implements AutoCloseable {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+    private record StoredObject(byte[] content, Instant lastModified, String etag) {
+    }
+
+    private final HttpServer server;
+
+    private final String bucket;
+
+    private final SortedMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+
+    /** uploadId -> número de parte -> contenido. */
+    private final Map<String, SortedMap<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    private final Queue<String> requests = new ConcurrentLinkedQueue<>();
+
+    S3StandInServer(String bucket) throws IOException {
+        this.bucket = bucket;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                handle(exchange);
+            } catch (RuntimeException e) {
+                send(exchange, 500, error("InternalError"));
+            }
+        });
+        server.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /** Peticiones recibidas, como {@code MÉTODO ruta?query}. */
+    List<String> requests() {
+        return new ArrayList<>(requests);
+    }
+
+    byte[] content(String key) {
+        StoredObject object = objects.get(key);
+        return object != null ? object.content() : null;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getRawPath();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        requests.add(method + " " + path + (query.isEmpty() ? "" : "?" + String.join("&", query.keySet())));
+
+        String bucketPrefix = "/" + bucket;
+        if (!path.startsWith(bucketPrefix)) {
+            send(exchange, 404, error("NoSuchBucket"));
+            return;
+        }
+        String key = path.length() > bucketPrefix.length() + 1 ? decode(path.substring(bucketPrefix.length() + 1)) : "";
+
+        switch (method) {
+            case "GET" -> {
+                if (key.isEmpty()) {
+                    list(exchange, query);
+                } else {
+                    get(exchange, key, true);
+                }
+            }
+            case "HEAD" -> get(exchange, key, false);
+            case "PUT" -> {
+                if (query.containsKey("partNumber")) {
+                    uploadPart(exchange, query);
+                } else if (exchange.getRequestHeaders().containsKey("x-amz-copy-source")) {
+                    copy(exchange, key);
+                } else {
+                    byte[] content = readBody(exchange);
+                    StoredObject object = store(key, content, md5(content));
+                    exchange.getResponseHeaders().set("ETag", object.etag());
+                    send(exchange, 200, new byte[0]);
+                }
+            }
+            case "POST" -> {
+                if (query.containsKey("uploads")) {
+                    String uploadId = UUID.randomUUID().toString();
+                    uploads.put(uploadId, new ConcurrentSkipListMap<>());
+                    send(exchange, 200, xml("<InitiateMultipartUploadResult><Bucket>" + bucket + "</Bucket><Key>" + key
+                            + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>"));
+                } else {
+                    completeUpload(exchange, key, query.get("uploadId"));
+                }
+            }
+            case "DELETE" -> {
+                if (query.containsKey("uploadId")) {
+                    uploads.remove(query.get("uploadId"));
+                } else {
+                    objects.remove(key);
+                }
+                send(exchange, 204, null);
+            }
+            default -> send(exchange, 405, error("MethodNotAllowed"));
+        }
+    }
+
+    private void get(HttpExchange exchange, String key, boolean withBody) throws IOException {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            send(exchange, 404, withBody ? error("NoSuchKey") : null);
+            return;
+        }
+        byte[] content = object.content();
+        int start = 0;
+        int end = content.length - 1;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        Matcher matcher = range != null ? RANGE.matcher(range) : null;
+        if (matcher != null && matcher.matches()) {
+            start = Integer.parseInt(matcher.group(1));
+            if (!matcher.group(2).isEmpty()) {
+                end = Math.min(end, Integer.parseInt(matcher.group(2)));
+            }
+            if (start >= content.length) {
+                send(exchange, 416, error("InvalidRange"));
+                return;
+            }
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        }
+        exchange.getResponseHeaders().set("ETag", object.etag());
+        exchange.getResponseHeaders().set("Last-Modified",
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(object.lastModified().atOffset(ZoneOffset.UTC)));
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        if (!withBody) {
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(content.length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] body = new byte[end - start + 1];
+        System.arraycopy(content, start, body, 0, body.length);
+        send(exchange, status, body);
+    }
+
+    private void copy(HttpExchange exchange, String key) throws IOException {
+        String source = decode(exchange.getRequestHeaders().getFirst("x-amz-copy-source"));
+        source = source.startsWith("/") ? source.substring(1) : source;
+        StoredObject original = source.startsWith(bucket + "/") ? objects.get(source.substring(bucket.length() + 1)) : null;
+        if (original == null) {
+            send(exchange, 404, error("NoSuchKey"));
+            return;
+        }
+        StoredObject copy = store(key, original.content(), original.etag());
+        send(exchange, 200, xml("<CopyObjectResult><LastModified>" + copy.lastModified() + "</LastModified><ETag>"
+                + copy.etag() + "</ETag></CopyObjectResult>"));
+    }
+
+    private void uploadPart(HttpExchange exchange, Map<String, String> query) throws IOException {
+        SortedMap<Integer, byte[]> parts = uploads.get(query.get("uploadId"));
+        if (parts == null) {
+            send(exchange, 404, error("NoSuchUpload"));
+            return;
+        }
+        byte[] content = readBody(exchange);
+        parts.put(Integer.parseInt(query.get("partNumber")), content);
+        exchange.getResponseHeaders().set("ETag", md5(content));
+        send(exchange, 200, new byte[0]);
+    }
+
+    private void completeUpload(HttpExchange exchange, String key, String uploadId) throws IOException {
+        SortedMap<Integer, byte[]> parts = uploadId != null ? uploads.remove(uploadId) : null;
+        if (parts == null) {
+            send(exchange, 404, error("NoSuchUpload"));
+            return;
+        }
+        String manifest = new String(readBody(exchange), StandardCharsets.UTF_8);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        Matcher partNumbers = PART_NUMBER.matcher(manifest);
+        while (partNumbers.find()) {
+            content.write(parts.get(Integer.parseInt(partNumbers.group(1))));
+        }
+        StoredObject object = store(key, content.toByteArray(), "\"" + UUID.randomUUID() + "-" + parts.size() + "\"");
+        send(exchange, 200, xml("<CompleteMultipartUploadResult><Bucket>" + bucket + "</Bucket><Key>" + key
+                + "</Key><ETag>" + object.etag() + "</ETag></CompleteMultipartUploadResult>"));
+    }
+
+    private void list(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String prefix = query.getOrDefault("prefix", "");
+        int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+        String after = query.get("continuation-token");
+        SortedMap<String, StoredObject> candidates = after != null ? objects.tailMap(after + "\0") : objects;
+
+        StringBuilder contents = new StringBuilder();
+        int count = 0;
+        String last = null;
+        boolean truncated = false;
+        for (Map.Entry<String, StoredObject> entry : candidates.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                continue;
+            }
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+            contents.append("<Contents><Key>").append(entry.getKey()).append("</Key><LastModified>")
+                    .append(entry.getValue().lastModified()).append("</LastModified><ETag>")
+                    .append(entry.getValue().etag()).append("</ETag><Size>")
+                    .append(entry.getValue().content().length).append("</Size></Contents>");
+            last = entry.getKey();
+            count++;
+        }
+        send(exchange, 200, xml("<ListBucketResult><Name>" + bucket + "</Name><Prefix>" + prefix + "</Prefix><KeyCount>"
+                + count + "</KeyCount><MaxKeys>" + maxKeys + "</MaxKeys><IsTruncated>" + truncated + "</IsTruncated>"
+                + (truncated ? "<NextContinuationToken>" + last + "</NextContinuationToken>" : "")
+                + contents + "</ListBucketResult>"));
+    }
+
+    private StoredObject store(String key, byte[] content, String etag) {
+        StoredObject object = new StoredObject(content, Instant.now().with(ChronoField.NANO_OF_SECOND, 0), etag);
+        objects.put(key, object);
+        return object;
+    }
+
+    /**
+     * Lee el cuerpo, decodificando {@code aws-chunked} ({@code <tamaño hex>;chunk-signature=...\r\n<datos>\r\n}
+     * hasta un trozo vacío, seguido de trailers opcionales) cuando el SDK firma la subida por trozos.
+     */
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        byte[] raw = exchange.getRequestBody().readAllBytes();
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        String sha256 = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        boolean chunked = (encoding != null && encoding.contains("aws-chunked"))
+                || (sha256 != null && sha256.startsWith("STREAMING-"));
+        if (!chunked) {
+            return raw;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        while (true) {
+            String header = readLine(in);
+            int size = Integer.parseInt(header.split(";", 2)[0].trim(), 16);
+            if (size == 0) {
+                return decoded.toByteArray();
+            }
+            byte[] chunk = new byte[size];
+            in.readFully(chunk);
+            decoded.write(chunk);
+            readLine(in);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        if (body == null || body.length == 0) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] xml(String body) {
+        return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + body).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] error(String code) {
+        return xml("<Error><Code>" + code + "</Code><Message>" + code + "</Message></Error>");
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            query.put(decode(eq < 0 ? pair : pair.substring(0, eq)), eq < 0 ? "" : decode(pair.substring(eq + 1)));
+        }
+        return query;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    private static String md5(byte[] content) {
+        try {
+            return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class S3StorageBackendTest {
+
+    private static final String BUCKET = "tickets";
+
+    @TempDir
+    Path tmp;
+
+    private S3StandInServer s3;
+
+    private S3StorageBackend backend;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        s3 = new S3StandInServer(BUCKET);
+        backend = new S3StorageBackend(new SimpleMeterRegistry(), BUCKET, "uploads/", "eu-west-1", s3.endpoint(),
+                "test", "test", true, DataSize.ofKilobytes(64), DataSize.ofKilobytes(32), Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.destroy();
+        s3.close();
+    }
+
+    private Path file(byte[] content) throws IOException {
+        return Files.write(Files.createTempFile(tmp, "upload", ".tmp"), content);
+    }
+
+    @Test
+    void storesAndReadsObjectsWithRanges() throws IOException {
+        byte[] content = "0123456789".getBytes(StandardCharsets.US_ASCII);
+        backend.put("a.png", file(content), content.length);
+
+        assertArrayEquals(content, s3.content("uploads/a.png"));
+        assertEquals(10, backend.stat("a.png").orElseThrow().size());
+        try (InputStream in = backend.open("a.png", 2, 4)) {
+            assertEquals("2345", new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+        }
+        try (InputStream in = backend.open("a.png", 6, -1)) {
+            assertEquals("6789", new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+        }
+
+        backend.touch("a.png");
+        assertArrayEquals(content, s3.content("uploads/a.png"));
+
+        backend.delete("a.png");
+        assertTrue(backend.stat("a.png").isEmpty());
+        assertThrows(NoSuchFileException.class, () -> backend.open("a.png", 0, -1));
+    }
+
+    @Test
+    void uploadsLargeFilesInParts() throws IOException {
+        byte[] content = new byte[200 * 1024];
+        new Random(42).nextBytes(content);
+        backend.put("big.jpg", file(content), content.length);
+
+        assertArrayEquals(content, s3.content("uploads/big.jpg"));
+        List<String> requests = s3.requests();
+        assertTrue(requests.contains("POST /tickets/uploads/big.jpg?uploads"), requests::toString);
+        assertTrue(requests.stream().filter(r -> r.startsWith("PUT /tickets/uploads/big.jpg?")).count() > 1, requests::toString);
+    }
+
+    @Test
+    void listsObjectsUnderThePrefix() throws IOException {
+        byte[] content = {1, 2, 3};
+        backend.put("a.png", file(content), content.length);
+        backend.put("b.png", file(content), content.length);
+
+        try (Stream<StorageBackend.StoredObject> objects = backend.list()) {
+            assertEquals(List.of("a.png", "b.png"), objects.map(StorageBackend.StoredObject::key).toList());
+        }
+    }
+}
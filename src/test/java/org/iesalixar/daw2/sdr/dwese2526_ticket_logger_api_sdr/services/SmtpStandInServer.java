@@ -0,0 +1,142 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Servidor SMTP mínimo en memoria para las pruebas del envío de emails (sin TLS ni autenticación).
+ * <p>
+ * Acepta {@code EHLO/HELO}, {@code MAIL FROM}, {@code RCPT TO}, {@code DATA}, {@code RSET}, {@code NOOP} y
+ * {@code QUIT}, y guarda cada mensaje recibido. Se puede configurar para rechazar destinatarios de forma
+ * temporal (451) o permanente (550).
+ * </p>
+ */
+class SmtpStandInServer implements AutoCloseable {
+
+    /** Mensaje recibido: destinatarios y contenido tal y como llega tras {@code DATA}. */
+    record ReceivedMessage(List<String> recipients, String data) {
+    }
+
+    private final ServerSocket serverSocket;
+
+    private final List<ReceivedMessage> messages = new CopyOnWriteArrayList<>();
+
+    private final Set<String> temporarilyRejected = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> permanentlyRejected = ConcurrentHashMap.newKeySet();
+
+    SmtpStandInServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread.ofVirtual().name("smtp-stand-in").start(this::acceptLoop);
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    List<ReceivedMessage> messages() {
+        return List.copyOf(messages);
+    }
+
+    void rejectTemporarily(String recipient) {
+        temporarilyRejected.add(recipient.toLowerCase(Locale.ROOT));
+    }
+
+    void rejectPermanently(String recipient) {
+        permanentlyRejected.add(recipient.toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().start(() -> handle(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             OutputStream out = socket.getOutputStream()) {
+            reply(out, "220 localhost SMTP stand-in");
+            List<String> recipients = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line.toUpperCase(Locale.ROOT);
+                switch (command) {
+                    case "EHLO", "HELO" -> reply(out, "250 localhost");
+                    case "MAIL" -> {
+                        recipients.clear();
+                        reply(out, "250 2.1.0 Ok");
+                    }
+                    case "RCPT" -> {
+                        String recipient = address(line);
+                        if (permanentlyRejected.contains(recipient)) {
+                            reply(out, "550 5.1.1 User unknown");
+                        } else if (temporarilyRejected.contains(recipient)) {
+                            reply(out, "451 4.3.0 Try again later");
+                        } else {
+                            recipients.add(recipient);
+                            reply(out, "250 2.1.5 Ok");
+                        }
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder data = new StringBuilder();
+                        String dataLine;
+                        while ((dataLine = in.readLine()) != null && !dataLine.equals(".")) {
+                            data.append(dataLine.startsWith("..") ? dataLine.substring(1) : dataLine).append("\r\n");
+                        }
+                        messages.add(new ReceivedMessage(List.copyOf(recipients), data.toString()));
+                        recipients.clear();
+                        reply(out, "250 2.0.0 Ok: queued");
+                    }
+                    case "RSET" -> {
+                        recipients.clear();
+                        reply(out, "250 2.0.0 Ok");
+                    }
+                    case "NOOP" -> reply(out, "250 2.0.0 Ok");
+                    case "QUIT" -> {
+                        reply(out, "221 2.0.0 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 5.5.2 Command not recognized");
+                }
+            }
+        } catch (IOException e) {
+            // Conexión cerrada por el cliente
+        }
+    }
+
+    private static String address(String line) {
+        int start = line.indexOf('<');
+        int end = line.indexOf('>', start + 1);
+        String address = start >= 0 && end > start ? line.substring(start + 1, end) : line.substring(line.indexOf(':') + 1).trim();
+        return address.toLowerCase(Locale.ROOT);
+    }
+
+    private static void reply(OutputStream out, String response) throws IOException {
+        out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
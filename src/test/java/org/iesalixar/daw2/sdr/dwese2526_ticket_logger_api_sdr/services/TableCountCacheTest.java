@@ -0,0 +1,47 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.events.ResourceChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TableCountCacheTest {
+
+    private final TableCountCache cache = new TableCountCache(Duration.ofMinutes(1));
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private long count(long rows) {
+        loads.incrementAndGet();
+        return rows;
+    }
+
+    @Test
+    void adjustsTheCachedTotalWithCommittedChanges() {
+        assertEquals(10, cache.get("region", () -> count(10)));
+
+        cache.onResourceChanged(ResourceChangedEvent.created("region", 11L));
+        cache.onResourceChanged(ResourceChangedEvent.updated("region", 3L));
+
+        assertEquals(11, cache.get("region", () -> count(99)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void doesNotKeepACountThatRacedWithAChange() {
+        // El alta se confirma mientras el COUNT(*) está en curso: puede que ya la incluya, o no
+        long loaded = cache.get("region", () -> {
+            cache.onResourceChanged(ResourceChangedEvent.created("region", 11L));
+            return count(11);
+        });
+        assertEquals(11, loaded);
+
+        // No se ha guardado ni ajustado dos veces: la siguiente lectura vuelve a contar
+        assertEquals(11, cache.get("region", () -> count(11)));
+        assertEquals(2, loads.get());
+        assertEquals(11, cache.get("region", () -> count(99)));
+    }
+}
@@ -0,0 +1,161 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.services;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UserExportRowDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UserRoleNameDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.dtos.UsersDTO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.Role;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.entities.User;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.repositories.UsersRepository;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ExportWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceImplTest {
+
+    @Mock
+    private UsersRepository usersRepository;
+
+    @Mock
+    private TableCountCache tableCountCache;
+
+    @Spy
+    private ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    @InjectMocks
+    private UserServiceImpl userService;
+
+    /**
+     * Usuario cuyo acceso a roles simula la inicialización LAZY: si el listado la tocara, fallaría.
+     */
+    private static class LazyRolesUser extends User {
+        @Override
+        public Set<Role> getRoles() {
+            throw new IllegalStateException("La colección LAZY de roles no debe inicializarse fila a fila");
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    void listIssuesConstantQueriesRegardlessOfPageSize(int pageSize) {
+        Pageable pageable = PageRequest.of(0, pageSize);
+        List<User> users = new ArrayList<>();
+        List<UserRoleNameDTO> roleRows = new ArrayList<>();
+        for (long id = 1; id <= pageSize; id++) {
+            User user = new LazyRolesUser();
+            user.setId(id);
+            user.setEmail("user" + id + "@app.local");
+            users.add(user);
+            roleRows.add(new UserRoleNameDTO(id, "ROLE_USER"));
+            if (id % 2 == 0) {
+                roleRows.add(new UserRoleNameDTO(id, "ROLE_ADMIN"));
+            }
+        }
+        Slice<User> slice = new SliceImpl<>(users, pageable, true);
+        when(usersRepository.findAllBy(any(Pageable.class))).thenReturn(slice);
+        when(tableCountCache.get(eq("user"), any())).thenReturn(1000L);
+        when(usersRepository.findRoleNamesByUserIds(anyCollection())).thenReturn(roleRows);
+
+        Page<UsersDTO> result = userService.list(pageable);
+
+        // Una consulta para la página y otra para todos los roles (el total lo da la caché de conteos).
+        verify(usersRepository, times(1)).findAllBy(pageable);
+        verify(usersRepository, times(1)).findRoleNamesByUserIds(anyCollection());
+        verifyNoMoreInteractions(usersRepository);
+
+        assertEquals(pageSize, result.getNumberOfElements());
+        assertEquals(1000, result.getTotalElements());
+        assertEquals(Set.of("ROLE_USER"), result.getContent().get(0).getRoles());
+        if (pageSize > 1) {
+            assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), result.getContent().get(1).getRoles());
+        }
+    }
+
+    @Test
+    void exportStreamsAMillionUsersWithFlatHeap() {
+        int users = 1_000_000;
+        long[] maxUsedHeap = {0};
+        long baseline = usedHeapAfterGc();
+
+        // Filas generadas bajo demanda (dos roles por usuario), como las entregaría el cursor de la BD
+        Stream<UserExportRowDTO> rows = LongStream.rangeClosed(1, users)
+                .boxed()
+                .flatMap(id -> Stream.of(exportRow(id, "ROLE_USER"), exportRow(id, "ROLE_ADMIN")))
+                .peek(row -> {
+                    if (row.getId() % 200_000 == 0 && "ROLE_USER".equals(row.getRoleName())) {
+                        maxUsedHeap[0] = Math.max(maxUsedHeap[0], usedHeapAfterGc());
+                    }
+                });
+        when(usersRepository.streamExportRows()).thenReturn(rows);
+
+        LineCountingOutputStream out = new LineCountingOutputStream();
+        long exported = userService.export(ExportWriter.Format.NDJSON, out);
+
+        assertEquals(users, exported);
+        assertEquals(users, out.lines);
+        // Si se acumularan los usuarios, un millón de DTOs ocuparía cientos de MB
+        long growth = maxUsedHeap[0] - baseline;
+        assertTrue(growth < 32L * 1024 * 1024, "El heap ha crecido " + growth / (1024 * 1024) + " MB durante la exportación");
+    }
+
+    private static UserExportRowDTO exportRow(long id, String role) {
+        return new UserExportRowDTO(id, "user" + id + "@app.local", true, true, null, null, 0, true, false, role);
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** Descarta lo escrito y solo cuenta las líneas (una por usuario en NDJSON). */
+    private static class LineCountingOutputStream extends OutputStream {
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.exceptions.InvalidImportException;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ImportRecordReader.Format;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_api_sdr.utils.ImportRecordReader.ImportRecord;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImportRecordReaderTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    private ImportRecordReader open(Format format, String body) {
+        return ImportRecordReader.open(format, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                "region", objectMapper);
+    }
+
+    /** Lee todos los registros; si el lector falla, la excepción sale tras los registros ya leídos. */
+    private List<ImportRecord> readAll(ImportRecordReader reader, List<ImportRecord> records) {
+        try (reader) {
+            ImportRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    @Test
+    void csvHandlesHeaderCaseQuotesAndBlankLines() {
+        String csv = "\uFEFFCode, NAME\r\n"
+                + "AN,\"Andalucía, con coma\"\r\n"
+                + "\r\n"
+                + " AR ,\"Dice \"\"hola\"\"\nen dos líneas\"\n"
+                + "CT";
+
+        List<ImportRecord> records = readAll(open(Format.CSV, csv), new ArrayList<>());
+
+        assertEquals(3, records.size());
+        assertEquals(List.of(1L, 2L, 3L), records.stream().map(ImportRecord::getRow).toList());
+        assertEquals("AN", records.get(0).get("code"));
+        assertEquals("Andalucía, con coma", records.get(0).get("Name"));
+        assertEquals("AR", records.get(1).get("code"));
+        assertEquals("Dice \"hola\"\nen dos líneas", records.get(1).get("name"));
+        // Columnas que faltan al final de la fila: sin valor
+        assertEquals("CT", records.get(2).get("code"));
+        assertNull(records.get(2).get("name"));
+    }
+
+    @Test
+    void csvFormatErrorsReportTheRecordWhereTheyWereFound() {
+        List<ImportRecord> records = new ArrayList<>();
+        InvalidImportException ex = assertThrows(InvalidImportException.class,
+                () -> readAll(open(Format.CSV, "code,name\nAN,Andalucía\nAR,Aragón,sobra\nCT,Cataluña\n"), records));
+        assertEquals(1, records.size());
+        assertEquals(2L, ex.getValue());
+
+        InvalidImportException unclosed = assertThrows(InvalidImportException.class,
+                () -> readAll(open(Format.CSV, "code,name\nAN,\"Andalucía\n"), new ArrayList<>()));
+        assertEquals("row", unclosed.getField());
+    }
+
+    @Test
+    void jsonReadsOneObjectAtATimeWithLowerCaseKeys() {
+        String json = "[{\"Code\":\"AN\",\"name\":\"Andalucía\"}, {\"code\":\"AR\",\"name\":null,\"extra\":7}]";
+
+        List<ImportRecord> records = readAll(open(Format.JSON, json), new ArrayList<>());
+
+        assertEquals(2, records.size());
+        assertEquals(Map.of("code", "AN", "name", "Andalucía"), records.get(0).getValues());
+        assertEquals("AR", records.get(1).get("CODE"));
+        assertNull(records.get(1).get("name"));
+        assertEquals("7", records.get(1).get("extra"));
+        assertEquals(List.of(), readAll(open(Format.JSON, ""), new ArrayList<>()));
+    }
+
+    @Test
+    void jsonRejectsAnythingButAnArrayOfObjects() {
+        assertThrows(InvalidImportException.class, () -> readAll(open(Format.JSON, "{\"code\":\"AN\"}"), new ArrayList<>()));
+
+        List<ImportRecord> records = new ArrayList<>();
+        InvalidImportException notAnObject = assertThrows(InvalidImportException.class,
+                () -> readAll(open(Format.JSON, "[{\"code\":\"AN\"}, \"AR\"]"), records));
+        assertEquals(1, records.size());
+        assertEquals(2L, notAnObject.getValue());
+
+        InvalidImportException malformed = assertThrows(InvalidImportException.class,
+                () -> readAll(open(Format.JSON, "[{\"code\":\"AN\",}]"), new ArrayList<>()));
+        assertEquals(1L, malformed.getValue());
+    }
+}
@@ -0,0 +1,27 @@
+-- Regiones y provincias como en schema.sql, para H2 (URL con MODE=MariaDB;IGNORECASE=TRUE para que los
+-- códigos se comparen sin distinguir mayúsculas, como la collation de MariaDB).
+
+CREATE SEQUENCE regions_seq START WITH 1000 INCREMENT BY 50;
+CREATE SEQUENCE provinces_seq START WITH 1000 INCREMENT BY 50;
+
+-- MariaDB permite leer una secuencia como una tabla (SELECT increment FROM regions_seq); H2 no, se emula
+CREATE VIEW regions_seq AS
+    SELECT increment FROM INFORMATION_SCHEMA.SEQUENCES WHERE sequence_name = 'REGIONS_SEQ';
+CREATE VIEW provinces_seq AS
+    SELECT increment FROM INFORMATION_SCHEMA.SEQUENCES WHERE sequence_name = 'PROVINCES_SEQ';
+
+CREATE TABLE regions (
+   id INT AUTO_INCREMENT PRIMARY KEY,
+   code VARCHAR(10) NOT NULL,
+   name VARCHAR(100) NOT NULL,
+   CONSTRAINT uk_regions_code UNIQUE (code)
+);
+
+CREATE TABLE provinces (
+   id INT AUTO_INCREMENT PRIMARY KEY,
+   code VARCHAR(10) NOT NULL,
+   name VARCHAR(100) NOT NULL,
+   region_id INT NOT NULL,
+   CONSTRAINT uk_provinces_code UNIQUE (code),
+   FOREIGN KEY (region_id) REFERENCES regions(id)
+);